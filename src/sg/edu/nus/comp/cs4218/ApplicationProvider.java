@@ -0,0 +1,20 @@
+package sg.edu.nus.comp.cs4218;
+
+import sg.edu.nus.comp.cs4218.impl.util.ApplicationRegistry;
+
+/**
+ * Adds applications to the shell beyond the built-in ones.
+ * <p>
+ * Providers are discovered with {@link java.util.ServiceLoader}: list the implementation in a
+ * <code>META-INF/services/sg.edu.nus.comp.cs4218.ApplicationProvider</code> file on the class path.
+ * Implementations need a public no-argument constructor.
+ */
+public interface ApplicationProvider {
+    
+    /**
+     * Registers this provider's applications. Applications registered under the name of a built-in
+     * one replace it.
+     */
+    void registerApplications(ApplicationRegistry registry);
+    
+}
@@ -9,6 +9,9 @@ public final class Environment {//NOPMD - Suppressed as it's fine to name like a
     /**
      * Java VM does not support changing the current working directory.
      * For this reason, we use Environment.currentDirectory instead.
+     * <p>
+     * This is the process-wide directory, used by threads which have not entered an
+     * {@link ExecutionContext} of their own.
      */
     public static volatile String currentDirectory = System.getProperty("user.dir");
     
@@ -19,15 +22,32 @@ public final class Environment {//NOPMD - Suppressed as it's fine to name like a
      */
     public static void setCurrentDirectory(String path) {
         if (Files.isDirectory(IOUtils.resolveFilePath(path))) {
-            currentDirectory = IOUtils.resolveFilePath(path).toString();
+            changeCurrentDirectory(IOUtils.resolveFilePath(path).toString());
         }
     }
     
     /**
-     * @return currentDirectory
+     * Sets the current directory of the calling thread's {@link ExecutionContext}, or of the shell
+     * if there is none, without checking it.
+     *
+     * @param path absolute path of an existing directory
+     */
+    public static void changeCurrentDirectory(String path) {
+        ExecutionContext context = ExecutionContext.current();
+        if (context == null) {
+            currentDirectory = path;
+        } else {
+            context.setCurrentDirectory(path);
+        }
+    }
+    
+    /**
+     * @return the current directory of the calling thread's {@link ExecutionContext}, or of the
+     * shell if there is none
      */
     public static String getCurrentDirectory() {
-        return currentDirectory;
+        ExecutionContext context = ExecutionContext.current();
+        return context == null ? currentDirectory : context.getCurrentDirectory();
     }
     
 }
@@ -0,0 +1,96 @@
+package sg.edu.nus.comp.cs4218;
+
+import java.util.concurrent.Callable;
+
+/**
+ * State of one shell session, currently its working directory.
+ * <p>
+ * A context is entered on a thread for the duration of a command, and {@link Environment} reads
+ * and changes the working directory of the context entered on the calling thread, or the
+ * process-wide one if there is none. Sessions each with their own context can therefore run
+ * concurrently in one process. Work handed to other threads must be wrapped with
+ * {@link #wrap(Callable)} to run in the context of the thread handing it over.
+ */
+public final class ExecutionContext {
+    
+    private static final ThreadLocal<ExecutionContext> CURRENT = new ThreadLocal<>();
+    
+    private volatile String currentDirectory;
+    
+    /**
+     * @param currentDirectory Absolute path of the initial working directory
+     */
+    public ExecutionContext(String currentDirectory) {
+        this.currentDirectory = currentDirectory;
+    }
+    
+    /**
+     * @return the context entered on the calling thread, or null
+     */
+    public static ExecutionContext current() {
+        return CURRENT.get();
+    }
+    
+    public String getCurrentDirectory() {
+        return currentDirectory;
+    }
+    
+    /**
+     * @param currentDirectory Absolute path of the new working directory
+     */
+    public void setCurrentDirectory(String currentDirectory) {
+        this.currentDirectory = currentDirectory;
+    }
+    
+    /**
+     * Makes this the context of the calling thread until the returned scope is closed, which
+     * restores the previous one.
+     */
+    public Scope enter() {
+        ExecutionContext previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+    
+    /**
+     * Runs the task with this as the context of the calling thread, then restores the previous one.
+     *
+     * @param task Task to run
+     * @return the result of the task
+     * @throws Exception If the task throws it
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        Scope scope = enter();
+        try {
+            return task.call();
+        } finally {
+            scope.close();
+        }
+    }
+    
+    /**
+     * @param task Task to run on another thread
+     * @return a task running the given one in the context of the calling thread, if any
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        ExecutionContext context = current();
+        if (context == null) {
+            return task;
+        }
+        return () -> context.call(task);
+    }
+    
+    /**
+     * The time a context is entered on a thread.
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -3,6 +3,7 @@ package sg.edu.nus.comp.cs4218.app;
 import sg.edu.nus.comp.cs4218.Application;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 
 public interface CutInterface extends Application {
     
@@ -36,4 +37,36 @@ public interface CutInterface extends Application {
      */
     String cutFromStdin(Boolean isCharPo, Boolean isBytePo, Boolean isRange, int startIdx, int endIdx,
                         InputStream stdin) throws Exception;
+    
+    /**
+     * Cuts out selected portions of each file and writes them to stdout. The output is the same as
+     * the string returned by the String-returning variant.
+     *
+     * @param isCharPo Boolean option to cut by character position
+     * @param isBytePo Boolean option to cut by byte position
+     * @param isRange  Boolean option to perform range-based cut
+     * @param startIdx index to begin cut
+     * @param endIdx   index to end cut
+     * @param stdout   OutputStream the selected portions are written to
+     * @param fileName Array of String of file names
+     * @throws Exception
+     */
+    void cutFromFiles(Boolean isCharPo, Boolean isBytePo, Boolean isRange, int startIdx, int endIdx,
+                      OutputStream stdout, String... fileName) throws Exception;
+    
+    /**
+     * Cuts out selected portions of Stdin and writes them to stdout. The output is the same as the
+     * string returned by the String-returning variant.
+     *
+     * @param isCharPo Boolean option to cut by character position
+     * @param isBytePo Boolean option to cut by byte position
+     * @param isRange  Boolean option to perform range-based cut
+     * @param startIdx index to begin cut
+     * @param endIdx   index to end cut
+     * @param stdin    InputStream containing arguments from Stdin
+     * @param stdout   OutputStream the selected portions are written to
+     * @throws Exception
+     */
+    void cutFromStdin(Boolean isCharPo, Boolean isBytePo, Boolean isRange, int startIdx, int endIdx,
+                      InputStream stdin, OutputStream stdout) throws Exception;
 }
@@ -3,6 +3,7 @@ package sg.edu.nus.comp.cs4218.app;
 import sg.edu.nus.comp.cs4218.Application;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 
 public interface DiffInterface extends Application {
     /**
@@ -56,4 +57,38 @@ public interface DiffInterface extends Application {
      */
     String diffFileAndStdin(String fileName, InputStream stdin, Boolean isShowSame,
                             Boolean isNoBlank, Boolean isSimple) throws Exception;
+    
+    /**
+     * Writes the diff of two files (or, if both are directories, of two folders) to stdout as it
+     * is produced. The output is the same as the string returned by the String-returning variant.
+     *
+     * @param fileNameA  String of file name of the first file to be diff
+     * @param fileNameB  String of file name of the second file to be diff
+     * @param isShowSame Boolean option to print 'Files [file_names] identical' if the files are
+     *                   identical
+     * @param isNoBlank  Boolean option to ignore changes with blank lines
+     * @param isSimple   Boolean option to only print 'Files [file_names] differ' if the files are
+     *                   different
+     * @param stdout     OutputStream the diff report is written to
+     * @throws Exception
+     */
+    void diffTwoFiles(String fileNameA, String fileNameB, Boolean isShowSame, Boolean isNoBlank,
+                      Boolean isSimple, OutputStream stdout) throws Exception;
+    
+    /**
+     * Writes the diff of two folders to stdout as it is produced. The output is the same as the
+     * string returned by the String-returning variant.
+     *
+     * @param folderA    of path to first directory to diff
+     * @param folderB    of path to second directory to diff
+     * @param isShowSame Boolean option to print 'Files [file_names] identical' if the files are
+     *                   identical
+     * @param isNoBlank  Boolean option to ignore changes with blank lines
+     * @param isSimple   Boolean option to only print 'Files [file_names] differ' if the files are
+     *                   different
+     * @param stdout     OutputStream the diff report is written to
+     * @throws Exception
+     */
+    void diffTwoDir(String folderA, String folderB, Boolean isShowSame, Boolean isNoBlank,
+                    Boolean isSimple, OutputStream stdout) throws Exception;
 }
@@ -3,6 +3,7 @@ package sg.edu.nus.comp.cs4218.app;
 import sg.edu.nus.comp.cs4218.Application;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 
 
 public interface GrepInterface extends Application {
@@ -29,4 +30,32 @@ public interface GrepInterface extends Application {
      */
     String grepFromStdin(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, InputStream stdin)
       throws Exception;
+    
+    /**
+     * Writes the lines which match the specified pattern in the given files to stdout as they are
+     * found. The output is the same as the string returned by the String-returning variant.
+     *
+     * @param pattern           String specifying a regular expression in JAVA format
+     * @param isCaseInsensitive Boolean option to perform case insensitive matching
+     * @param isCountLines      Boolean option to only write out a count of matched lines
+     * @param stdout            OutputStream the results are written to
+     * @param fileNames         Array of file names
+     * @throws Exception
+     */
+    void grepFromFiles(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, OutputStream stdout,
+                       String... fileNames) throws Exception;
+    
+    /**
+     * Writes the lines which match the specified pattern in Stdin to stdout as they are found. The
+     * output is the same as the string returned by the String-returning variant.
+     *
+     * @param pattern           String specifying a regular expression in JAVA format
+     * @param isCaseInsensitive Boolean option to perform case insensitive matching
+     * @param isCountLines      Boolean option to only write out a count of matched lines
+     * @param stdin             InputStream containing arguments from Stdin
+     * @param stdout            OutputStream the results are written to
+     * @throws Exception
+     */
+    void grepFromStdin(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, InputStream stdin,
+                       OutputStream stdout) throws Exception;
 }
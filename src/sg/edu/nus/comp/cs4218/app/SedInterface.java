@@ -3,6 +3,7 @@ package sg.edu.nus.comp.cs4218.app;
 import sg.edu.nus.comp.cs4218.Application;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 
 public interface SedInterface extends Application {
     /**
@@ -34,4 +35,34 @@ public interface SedInterface extends Application {
      */
     String replaceSubstringInStdin(String pattern, String replacement, int replacementIndex,
                                    InputStream stdin) throws Exception;
+    
+    /**
+     * Writes the file content with the matched substring on each line replaced to stdout, line by
+     * line. The output is the same as the string returned by the String-returning variant.
+     *
+     * @param pattern          String specifying a regular expression in JAVA format
+     * @param replacement      String to replace the matched pattern
+     * @param replacementIndex Integer specifying the index of the matched substring to be replaced
+     *                         (default is 0)
+     * @param fileName         String specifying name of the file
+     * @param stdout           OutputStream the replaced lines are written to
+     * @throws Exception
+     */
+    void replaceSubstringInFile(String pattern, String replacement, int replacementIndex,
+                                String fileName, OutputStream stdout) throws Exception;
+    
+    /**
+     * Writes the Stdin arg content with the matched substring on each line replaced to stdout, line
+     * by line. The output is the same as the string returned by the String-returning variant.
+     *
+     * @param pattern          String specifying a regular expression in JAVA format
+     * @param replacement      String to replace the matched pattern
+     * @param replacementIndex Integer specifying the index of the matched substring to be replaced
+     *                         (default is 0)
+     * @param stdin            InputStream containing arguments from Stdin
+     * @param stdout           OutputStream the replaced lines are written to
+     * @throws Exception
+     */
+    void replaceSubstringInStdin(String pattern, String replacement, int replacementIndex,
+                                 InputStream stdin, OutputStream stdout) throws Exception;
 }
@@ -3,6 +3,7 @@ package sg.edu.nus.comp.cs4218.app;
 import sg.edu.nus.comp.cs4218.Application;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 
 public interface SortInterface extends Application {
     /**
@@ -30,4 +31,32 @@ public interface SortInterface extends Application {
      */
     String sortFromStdin(Boolean isFirstWordNumber, Boolean isReverseOrder, Boolean isCaseIndependent,
                          InputStream stdin) throws Exception;
+    
+    /**
+     * Writes the ordered lines of the specified files to stdout, one per line. The output is the
+     * same as the string returned by the String-returning variant.
+     *
+     * @param isFirstWordNumber Boolean option to treat the first word of a line as a number
+     * @param isReverseOrder    Boolean option to sort in reverse order
+     * @param isCaseIndependent Boolean option to perform case-independent sorting
+     * @param stdout            OutputStream the ordered lines are written to
+     * @param fileName          Array of String of file names
+     * @throws Exception
+     */
+    void sortFromFiles(Boolean isFirstWordNumber, Boolean isReverseOrder, Boolean isCaseIndependent,
+                       OutputStream stdout, String... fileName) throws Exception;
+    
+    /**
+     * Writes the ordered lines from the standard input to stdout, one per line. The output is the
+     * same as the string returned by the String-returning variant.
+     *
+     * @param isFirstWordNumber Boolean option to treat the first word of a line as a number
+     * @param isReverseOrder    Boolean option to sort in reverse order
+     * @param isCaseIndependent Boolean option to perform case-independent sorting
+     * @param stdin             InputStream containing arguments from Stdin
+     * @param stdout            OutputStream the ordered lines are written to
+     * @throws Exception
+     */
+    void sortFromStdin(Boolean isFirstWordNumber, Boolean isReverseOrder, Boolean isCaseIndependent,
+                       InputStream stdin, OutputStream stdout) throws Exception;
 }
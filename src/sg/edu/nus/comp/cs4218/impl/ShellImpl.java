@@ -1,12 +1,16 @@
 package sg.edu.nus.comp.cs4218.impl;
 
 import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ExecutionContext;
 import sg.edu.nus.comp.cs4218.Shell;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ExitException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner;
-import sg.edu.nus.comp.cs4218.impl.util.CommandBuilder;
+import sg.edu.nus.comp.cs4218.impl.util.CommandCache;
+import sg.edu.nus.comp.cs4218.impl.util.ShellConfig;
+import sg.edu.nus.comp.cs4218.impl.util.ShellOutputStream;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.BufferedReader;
@@ -16,14 +20,37 @@ import java.io.OutputStream;
 
 public class ShellImpl implements Shell {
     
+    private final ExecutionContext context;
+    
+    /**
+     * Creates a shell working in the process-wide current directory of {@link Environment}.
+     */
+    public ShellImpl() {
+        this(null);
+    }
+    
+    /**
+     * Creates a shell session with its own working directory, which can evaluate commands
+     * concurrently with other sessions.
+     *
+     * @param context Context of the session, or null to use the process-wide one
+     */
+    public ShellImpl(ExecutionContext context) {
+        this.context = context;
+    }
+    
     /**
      * Main method for the Shell Interpreter program.
+     * <p>
+     * Command output to the terminal is buffered as set in {@link ShellConfig}, and written out
+     * at the latest when the command ends, before the next prompt or any error message.
      *
      * @param args List of strings arguments, unused.
      */
     public static void main(String... args) {
         BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));//NOPMD
         Shell shell = new ShellImpl();
+        OutputStream stdout = ShellOutputStream.wrap(System.out);
         
         while (true) {
             System.out.print("$ ");
@@ -36,7 +63,11 @@ public class ShellImpl implements Shell {
                 }
     
                 if (!StringUtils.isBlank(commandString)) {
-                    shell.parseAndEvaluate(commandString, System.out);
+                    try {
+                        shell.parseAndEvaluate(commandString, stdout);
+                    } finally {
+                        endCommand(stdout);
+                    }
                 }
             } catch (ExitException e) {
                 System.exit(0);
@@ -47,10 +78,29 @@ public class ShellImpl implements Shell {
         
     }
     
+    private static void endCommand(OutputStream stdout) throws IOException {
+        if (stdout instanceof ShellOutputStream) {
+            ((ShellOutputStream) stdout).endCommand();
+        }
+    }
+    
+    /**
+     * Parses the command string, reusing the command parsed before for the same string if it is
+     * still cached, and evaluates it in this shell's context.
+     */
     @Override
     public void parseAndEvaluate(String commandString, OutputStream stdout)
       throws AbstractApplicationException, ShellException {
-        Command command = CommandBuilder.parseCommand(commandString, new ApplicationRunner());
-        command.evaluate(System.in, stdout);
+        Command command = CommandCache.parseCommand(commandString, new ApplicationRunner());
+        if (context == null) {
+            command.evaluate(System.in, stdout);
+            return;
+        }
+        ExecutionContext.Scope scope = context.enter();
+        try {
+            command.evaluate(System.in, stdout);
+        } finally {
+            scope.close();
+        }
     }
 }
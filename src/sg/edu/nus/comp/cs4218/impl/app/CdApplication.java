@@ -19,7 +19,7 @@ public class CdApplication implements CdInterface {
     
     @Override
     public void changeToDirectory(String path) throws CdException {
-        Environment.currentDirectory = getNormalizedAbsolutePath(path);
+        Environment.changeCurrentDirectory(getNormalizedAbsolutePath(path));
     }
     
     /**
@@ -45,7 +45,7 @@ public class CdApplication implements CdInterface {
         }
         
         if (args.length == 0) {
-            Environment.currentDirectory = System.getProperty("user.home").trim();
+            Environment.changeCurrentDirectory(System.getProperty("user.home").trim());
             return;
         }
         
@@ -62,7 +62,7 @@ public class CdApplication implements CdInterface {
         
         Path path = new File(pathStr).toPath();
         if (!path.isAbsolute()) {
-            path = Paths.get(Environment.currentDirectory, pathStr);
+            path = Paths.get(Environment.getCurrentDirectory(), pathStr);
         }
         
         if (!Files.exists(path)) {
@@ -62,10 +62,12 @@ public class CpApplication implements CpInterface {
             
             if (Files.exists(IOUtils.resolveFilePath(destFolder))) {
                 if (!Files.isDirectory(IOUtils.resolveFilePath(destFolder)) && fileName.length == 1) {
-                    FileOutputStream outputStream = new FileOutputStream(IOUtils.resolveFilePath(destFolder).toFile());//NOPMD
-                    byte[] strToBytes = Files.readAllBytes(IOUtils.resolveFilePath(srcPath));
-                    outputStream.write(strToBytes);
-                    outputStream.close();
+                    // From file to file, so the bytes are moved without entering the JVM
+                    try (InputStream inputStream = IOUtils.openInputStream(srcPath);
+                         OutputStream outputStream = new FileOutputStream(
+                           IOUtils.resolveFilePath(destFolder).toFile())) {
+                        IOUtils.transfer(inputStream, outputStream);
+                    }
 
                     return null;
                 } else if (!Files.isDirectory(IOUtils.resolveFilePath(destFolder)) && fileName.length > 1) {
@@ -7,10 +7,15 @@ import sg.edu.nus.comp.cs4218.impl.parser.CutArgsParser;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.*;
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
@@ -25,7 +30,9 @@ import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
  */
 public class CutApplication implements CutInterface {
     
-    InputStream inputStream;
+    // Stdin of the run in progress on each thread, which a "-" file argument reads; a thread
+    // local so that one instance can run on several threads at once
+    private final ThreadLocal<InputStream> runStdin = new ThreadLocal<>();
     
     /**
      * Builds the output read from the current data processed.
@@ -70,18 +77,42 @@ public class CutApplication implements CutInterface {
      * @throws Exception If an I/O exception occurs.
      */
     public String processInput(Boolean isCharPo, Boolean isBytePo, InputStream stdin, Boolean isRange, int startIdx, int endIdx) throws Exception {
+        StringWriter output = new StringWriter();
+        processInput(isCharPo, isBytePo, stdin, isRange, startIdx, endIdx, output);
+        return output.toString();
+    }
+    
+    /**
+     * Processes the input stream and writes the selected portion to the writer. Reading stops as
+     * soon as the end of the selection has been passed, as nothing after it can be selected.
+     *
+     * @param isCharPo Boolean option to cut by character position
+     * @param isBytePo Boolean option to cut by byte position
+     * @param stdin    InputStream containing arguments from Stdin
+     * @param isRange  Boolean option to perform range-based cut
+     * @param startIdx index to begin cut
+     * @param endIdx   index to end cut
+     * @param writer   Writer the selected portion is written to
+     * @return number of chars written
+     * @throws Exception If an I/O exception occurs.
+     */
+    private int processInput(Boolean isCharPo, Boolean isBytePo, InputStream stdin, Boolean isRange, int startIdx, // NOPMD
+                             int endIdx, Writer writer) throws Exception {
         if (stdin == null) {
             throw new CutException(ERR_NULL_STREAMS);
         }
-        StringBuilder output = new StringBuilder();
+        int written = 0;
+        int lastIdx = isRange ? endIdx : Math.max(startIdx, endIdx);
     
         int data;
         if (isBytePo) {
             int byteCount = 1; // to determine byte position
     
             // Read 1 byte at a time from the input stream
-            while ((data = stdin.read()) != -1) {
-                output.append(buildOutput(data, isRange, startIdx, endIdx, byteCount));
+            while (byteCount <= lastIdx && (data = stdin.read()) != -1) {
+                String output = buildOutput(data, isRange, startIdx, endIdx, byteCount);
+                writer.write(output);
+                written += output.length();
                 byteCount++; // keeps track of the number of bytes that have been read
             }
         } else if (isCharPo) {
@@ -89,14 +120,16 @@ public class CutApplication implements CutInterface {
             int charCount = 1;
     
             // Read 1 char at a time from the input stream
-            while ((data = reader.read()) != -1) {
-                output.append(buildOutput(data, isRange, startIdx, endIdx, charCount));
+            while (charCount <= lastIdx && (data = reader.read()) != -1) {
+                String output = buildOutput(data, isRange, startIdx, endIdx, charCount);
+                writer.write(output);
+                written += output.length();
                 charCount++; // keeps track of the number of chars that have been read
             }
         }
     
         stdin.close();
-        return output.toString();
+        return written;
     }
     
     /**
@@ -113,21 +146,46 @@ public class CutApplication implements CutInterface {
      */
     @Override
     public String cutFromFiles(Boolean isCharPo, Boolean isBytePo, Boolean isRange, int startIdx, int endIdx, String... fileName) throws Exception {
-        StringBuilder output = new StringBuilder();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        cutFromFiles(isCharPo, isBytePo, isRange, startIdx, endIdx, output, fileName);
+        return output.toString();
+    }
+    
+    /**
+     * Cut selected portions from each file and writes them to stdout.
+     *
+     * @param isCharPo Boolean option to cut by character position
+     * @param isBytePo Boolean option to cut by byte position
+     * @param isRange  Boolean option to perform range-based cut
+     * @param startIdx index to begin cut
+     * @param endIdx   index to end cut
+     * @param stdout   OutputStream the selected portions are written to
+     * @param fileName Array of String of file names
+     * @throws Exception If an I/O exception occurs.
+     */
+    @Override
+    public void cutFromFiles(Boolean isCharPo, Boolean isBytePo, Boolean isRange, int startIdx, int endIdx, // NOPMD
+                             OutputStream stdout, String... fileName) throws Exception {
         InputStream stdin; //NOPMD
     
         if (fileName == null) {
             throw new CutException(ERR_NULL_ARGS);
         }
+        if (stdout == null) {
+            throw new CutException(ERR_NULL_STREAMS);
+        }
     
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stdout));
+        int written = 0;
         for (String srcPath : fileName) {
             // If not the first file, add carriage return
-            if (output.length() != 0) {
-                output.append(STRING_NEWLINE);
+            if (written != 0) {
+                writer.write(STRING_NEWLINE);
+                written += STRING_NEWLINE.length();
             }
             // Check for actual file
             if (srcPath != null && srcPath.equals("-")) {
-                stdin = inputStream;
+                stdin = runStdin.get();
             } else {
                 File node = IOUtils.resolveFilePath(srcPath).toFile();
                 if (!node.exists()) {
@@ -141,10 +199,9 @@ public class CutApplication implements CutInterface {
                 }
                 stdin = IOUtils.openInputStream(srcPath);
             }
-            output.append(processInput(isCharPo, isBytePo, stdin, isRange, startIdx, endIdx));
+            written += processInput(isCharPo, isBytePo, stdin, isRange, startIdx, endIdx, writer);
         }
-    
-        return output.toString();
+        writer.flush();
     }
     
     /**
@@ -164,6 +221,29 @@ public class CutApplication implements CutInterface {
         return processInput(isCharPo, isBytePo, stdin, isRange, startIdx, endIdx);
     }
     
+    /**
+     * Cut selected portions from stdin and writes them to stdout.
+     *
+     * @param isCharPo Boolean option to cut by character position
+     * @param isBytePo Boolean option to cut by byte position
+     * @param isRange  Boolean option to perform range-based cut
+     * @param startIdx index to begin cut
+     * @param endIdx   index to end cut
+     * @param stdin    InputStream containing arguments from Stdin
+     * @param stdout   OutputStream the selected portions are written to
+     * @throws Exception If an I/O exception occurs.
+     */
+    @Override
+    public void cutFromStdin(Boolean isCharPo, Boolean isBytePo, Boolean isRange, int startIdx, int endIdx, // NOPMD
+                             InputStream stdin, OutputStream stdout) throws Exception {
+        if (stdout == null) {
+            throw new CutException(ERR_NULL_STREAMS);
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stdout));
+        processInput(isCharPo, isBytePo, stdin, isRange, startIdx, endIdx, writer);
+        writer.flush();
+    }
+    
     /**
      * Runs the cut application with the specified arguments.
      * <p>
@@ -189,7 +269,6 @@ public class CutApplication implements CutInterface {
         int startIdx;
         int endIdx;
         String result;
-        inputStream = stdin;
     
         if (args == null) {
             throw new CutException(ERR_NULL_ARGS);
@@ -206,6 +285,7 @@ public class CutApplication implements CutInterface {
             throw (CutException) new CutException(ERR_INVALID_FLAG);
         }
     
+        runStdin.set(stdin);
         try {
             isCutByCharPos = parser.isCutByCharPos();
             isCutByBytePos = parser.isCutByBytePos();
@@ -233,16 +313,19 @@ public class CutApplication implements CutInterface {
                 throw new Exception(ERR_OUT_OF_RANGE);
             }
         
-            // Read from stdin
-            if (files.length == 0 || (files.length == 1 && files[0].contains("-"))) {
-                result = cutFromStdin(isCutByCharPos, isCutByBytePos, isRange, startIdx, endIdx, stdin).trim() + STRING_NEWLINE;
-                stdout.write(result.getBytes());
+            // The selection is bounded by the range, so it is gathered in memory to be trimmed
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            if (files.length == 0 || (files.length == 1 && files[0].contains("-"))) { // Read from stdin
+                cutFromStdin(isCutByCharPos, isCutByBytePos, isRange, startIdx, endIdx, stdin, output);
             } else { // Read from files
-                result = cutFromFiles(isCutByCharPos, isCutByBytePos, isRange, startIdx, endIdx, files).trim() + STRING_NEWLINE;
-                stdout.write(result.getBytes());
+                cutFromFiles(isCutByCharPos, isCutByBytePos, isRange, startIdx, endIdx, output, files);
             }
+            result = output.toString().trim() + STRING_NEWLINE;
+            stdout.write(result.getBytes());
         } catch (Exception e) {
             throw (CutException) new CutException(e.getMessage()).initCause(e);
+        } finally {
+            runStdin.remove();
         }
     }
 }
@@ -1,18 +1,39 @@
 package sg.edu.nus.comp.cs4218.impl.app;
 
+import sg.edu.nus.comp.cs4218.ExecutionContext;
 import sg.edu.nus.comp.cs4218.app.DiffInterface;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.DiffException;
 import sg.edu.nus.comp.cs4218.exception.InvalidArgsException;
 import sg.edu.nus.comp.cs4218.impl.parser.DiffArgsParser;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
+import sg.edu.nus.comp.cs4218.impl.util.LineDiff;
+import sg.edu.nus.comp.cs4218.impl.util.LineTable;
+import sg.edu.nus.comp.cs4218.impl.util.ShellConfig;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.*;
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
@@ -20,7 +41,11 @@ import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
 @SuppressWarnings("PMD.PreserveStackTrace")
 public class DiffApplication implements DiffInterface {
     
-    InputStream inputStream; //NOPMD
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    
+    // Stdin of the diff in progress on each thread, which a "-" file argument reads; a thread
+    // local so that one instance can diff on several threads at once
+    private final ThreadLocal<InputStream> runStdin = new ThreadLocal<>();
     
     /**
      * Checks if the source path exists in the current system.
@@ -79,87 +104,139 @@ public class DiffApplication implements DiffInterface {
      */
     @Override
     public String diffTwoFiles(String fileNameA, String fileNameB, Boolean isShowSame, Boolean isNoBlank, Boolean isSimple) throws DiffException { //NOPMD
-        String fileAContent;
-        String fileBContent;
-        String[] fileALines = new String[0];
-        String[] fileBLines = new String[0];
-    
-        boolean isFileADir = false;
-        boolean isFileBDir = false;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        diffTwoFiles(fileNameA, fileNameB, isShowSame, isNoBlank, isSimple, output);
+        return output.toString();
+    }
     
+    /**
+     * Performs a diff of two files and writes the difference in content to stdout.
+     *
+     * @param fileNameA  String of file name of the first file to be diff
+     * @param fileNameB  String of file name of the second file to be diff
+     * @param isShowSame Boolean option to print 'Files [file_names] identical' if the files are
+     *                   identical
+     * @param isNoBlank  Boolean option to ignore changes with blank lines
+     * @param isSimple   Boolean option to only print 'Files [file_names] differ' if the files are
+     *                   different
+     * @param stdout     OutputStream the difference is written to
+     * @throws DiffException
+     */
+    @Override
+    public void diffTwoFiles(String fileNameA, String fileNameB, Boolean isShowSame, Boolean isNoBlank, Boolean isSimple, //NOPMD
+                             OutputStream stdout) throws DiffException {
         try {
-            if (fileNameA != null && fileNameA.equals("-")) {
-                fileALines = IOUtils.getLinesFromInputStream(inputStream).toArray(new String[0]);
-            } else {
-                checkExists(fileNameA);
-                File fileA = IOUtils.resolveFilePath(fileNameA).toFile();
-                if (fileA.isDirectory()) {
-                    isFileADir = true;
-                } else {
-                    fileAContent = readFileContent(fileA);
-                    fileALines = fileAContent.split("\n");
-                }
+            Writer writer = new BufferedWriter(new OutputStreamWriter(stdout));
+            writeDiffOfFiles(fileNameA, fileNameB, isShowSame, isNoBlank, isSimple, writer);
+            writer.flush();
+        } catch (Exception e) {
+            throw new DiffException(e.getMessage());
+        }
+    }
+    
+    /**
+     * Writes the diff of two files, or of two directories if both are directories, to the writer.
+     *
+     * @return true if anything was written
+     * @throws Exception
+     */
+    private boolean writeDiffOfFiles(String fileNameA, String fileNameB, Boolean isShowSame, Boolean isNoBlank, //NOPMD
+                                     Boolean isSimple, Writer writer) throws Exception {
+        try (LineTable fileALines = readLines(fileNameA); LineTable fileBLines = readLines(fileNameB)) {
+            if (fileALines == null && fileBLines == null) {
+                return writeDiffOfDirs(fileNameA, fileNameB, isShowSame, isNoBlank, isSimple, writer,
+                  ShellConfig.getDiffThreads());
             }
-        
-            if (fileNameB != null && fileNameB.equals("-")) {
-                fileBLines = IOUtils.getLinesFromInputStream(inputStream).toArray(new String[0]);
-            } else {
-                checkExists(fileNameB);
-                File fileB = IOUtils.resolveFilePath(fileNameB).toFile();
-                if (fileB.isDirectory()) {
-                    isFileBDir = true;
-                } else {
-                    fileBContent = readFileContent(fileB);
-                    fileBLines = fileBContent.split("\n");
-                }
+            return writeDiffOfLines(fileNameA, fileNameB, fileALines == null ? LineTable.empty() : fileALines,
+              fileBLines == null ? LineTable.empty() : fileBLines, isShowSame, isNoBlank, isSimple, writer);
+        }
+    }
+    
+    /**
+     * Reads the lines of a file, or of stdin if the file name is "-", without decoding them.
+     *
+     * @return the lines read, or null if the file is a directory
+     * @throws Exception
+     */
+    private LineTable readLines(String fileName) throws Exception {
+        if (fileName != null && fileName.equals("-")) {
+            return LineTable.ofStream(runStdin.get());
+        }
+        checkExists(fileName);
+        Path path = IOUtils.resolveFilePath(fileName);
+        if (Files.isDirectory(path)) {
+            return null;
+        }
+        return LineTable.ofFile(path);
+    }
+    
+    private boolean writeDiffOfLines(String fileNameA, String fileNameB, LineTable fileALines, //NOPMD
+                                     LineTable fileBLines, Boolean isShowSame, Boolean isNoBlank, Boolean isSimple,
+                                     Writer writer) throws IOException {
+        List<LineDiff.Hunk> hunks = LineDiff.diff(fileALines, fileBLines, ShellConfig.getDiffAlgorithm());
+        if (isSimple) {
+            if (hasChanges(hunks, fileALines, fileBLines, isNoBlank)) {
+                writer.write("Files [" + fileNameA + " " + fileNameB + "] differ");
+                return true;
             }
-        
-            if (isFileADir && isFileBDir) {
-                return diffTwoDir(fileNameA, fileNameB, isShowSame, isNoBlank, isSimple);
-            } else {
-                boolean[] commonLinesA = new boolean[fileALines.length];
-                boolean[] commonLinesB = new boolean[fileBLines.length];
-            
-                // Check common lines
-                for (int i = 0; i < fileALines.length; i++) {
-                    String currLineA = fileALines[i];
-                    for (int j = 0; j < fileBLines.length; j++) {
-                        String currLineB = fileBLines[j];
-                        if (currLineA.equals(currLineB)) {
-                            commonLinesA[i] = true;
-                            commonLinesB[j] = true;
-                        } else if (isSimple) {
-                            return "Files [" + fileNameA + " " + fileNameB + "] differ";
-                        }
-                    }
-                }
-            
-                StringBuilder output = new StringBuilder();
-                for (int i = 0; i < commonLinesA.length; i++) {
-                    if (!commonLinesA[i]) {
-                        if (isNoBlank && fileALines[i].isEmpty()) {
-                            continue;
-                        }
-                        output.append("< " + fileALines[i] + "\n");
-                    }
-                }
-                for (int j = 0; j < commonLinesB.length; j++) {
-                    if (!commonLinesB[j]) {
-                        if (isNoBlank && fileBLines[j].isEmpty()) {
-                            continue;
-                        }
-                        output.append("> " + fileBLines[j] + "\n");
-                    }
+        } else if (writeHunks(hunks, fileALines, fileBLines, isNoBlank, writer)) {
+            return true;
+        }
+        if (isShowSame) {
+            writer.write("Files [" + fileNameA + " " + fileNameB + "] are identical");
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Writes the removed lines of every hunk, followed by the added lines of every hunk, as the
+     * output of this application always listed all lines of the first file before the second.
+     *
+     * @return true if anything was written
+     */
+    private boolean writeHunks(List<LineDiff.Hunk> hunks, LineTable fileALines, LineTable fileBLines, Boolean isNoBlank,
+                               Writer writer) throws IOException {
+        boolean hasOutput = false;
+        for (LineDiff.Hunk hunk : hunks) {
+            hasOutput |= writeLines("< ", fileALines, hunk.getStartA(), hunk.getEndA(), isNoBlank, writer);
+        }
+        for (LineDiff.Hunk hunk : hunks) {
+            hasOutput |= writeLines("> ", fileBLines, hunk.getStartB(), hunk.getEndB(), isNoBlank, writer);
+        }
+        return hasOutput;
+    }
+    
+    private boolean writeLines(String prefix, LineTable lines, int start, int end, Boolean isNoBlank, Writer writer)
+      throws IOException {
+        boolean hasOutput = false;
+        for (int i = start; i < end; i++) {
+            if (isNoBlank && lines.isEmpty(i)) {
+                continue;
+            }
+            writer.write(prefix + lines.getLine(i) + "\n");
+            hasOutput = true;
+        }
+        return hasOutput;
+    }
+    
+    private boolean hasChanges(List<LineDiff.Hunk> hunks, LineTable fileALines, LineTable fileBLines, Boolean isNoBlank) {
+        for (LineDiff.Hunk hunk : hunks) {
+            if (!isNoBlank) {
+                return true;
+            }
+            for (int i = hunk.getStartA(); i < hunk.getEndA(); i++) {
+                if (!fileALines.isEmpty(i)) {
+                    return true;
                 }
-                if (output.length() == 0 && isShowSame) {
-                    return "Files [" + fileNameA + " " + fileNameB + "] are identical";
+            }
+            for (int j = hunk.getStartB(); j < hunk.getEndB(); j++) {
+                if (!fileBLines.isEmpty(j)) {
+                    return true;
                 }
-            
-                return output.toString();
             }
-        } catch (Exception e) {
-            throw new DiffException(e.getMessage());
         }
+        return false;
     }
     
     /**
@@ -177,8 +254,52 @@ public class DiffApplication implements DiffInterface {
      */
     @Override
     public String diffTwoDir(String folderA, String folderB, Boolean isShowSame, Boolean isNoBlank, Boolean isSimple) throws DiffException { //NOPMD
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        diffTwoDir(folderA, folderB, isShowSame, isNoBlank, isSimple, output);
+        return output.toString();
+    }
+    
+    /**
+     * Performs a diff of two directories and writes the result for each entry to stdout as soon
+     * as it is known.
+     *
+     * @param folderA    of path to first directory to diff
+     * @param folderB    of path to second directory to diff
+     * @param isShowSame Boolean option to print 'Files [file_names] identical' if the files are
+     *                   identical
+     * @param isNoBlank  Boolean option to ignore changes with blank lines
+     * @param isSimple   Boolean option to only print 'Files [file_names] differ' if the files are
+     *                   different
+     * @param stdout     OutputStream the difference is written to
+     * @throws DiffException
+     */
+    @Override
+    public void diffTwoDir(String folderA, String folderB, Boolean isShowSame, Boolean isNoBlank, Boolean isSimple, //NOPMD
+                           OutputStream stdout) throws DiffException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stdout));
+        writeDiffOfDirs(folderA, folderB, isShowSame, isNoBlank, isSimple, writer, ShellConfig.getDiffThreads());
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new DiffException(ERR_WRITE_STREAM);
+        }
+    }
+    
+    /**
+     * Writes the diff of two directories to the writer, entry by entry: first the entries of the
+     * first directory, in the order it lists them, then those only in the second.
+     * <p>
+     * Entries in both directories are compared on up to the given number of worker threads, at
+     * most a fixed window of entries ahead of the one being written, and their results are written
+     * in order.
+     *
+     * @return true if anything was written
+     * @throws DiffException
+     */
+    private boolean writeDiffOfDirs(String folderA, String folderB, Boolean isShowSame, Boolean isNoBlank, //NOPMD
+                                    Boolean isSimple, Writer writer, int threads) throws DiffException {
+        ExecutorService executor = null;
         try {
-            StringBuilder stringBuilder = new StringBuilder();
             checkExists(folderA);
             checkExists(folderB);
     
@@ -186,50 +307,116 @@ public class DiffApplication implements DiffInterface {
             File dirB = IOUtils.resolveFilePath(folderB).toFile();
             String[] dirAFiles = dirA.list();
             String[] dirBFiles = dirB.list();
-            List<String> listA = Arrays.asList(dirAFiles);
-            List<String> listB = Arrays.asList(dirBFiles);
+            Set<String> setA = new HashSet<>(Arrays.asList(dirAFiles));
+            Set<String> setB = new HashSet<>(Arrays.asList(dirBFiles));
     
             String pathA = folderA + File.separator;
             String pathB = folderB + File.separator;
+    
+            List<Future<String>> results = new ArrayList<>(dirAFiles.length);
+            int workers = Math.min(threads, dirAFiles.length);
+            if (workers > 1) {
+                executor = Executors.newFixedThreadPool(workers, runnable -> {
+                    Thread thread = new Thread(runnable, "diff-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            int window = workers * 2;
             boolean hasLines = false;
     
             for (int i = 0; i < dirAFiles.length; i++) {
+                while (executor != null && results.size() < dirAFiles.length && results.size() <= i + window) {
+                    String name = dirAFiles[results.size()];
+                    results.add(setB.contains(name) ? executor.submit(ExecutionContext.wrap(() ->
+                      diffOfEntry(pathA + name, pathB + name, isShowSame, isNoBlank, isSimple))) : null);
+                }
                 String message;
-                if (listB.contains(dirAFiles[i])) {
-                    String filePathA = pathA + dirAFiles[i];
-                    String filePathB = pathB + dirAFiles[i];
-    
-                    message = diffTwoFiles(filePathA, filePathB, isShowSame, isNoBlank, isSimple);
-                    if (!message.isEmpty()) {
-                        if (hasLines) {
-                            stringBuilder.append(STRING_NEWLINE);
-                        }
-                        hasLines = true;
-                    }
-                    stringBuilder.append(message);
+                if (!setB.contains(dirAFiles[i])) {
+                    message = "Only in " + folderA + ": " + dirAFiles[i];
+                } else if (executor == null) {
+                    message = diffOfEntry(pathA + dirAFiles[i], pathB + dirAFiles[i], isShowSame, isNoBlank,
+                      isSimple);
                 } else {
+                    message = awaitResult(results.get(i));
+                    results.set(i, null);
+                }
+                if (!message.isEmpty()) {
                     if (hasLines) {
-                        stringBuilder.append(STRING_NEWLINE);
+                        writer.write(STRING_NEWLINE);
                     }
-                    stringBuilder.append("Only in " + folderA + ": " + dirAFiles[i]);
                     hasLines = true;
+                    writer.write(message);
                 }
+                writer.flush();
             }
     
-            for (int i = 0; i < dirBFiles.length; i++) {
-                String message;
-                if (!listA.contains(dirBFiles[i])) {
+            for (String name : dirBFiles) {
+                if (!setA.contains(name)) {
                     if (hasLines) {
-                        stringBuilder.append(STRING_NEWLINE);
+                        writer.write(STRING_NEWLINE);
                     }
-                    message = "Only in " + folderB + ": " + dirBFiles[i];
-                    stringBuilder.append(message);
+                    writer.write("Only in " + folderB + ": " + name);
                     hasLines = true;
                 }
             }
-            return new String(stringBuilder);
+            return hasLines;
         } catch (Exception e) {
             throw new DiffException(e.getMessage());
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+    
+    /**
+     * Compares an entry found in both directories. Regular files of the same size whose contents
+     * hash the same are reported identical without being read line by line; anything else goes
+     * through the line diff. Subdirectories are compared on the calling thread.
+     *
+     * @return the diff of the entry, empty if there is nothing to report
+     */
+    private String diffOfEntry(String filePathA, String filePathB, Boolean isShowSame, Boolean isNoBlank,
+                               Boolean isSimple) throws Exception {
+        StringWriter result = new StringWriter();
+        Path pathA = IOUtils.resolveFilePath(filePathA);
+        Path pathB = IOUtils.resolveFilePath(filePathB);
+        if (Files.isDirectory(pathA) && Files.isDirectory(pathB)) {
+            writeDiffOfDirs(filePathA, filePathB, isShowSame, isNoBlank, isSimple, result, 1);
+        } else if (Files.isRegularFile(pathA) && Files.isRegularFile(pathB) && Files.isReadable(pathA)
+          && Files.isReadable(pathB) && Files.size(pathA) == Files.size(pathB)
+          && Arrays.equals(hashContent(pathA), hashContent(pathB))) {
+            if (isShowSame) {
+                result.write("Files [" + filePathA + " " + filePathB + "] are identical");
+            }
+        } else {
+            writeDiffOfFiles(filePathA, filePathB, isShowSame, isNoBlank, isSimple, result);
+        }
+        return result.toString();
+    }
+    
+    private static byte[] hashContent(Path path) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(path)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+    
+    private String awaitResult(Future<String> result) throws Exception {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
         }
     }
     
@@ -246,11 +433,13 @@ public class DiffApplication implements DiffInterface {
      */
     @Override
     public String diffFileAndStdin(String fileName, InputStream stdin, Boolean isShowSame, Boolean isNoBlank, Boolean isSimple) throws DiffException {
+        runStdin.set(stdin);
         try {
-            inputStream = stdin;
             return diffTwoFiles(fileName, "-", isShowSame, isNoBlank, isSimple);
         } catch (Exception e) {
             throw new DiffException(e.getMessage());
+        } finally {
+            runStdin.remove();
         }
     }
     
@@ -263,7 +452,6 @@ public class DiffApplication implements DiffInterface {
         Boolean isShowSame;
         Boolean isNoBlank;
         Boolean isSimple;
-        inputStream = stdin;
         
         DiffArgsParser parser = new DiffArgsParser();
         try {
@@ -272,6 +460,7 @@ public class DiffApplication implements DiffInterface {
             throw new DiffException(ERR_INVALID_FLAG);
         }
         
+        runStdin.set(stdin);
         try {
             isShowSame = parser.isShowSame();
             isNoBlank = parser.isNoBlank();
@@ -289,13 +478,21 @@ public class DiffApplication implements DiffInterface {
             String source = files[0];
             String destination = files[1];
             
-            String output = diffTwoFiles(source, destination, isShowSame, isNoBlank, isSimple);
-            if (output.length() != 0) {
-                output += STRING_NEWLINE;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(stdout));
+            boolean hasOutput;
+            try {
+                hasOutput = writeDiffOfFiles(source, destination, isShowSame, isNoBlank, isSimple, writer);
+            } catch (Exception e) {
+                throw new DiffException(e.getMessage());
+            }
+            if (hasOutput) {
+                writer.write(STRING_NEWLINE);
             }
-            stdout.write(output.getBytes());
+            writer.flush();
         } catch (Exception e) {
             throw (DiffException) new DiffException(e.getMessage()).initCause(e);
+        } finally {
+            runStdin.remove();
         }
     }
 }
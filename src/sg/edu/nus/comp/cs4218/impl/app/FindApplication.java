@@ -3,14 +3,28 @@ package sg.edu.nus.comp.cs4218.impl.app;
 import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.app.FindInterface;
 import sg.edu.nus.comp.cs4218.exception.FindException;
+import sg.edu.nus.comp.cs4218.impl.util.GlobMatcher;
+import sg.edu.nus.comp.cs4218.impl.util.ShellConfig;
 
-import java.io.File;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.StringJoiner;
-import java.util.regex.Matcher;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_FILE_NOT_FOUND;
@@ -48,17 +62,13 @@ public class FindApplication implements FindInterface {
             String fileName = getArguments(args, folderNames);
             String[] folderNamesArray = new String[folderNames.size()];
             folderNamesArray = folderNames.toArray(folderNamesArray);
-            String results = findFolderContent(fileName, folderNamesArray);
-            String trimmedResults = results.trim();
-            if (!trimmedResults.isEmpty()) {
-                results += STRING_NEWLINE;
-            }
         
             if (stdout == null) {
                 throw new Exception("output stream is null");
-            } else {
-                stdout.write(results.getBytes());
             }
+            Writer writer = new BufferedWriter(new OutputStreamWriter(stdout));
+            findInFolders(GlobMatcher.compile(fileName)::matches, writer, folderNamesArray);
+            writer.flush();
         
         } catch (FindException findException) {
             throw findException;
@@ -71,7 +81,7 @@ public class FindApplication implements FindInterface {
      * Get folder names and filename supplied by user.
      *
      * @param args supplied by user.
-     * @return a String of the regex of filename if specified by user, else returns an empty string
+     * @return a String of the glob of filename if specified by user, else returns an empty string
      */
     private String getArguments(String[] args, ArrayList<String> folderNames) throws Exception {
         String fileName = "";
@@ -92,7 +102,7 @@ public class FindApplication implements FindInterface {
         
             if (isFileName) {
                 if (fileName.isEmpty()) {
-                    fileName = convertFileName(s);
+                    fileName = s;
                 } else {
                     throw new FindException(MULTIPLE_FILES);
                 }
@@ -127,21 +137,6 @@ public class FindApplication implements FindInterface {
         return convertedPath;
     }
     
-    /**
-     * Converts file name provided by user into regular expression format.
-     *
-     * @param fileName supplied by user
-     * @return a String the fileName in regular expression format
-     */
-    private String convertFileName(String fileName) {
-        String convertedFileName = fileName;
-        convertedFileName = convertedFileName.replaceAll("\\.", "\\\\.");
-        convertedFileName = convertedFileName.replaceAll("\\*", ".*");
-        convertedFileName = "^" + convertedFileName + "$";
-    
-        return convertedFileName;
-    }
-    
     @Override
     public String findFolderContent(String fileName, String... folderName) throws Exception {
         if (folderName == null || folderName.length == 0) {
@@ -151,70 +146,57 @@ public class FindApplication implements FindInterface {
             throw new FindException(NO_FILE);
         }
         
-        String results = "";
-        results = findInFolders(fileName, folderName);
+        Pattern filePattern = Pattern.compile(fileName);
+        StringWriter results = new StringWriter();
+        findInFolders(name -> filePattern.matcher(name).find(), results, folderName);
+        String output = results.toString();
         
-        return results;
+        return output.isEmpty() ? output : output.substring(0, output.length() - STRING_NEWLINE.length());
     }
     
     /**
-     * Finds files/folders specified by the user. Folders will be displayed first before files, if in the same
-     * nesting level; If folder is not empty, it will be recursively searched and its contents will be displayed
-     * before other files in the same nesting level as the folder.
-     * Returns all files and folders that matches the fileName specified.
+     * Finds files/folders specified by the user and writes each of them on its own line.
+     * <p>
+     * Every folder is listed once and its subfolders are searched by tasks forked on a pool of
+     * {@link ShellConfig#getFindThreads()} threads. In sorted mode ({@link ShellConfig#isFindSorted()}),
+     * folders will be displayed first before files, if in the same nesting level; If folder is not
+     * empty, its contents will be displayed before other files in the same nesting level as the
+     * folder. This needs the results of a folder to be held until all its subfolders are searched.
+     * Otherwise each match is written as soon as it is found, in no particular order.
      *
-     * @param fileName   String of a regular expression of the file name
+     * @param nameFilter accepts the file names to find
+     * @param writer     Writer the matched file/folder names are written to
      * @param folderName Array of String of given folder/folders' name
-     * @return the string listing the names of the matched file/folder in the folders specified
      * @throws Exception
      */
-    private String findInFolders(String fileName, String... folderName) throws Exception {
-        ArrayList<String> listOfFileNames;
-        ArrayList<String> listOfFolderNames;
-        String result = "";
-        String tempResult;
-        StringJoiner stringJoiner = new StringJoiner(STRING_NEWLINE);
-    
-        Pattern filePattern = Pattern.compile(fileName);
-    
-        for (String f : folderName) {
-            String path = convertToAbsolutePath(f);
-        
-            File folder = new File(path);
-        
-            if (!folder.exists() || !folder.isDirectory()) {
-                stringJoiner.add("find: " + f + ": " + ERR_FILE_NOT_FOUND);
-                continue;
-            }
-            if (!folder.canRead()) {
-                throw new FindException(PERMISSION_DENIED);
-            }
-        
-            if (f.lastIndexOf(CHAR_FILE_SEP) != -1) {
-                String fName = f.substring(f.lastIndexOf(CHAR_FILE_SEP) + 1);
-                Matcher matcher = filePattern.matcher(fName);
-                if (matcher.find()) {
-                    stringJoiner.add(f);
+    private void findInFolders(Predicate<String> nameFilter, Writer writer, String... folderName) throws Exception {
+        boolean isSorted = ShellConfig.isFindSorted();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, ShellConfig.getFindThreads()));
+        try {
+            for (String f : folderName) {
+                Path folder = Paths.get(convertToAbsolutePath(f));
+                if (!Files.isDirectory(folder)) {
+                    writer.write("find: " + f + ": " + ERR_FILE_NOT_FOUND + STRING_NEWLINE);
+                    continue;
+                }
+                List<String> results = pool.invoke(new FolderSearch(folder, f, nameFilter, isSorted ? null : writer));
+                if (isSorted) {
+                    for (String result : results) {
+                        writer.write(result + STRING_NEWLINE);
+                    }
                 }
             }
-        
-            listOfFileNames = getFilesFrom(folder);
-            listOfFolderNames = getFoldersFrom(folder);
-        
-            String[] folderNamesArr = updatePath(listOfFolderNames, f);
-            tempResult = findInFolders(fileName, folderNamesArr);
-            if (!tempResult.isEmpty()) {
-                stringJoiner.add(tempResult);
-            }
-        
-            tempResult = formatResult(filePattern, listOfFileNames, f);
-            if (!tempResult.isEmpty()) {
-                stringJoiner.add(tempResult);
+        } catch (RuntimeException e) {
+            // Rethrow what a task failed with, which the pool may have wrapped more than once
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (!(cause instanceof RuntimeException) && cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
             }
+            throw e;
+        } finally {
+            pool.shutdownNow();
         }
-        result = stringJoiner.toString();
-    
-        return result;
     }
     
     /**
@@ -225,7 +207,7 @@ public class FindApplication implements FindInterface {
      */
     private String convertToAbsolutePath(String folderName) {
         String home = System.getProperty("user.home").trim();
-        String currentDir = Environment.currentDirectory.trim();
+        String currentDir = Environment.getCurrentDirectory().trim();
         String convertedPath = convertPathToSystemPath(folderName);
     
         String newPath;
@@ -238,78 +220,97 @@ public class FindApplication implements FindInterface {
     }
     
     /**
-     * Sorts the listOfFileNames and listOfFolder Names in alphabetical order and format the files/folders
-     * into the required format.
-     *
-     * @param filePattern     regex pattern of specified file, if isFindingFile is true
-     * @param listOfFileNames unsorted list of file names
-     * @param folderName      subpath from pwd
-     * @return string of all or specified file name(s) concatenated and delimited by a new line character
+     * Searches one folder and, through a subtask for each of its subfolders, everything below it.
      */
-    private String formatResult(Pattern filePattern, ArrayList<String> listOfFileNames, String folderName) {
-        StringJoiner stringJoiner = new StringJoiner(STRING_NEWLINE);
-    
-        Collections.sort(listOfFileNames);
-    
-        for (String file : listOfFileNames) {
-            Matcher matcher = filePattern.matcher(file);
-            if (matcher.find()) {
-                stringJoiner.add(folderName + CHAR_FILE_SEP + file);
-            }
+    private static final class FolderSearch extends RecursiveTask<List<String>> {
+        private static final long serialVersionUID = 4218L;
+        
+        private final Path folder;
+        private final String folderName;
+        private final transient Predicate<String> nameFilter;
+        private final transient Writer writer;
+        
+        /**
+         * @param folder      the folder to search
+         * @param folderName  subpath from pwd, as displayed
+         * @param nameFilter  accepts the file names to find
+         * @param writer      where matches are written as they are found, or null to return them in
+         *                    sorted order instead
+         */
+        FolderSearch(Path folder, String folderName, Predicate<String> nameFilter, Writer writer) {
+            super();
+            this.folder = folder;
+            this.folderName = folderName;
+            this.nameFilter = nameFilter;
+            this.writer = writer;
         }
-        return stringJoiner.toString();
-    }
-    
-    /**
-     * Pre-condition: currFolder exists
-     *
-     * @param currFolder the folder to list all files
-     * @return an ArrayList<String> containing all the file names
-     */
-    private ArrayList<String> getFilesFrom(File currFolder) {
-        File[] listOfFiles = currFolder.listFiles();
-        ArrayList<String> listOfFileNames = new ArrayList<String>();
-    
-        for (int i = 0; i < listOfFiles.length; i++) {
-            if (listOfFiles[i].isFile()) {
-                listOfFileNames.add(listOfFiles[i].getName().trim());
+        
+        @Override
+        protected List<String> compute() {
+            try {
+                return search();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
             }
         }
-        Collections.sort(listOfFileNames);
-        return listOfFileNames;
-    }
-    
-    /**
-     * Pre-condition: currFolder exists
-     *
-     * @param currFolder the folder to list all folders
-     * @return an ArrayList<String> containing all the folder names
-     */
-    private ArrayList<String> getFoldersFrom(File currFolder) {
-        File[] listOfFiles = currFolder.listFiles();
-        ArrayList<String> listOfFolderNames = new ArrayList<String>();
-    
-        for (int i = 0; i < listOfFiles.length; i++) {
-            if (listOfFiles[i].isDirectory()) {
-                listOfFolderNames.add(listOfFiles[i].getName().trim());
+        
+        private List<String> search() throws Exception {
+            if (!Files.isReadable(folder)) {
+                throw new FindException(PERMISSION_DENIED);
             }
+            List<String> results = new ArrayList<>();
+            if (folderName.lastIndexOf(CHAR_FILE_SEP) != -1) {
+                String fName = folderName.substring(folderName.lastIndexOf(CHAR_FILE_SEP) + 1);
+                if (nameFilter.test(fName)) {
+                    results.add(folderName);
+                }
+            }
+            
+            List<FolderSearch> subfolders = new ArrayList<>();
+            List<String> files = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(folder)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    } catch (IOException e) {
+                        continue; // e.g. a broken link, which is neither a file nor a folder
+                    }
+                    String name = entry.getFileName().toString().trim();
+                    if (attributes.isDirectory()) {
+                        subfolders.add(new FolderSearch(entry, folderName + CHAR_FILE_SEP + name, nameFilter,
+                          writer));
+                    } else if (attributes.isRegularFile() && nameFilter.test(name)) {
+                        files.add(folderName + CHAR_FILE_SEP + name);
+                    }
+                }
+            }
+            
+            if (writer != null) {
+                results.addAll(files);
+                emit(results);
+                invokeAll(subfolders);
+                return Collections.emptyList();
+            }
+            subfolders.sort(Comparator.comparing(search -> search.folderName));
+            Collections.sort(files);
+            invokeAll(subfolders);
+            for (FolderSearch subfolder : subfolders) {
+                results.addAll(subfolder.join());
+            }
+            results.addAll(files);
+            return results;
         }
-        Collections.sort(listOfFolderNames);
-        return listOfFolderNames;
-    }
-    
-    /**
-     * Update folder names to include entire subpath from pwd
-     *
-     * @param listOfFolderNames folder names to be updated
-     * @param path              subpath from pwd
-     * @return String array containing updated paths
-     */
-    private String[] updatePath(ArrayList<String> listOfFolderNames, String path) {
-        String[] folderNamesArr = new String[listOfFolderNames.size()];
-        for (int i = 0; i < folderNamesArr.length; i++) {
-            folderNamesArr[i] = path + CHAR_FILE_SEP + listOfFolderNames.get(i);
+        
+        private void emit(List<String> results) throws IOException {
+            if (results.isEmpty()) {
+                return;
+            }
+            synchronized (writer) {
+                for (String result : results) {
+                    writer.write(result + STRING_NEWLINE);
+                }
+            }
         }
-        return folderNamesArr;
     }
 }
@@ -1,19 +1,35 @@
 package sg.edu.nus.comp.cs4218.impl.app;
 
 import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ExecutionContext;
 import sg.edu.nus.comp.cs4218.app.GrepInterface;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.GrepException;
+import sg.edu.nus.comp.cs4218.impl.util.ByteLineMatcher;
+import sg.edu.nus.comp.cs4218.impl.util.ShellConfig;
+import sg.edu.nus.comp.cs4218.impl.util.SpillWriter;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.StringJoiner;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -34,103 +50,227 @@ public class GrepApplication implements GrepInterface {
     private static final char COUNT_IDENT = 'c';
     private static final int CASE_INSEN_IDX = 0;
     private static final int COUNT_INDEX = 1;
+    private static final int MAX_BUFFERED_CHARS = 64 * 1024;
     
     @Override
     public String grepFromFiles(String pattern, Boolean isCaseInsensitive, Boolean isCountLines,
                                 String... fileNames) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        grepFromFiles(pattern, isCaseInsensitive, isCountLines, output, fileNames);
+        return output.toString();
+    }
+    
+    @Override
+    public void grepFromFiles(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, OutputStream stdout,
+                              String... fileNames) throws Exception {
         if (fileNames == null || pattern == null || isCaseInsensitive == null || isCountLines == null) {
             throw new GrepException(NULL_POINTER);
         }
         
-        StringJoiner lineResults = new StringJoiner(STRING_NEWLINE);
-        StringJoiner countResults = new StringJoiner(STRING_NEWLINE);
-        
-        grepResultsFromFiles(pattern, isCaseInsensitive, lineResults, countResults, fileNames);
-        
-        String results = "";
-        if (isCountLines) {
-            results = countResults.toString() + STRING_NEWLINE;
-        } else {
-            if (!lineResults.toString().isEmpty()) {
-                results = lineResults.toString() + STRING_NEWLINE;
-            }
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(stdout));
+        grepResultsFromFiles(pattern, isCaseInsensitive, isCountLines, writer, fileNames);
+        if (isCountLines && fileNames.length == 0) {
+            writer.write(STRING_NEWLINE);
         }
-        return results;
+        writer.flush();
     }
     
     /**
-     * Extract the lines and count number of lines for grep from files and insert them into
-     * lineResults and countResults respectively.
+     * Writes the matching lines, or the count of matching lines, of each file to the writer.
+     * Errors for files which cannot be read are written in place of their results.
+     * <p>
+     * The pattern is compiled once for all files. Where the pattern requires a literal, files are
+     * searched for it as raw bytes and only candidate lines are decoded (see
+     * {@link ByteLineMatcher}). If several files are given and more than one
+     * grep thread is configured, files are scanned concurrently and their results written in
+     * argument order.
      *
      * @param pattern           supplied by user
      * @param isCaseInsensitive supplied by user
-     * @param lineResults       a StringJoiner of the grep line results
-     * @param countResults      a StringJoiner of the grep line count results
+     * @param isCountLines      supplied by user
+     * @param writer            the writer results are written to, one per line
      * @param fileNames         a String Array of file names supplied by user
      */
-    @SuppressWarnings("PMD.ExcessiveMethodLength")
-    // We considered there is no logical or really advantageous way to break the method down
-    private void grepResultsFromFiles(String pattern, Boolean isCaseInsensitive, StringJoiner lineResults,
-                                      StringJoiner countResults, String... fileNames) throws Exception {
-        int count;
+    private void grepResultsFromFiles(String pattern, Boolean isCaseInsensitive, Boolean isCountLines,
+                                      Writer writer, String... fileNames) throws Exception {
+        Pattern compiledPattern = null;
+        PatternSyntaxException patternError = null;
+        try {
+            compiledPattern = Pattern.compile(pattern, isCaseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+        } catch (PatternSyntaxException pse) {
+            // Only reported once a readable file is reached, as errors for other files come first
+            patternError = pse;
+        }
+        ByteLineMatcher byteMatcher = compiledPattern == null ? null : ByteLineMatcher.compile(compiledPattern);
+        
+        int threads = Math.min(ShellConfig.getGrepThreads(), fileNames.length);
+        if (threads > 1) {
+            grepFilesInParallel(compiledPattern, byteMatcher, patternError, isCountLines, writer, threads, fileNames);
+            return;
+        }
         boolean isSingleFile = (fileNames.length == 1);
         for (String f : fileNames) {
-            BufferedReader reader = null;
-            try {
-                String path = convertToAbsolutePath(f);
-                File file = new File(path);
-                if (!file.exists()) {
-                    lineResults.add(f + ": " + ERR_FILE_NOT_FOUND);
-                    countResults.add(f + ": " + ERR_FILE_NOT_FOUND);
-                    continue;
+            grepFile(f, compiledPattern, byteMatcher, patternError, isSingleFile, isCountLines, writer);
+        }
+    }
+    
+    /**
+     * Scans the files on this thread and a pool of worker threads. The file being written is
+     * scanned straight to the writer, here unless a worker already started on it, while workers
+     * scan ahead within a fixed window of files starting at it. Their results are held in memory
+     * up to a fixed size each and in temporary files beyond that, so that memory stays bounded
+     * however many and however large the files are.
+     */
+    private void grepFilesInParallel(Pattern compiledPattern, ByteLineMatcher byteMatcher,
+                                     PatternSyntaxException patternError, Boolean isCountLines, Writer writer,
+                                     int threads, String... fileNames)
+      throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "grep-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int window = threads * 2;
+        AtomicIntegerArray isStarted = new AtomicIntegerArray(fileNames.length);
+        List<Future<SpillWriter>> results = new ArrayList<>(fileNames.length);
+        results.add(null);
+        try {
+            for (int i = 0; i < fileNames.length; i++) {
+                while (results.size() < fileNames.length && results.size() < i + window) {
+                    int index = results.size();
+                    results.add(executor.submit(ExecutionContext.wrap(() -> {
+                        if (!isStarted.compareAndSet(index, 0, 1)) {
+                            return null;
+                        }
+                        SpillWriter result = new SpillWriter(MAX_BUFFERED_CHARS);
+                        try {
+                            grepFile(fileNames[index], compiledPattern, byteMatcher, patternError, false,
+                              isCountLines, result);
+                        } catch (Exception e) {
+                            result.close();
+                            throw e;
+                        }
+                        return result;
+                    })));
                 }
-                if (file.isDirectory()) { // ignore if it's a directory
-                    lineResults.add(f + ": " + IS_DIRECTORY);
-                    countResults.add(f + ": " + IS_DIRECTORY);
-                    continue;
+                Future<SpillWriter> result = results.set(i, null);
+                if (isStarted.compareAndSet(i, 0, 1)) {
+                    grepFile(fileNames[i], compiledPattern, byteMatcher, patternError, false, isCountLines, writer);
+                } else {
+                    awaitResult(result).writeTo(writer);
                 }
-                if (!file.canRead()) {
-                    lineResults.add(f + ": " + ERR_NO_PERM);
-                    countResults.add(f + ": " + ERR_NO_PERM);
-                    continue;
+            }
+        } finally {
+            executor.shutdownNow();
+            discardResults(executor, results);
+        }
+    }
+    
+    /**
+     * Deletes whatever the results not written spilled to, once the workers have stopped. Files
+     * no worker started on are never scanned.
+     */
+    private void discardResults(ExecutorService executor, List<Future<SpillWriter>> results) {
+        if (results.stream().allMatch(Objects::isNull)) {
+            return;
+        }
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (Future<SpillWriter> result : results) {
+            if (result == null || !result.isDone()) {
+                continue;
+            }
+            try {
+                SpillWriter writer = awaitResult(result);
+                if (writer != null) {
+                    writer.close();
                 }
-                
-                reader = new BufferedReader(new FileReader(path));
+            } catch (Exception e) { //NOPMD
+                // Already reported, or a worker interrupted while the results are discarded
+            }
+        }
+    }
+    
+    private <T> T awaitResult(Future<T> result) throws Exception {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+    
+    /**
+     * Writes the matching lines, or the count of matching lines, of a single file to the writer.
+     *
+     * @param fileName        supplied by user
+     * @param compiledPattern pattern to match, or null if it is invalid
+     * @param byteMatcher     byte-level matcher for the pattern, or null if it has none
+     * @param patternError    error raised when compiling an invalid pattern
+     * @param isSingleFile    true if lines should not be prefixed by the file name
+     * @param isCountLines    supplied by user
+     * @param writer          the writer results are written to, one per line
+     */
+    private void grepFile(String fileName, Pattern compiledPattern, ByteLineMatcher byteMatcher, //NOPMD
+                          PatternSyntaxException patternError, boolean isSingleFile, Boolean isCountLines,
+                          Writer writer) throws Exception {
+        String path = convertToAbsolutePath(fileName);
+        File file = new File(path);
+        if (!file.exists()) {
+            writeLine(writer, fileName + ": " + ERR_FILE_NOT_FOUND);
+            return;
+        }
+        if (file.isDirectory()) { // ignore if it's a directory
+            writeLine(writer, fileName + ": " + IS_DIRECTORY);
+            return;
+        }
+        if (!file.canRead()) {
+            writeLine(writer, fileName + ": " + ERR_NO_PERM);
+            return;
+        }
+        if (patternError != null) {
+            throw (GrepException) new GrepException(ERR_INVALID_REGEX).initCause(patternError);
+        }
+        
+        int count = 0;
+        if (byteMatcher == null) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
                 String line;
-                Pattern compiledPattern;
-                if (isCaseInsensitive) {
-                    compiledPattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-                } else {
-                    compiledPattern = Pattern.compile(pattern);
-                }
-                count = 0;
                 while ((line = reader.readLine()) != null) {
                     Matcher matcher = compiledPattern.matcher(line);
                     if (matcher.find()) { // match
-                        if (isSingleFile) {
-                            lineResults.add(line);
-                        } else {
-                            lineResults.add(f + ": " + line);
+                        if (!isCountLines) {
+                            writeLine(writer, isSingleFile ? line : fileName + ": " + line);
                         }
                         count++;
                     }
                 }
-                if (isSingleFile) {
-                    countResults.add("" + count);
-                } else {
-                    countResults.add(f + ": " + count);
-                }
-                reader.close();
-            } catch (PatternSyntaxException pse) {
-                throw (GrepException) new GrepException(ERR_INVALID_REGEX).initCause(pse);
-            } finally {
-                if (reader != null) {
-                    reader.close();
-                }
             }
+        } else if (isCountLines) {
+            count = byteMatcher.scanFile(file.toPath(), null);
+        } else {
+            byteMatcher.scanFile(file.toPath(), line -> writeLine(writer, isSingleFile ? line : fileName + ": " + line));
+        }
+        if (isCountLines) {
+            writeLine(writer, isSingleFile ? String.valueOf(count) : fileName + ": " + count);
         }
     }
     
+    /**
+     * Writes one result followed by a newline.
+     */
+    private void writeLine(Writer writer, String line) throws IOException {
+        writer.write(line);
+        writer.write(STRING_NEWLINE);
+    }
+    
     /**
      * Converts filename to absolute path, if initially was relative path
      *
@@ -139,7 +279,7 @@ public class GrepApplication implements GrepInterface {
      */
     private String convertToAbsolutePath(String fileName) {
         String home = System.getProperty("user.home").trim();
-        String currentDir = Environment.currentDirectory.trim();
+        String currentDir = Environment.getCurrentDirectory().trim();
         String convertedPath = convertPathToSystemPath(fileName);
     
         String newPath;
@@ -173,8 +313,16 @@ public class GrepApplication implements GrepInterface {
     @Override
     public String grepFromStdin(String pattern, Boolean isCaseInsensitive, Boolean isCountLines,
                                 InputStream stdin) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        grepFromStdin(pattern, isCaseInsensitive, isCountLines, stdin, output);
+        return output.toString();
+    }
+    
+    @Override
+    public void grepFromStdin(String pattern, Boolean isCaseInsensitive, Boolean isCountLines,
+                              InputStream stdin, OutputStream stdout) throws Exception {
         int count = 0;
-        StringJoiner stringJoiner = new StringJoiner(STRING_NEWLINE);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(stdout));
         
         try {
             BufferedReader reader = new BufferedReader(new InputStreamReader(stdin));//NOPMD
@@ -188,7 +336,9 @@ public class GrepApplication implements GrepInterface {
             while ((line = reader.readLine()) != null) {
                 Matcher matcher = compiledPattern.matcher(line);
                 if (matcher.find()) { // match
-                    stringJoiner.add(line);
+                    if (!isCountLines) {
+                        writeLine(writer, line);
+                    }
                     count++;
                 }
             }
@@ -199,15 +349,10 @@ public class GrepApplication implements GrepInterface {
             throw (GrepException) new GrepException(ERR_FILE_NOT_FOUND).initCause(npe);
         }
         
-        String results = "";
         if (isCountLines) {
-            results = count + STRING_NEWLINE;
-        } else {
-            if (!stringJoiner.toString().isEmpty()) {
-                results = stringJoiner.toString() + STRING_NEWLINE;
-            }
+            writeLine(writer, String.valueOf(count));
         }
-        return results;
+        writer.flush();
     }
     
     @Override
@@ -216,7 +361,6 @@ public class GrepApplication implements GrepInterface {
             boolean[] grepFlags = new boolean[NUM_ARGUMENTS];
             ArrayList<String> inputFiles = new ArrayList<>();
             String pattern = getGrepArguments(args, grepFlags, inputFiles);
-            String result = "";
     
             if (stdin == null && inputFiles.isEmpty()) {
                 throw new Exception(ERR_NO_INPUT);
@@ -229,15 +373,13 @@ public class GrepApplication implements GrepInterface {
                 throw new Exception(EMPTY_PATTERN);
             } else {
                 if (inputFiles.isEmpty()) {
-                    result = grepFromStdin(pattern, grepFlags[CASE_INSEN_IDX], grepFlags[COUNT_INDEX], stdin);
+                    grepFromStdin(pattern, grepFlags[CASE_INSEN_IDX], grepFlags[COUNT_INDEX], stdin, stdout);
                 } else {
                     String[] inputFilesArray = new String[inputFiles.size()];
                     inputFilesArray = inputFiles.toArray(inputFilesArray);
-                    result = grepFromFiles(pattern, grepFlags[CASE_INSEN_IDX], grepFlags[COUNT_INDEX], inputFilesArray);
-    
+                    grepFromFiles(pattern, grepFlags[CASE_INSEN_IDX], grepFlags[COUNT_INDEX], stdout, inputFilesArray);
                 }
             }
-            stdout.write(result.getBytes());
         } catch (GrepException grepException) {
             throw grepException;
         } catch (Exception e) {
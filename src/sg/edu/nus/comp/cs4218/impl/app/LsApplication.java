@@ -39,7 +39,7 @@ public class LsApplication implements LsInterface {
         List<Path> paths;
         if (folderName.length == 0 && isRecursive) {
             String[] directories = new String[1];
-            directories[0] = Environment.currentDirectory;
+            directories[0] = Environment.getCurrentDirectory();
             paths = resolvePaths(directories);
         } else {
             paths = resolvePaths(folderName);
@@ -88,7 +88,7 @@ public class LsApplication implements LsInterface {
      * @return
      */
     private String listCwdContent(Boolean isFoldersOnly) throws LsException {
-        String cwd = Environment.currentDirectory;
+        String cwd = Environment.getCurrentDirectory();
         try {
             return formatContents(getContents(Paths.get(cwd), isFoldersOnly));
         } catch (InvalidDirectoryException e) {
@@ -237,7 +237,7 @@ public class LsApplication implements LsInterface {
             return Paths.get(directory).normalize();
         }
     
-        return Paths.get(Environment.currentDirectory, directory).normalize();
+        return Paths.get(Environment.getCurrentDirectory(), directory).normalize();
     }
     
     /**
@@ -247,7 +247,7 @@ public class LsApplication implements LsInterface {
      * @return
      */
     private Path getRelativeToCwd(Path path) {
-        return Paths.get(Environment.currentDirectory).relativize(path);
+        return Paths.get(Environment.getCurrentDirectory()).relativize(path);
     }
     
     private static class InvalidDirectoryException extends Exception {
@@ -23,8 +23,6 @@ import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.*;
 @SuppressWarnings("PMD.PreserveStackTrace")
 public class MvApplication implements MvInterface {
     
-    private Boolean shouldOverwrite = false;
-    
     @Override
     public String mvSrcFileToDestFile(String srcFile, String destFile) throws Exception {
         Path source = IOUtils.resolveFilePath(srcFile);
@@ -35,7 +33,16 @@ public class MvApplication implements MvInterface {
     
     @Override
     public String mvFilesToFolder(String destFolder, String... fileName) throws Exception {
-        
+        return mvFilesToFolder(false, destFolder, fileName);
+    }
+    
+    /**
+     * Moves files into a folder, or with a single file and overwriting allowed, onto a file.
+     *
+     * @param shouldOverwrite Boolean option to replace existing files
+     */
+    private String mvFilesToFolder(boolean shouldOverwrite, String destFolder, String... fileName) //NOPMD
+      throws Exception {
         boolean hasErrorOccurred = false;
         
         for (String srcPath : fileName) {
@@ -114,7 +121,6 @@ public class MvApplication implements MvInterface {
             throw new MvException(e.getMessage());
         }
         
-        shouldOverwrite = parser.shouldOverwrite();
         List<String> sourceOperands = parser.getSourceOperands();
         String targetOperand = parser.getTargetOperand();
         
@@ -126,7 +132,7 @@ public class MvApplication implements MvInterface {
         
         try {
             if (Files.exists(IOUtils.resolveFilePath(targetOperand))) {
-                mvFilesToFolder(targetOperand, sourceOperands.toArray(new String[0]));
+                mvFilesToFolder(parser.shouldOverwrite(), targetOperand, sourceOperands.toArray(new String[0]));
             } else {
                 if (sourceOperands.size() > 1) {
                     throw new Exception("can't rename multiple files");
@@ -5,13 +5,14 @@ import sg.edu.nus.comp.cs4218.app.RmInterface;
 import sg.edu.nus.comp.cs4218.exception.InvalidArgsException;
 import sg.edu.nus.comp.cs4218.exception.RmException;
 import sg.edu.nus.comp.cs4218.impl.parser.RmArgsParser;
-import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.*;
@@ -21,7 +22,17 @@ public class RmApplication implements RmInterface {
     
     
     @Override
-    public void remove(Boolean isEmptyFolder, Boolean isRecursive, String... fileName) throws RmException { //NOPMD
+    public void remove(Boolean isEmptyFolder, Boolean isRecursive, String... fileName) throws RmException {
+        remove(Paths.get(Environment.getCurrentDirectory()), isEmptyFolder, isRecursive, fileName);
+    }
+    
+    /**
+     * Removes files given relative to a directory, which is itself never removed.
+     *
+     * @param directory Directory the file names are resolved against
+     */
+    private void remove(Path directory, Boolean isEmptyFolder, Boolean isRecursive, String... fileName) //NOPMD
+      throws RmException {
         
         boolean hasFailedFiles = false;
         StringBuilder sb = new StringBuilder();//NOPMD
@@ -40,7 +51,7 @@ public class RmApplication implements RmInterface {
                 continue;
             }
             
-            File file = IOUtils.resolveFilePath(f).toFile();
+            File file = directory.resolve(f).toFile();
 
             if (!file.exists()) {
                 sb.append(f);
@@ -53,7 +64,7 @@ public class RmApplication implements RmInterface {
 
             // prevent removing current directory
             try {
-                if (file.toPath().toRealPath().equals(IOUtils.resolveFilePath(Environment.getCurrentDirectory()))) {
+                if (file.toPath().toRealPath().equals(directory)) {
                     sb.append(f);
                     sb.append(" skipped: ");
                     sb.append(ERR_CURR_DIR);
@@ -81,9 +92,7 @@ public class RmApplication implements RmInterface {
                     String[] contents = file.list();
     
                     if (isRecursive) { // if recursive and not empty go ahead
-                        Environment.currentDirectory = file.getAbsolutePath(); // go into the directory
-                        remove(isEmptyFolder, true, contents); // remove recursively
-                        Environment.currentDirectory = file.getParent(); // come out
+                        remove(file.toPath(), isEmptyFolder, true, contents); // remove recursively
                     } else if (isEmptyFolder) {
                         throw new RmException(String.format("cannot remove %s: %s", file.getName(), ERR_DIR_NOT_EMPTY));
                     } else {
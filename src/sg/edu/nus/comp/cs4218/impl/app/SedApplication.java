@@ -5,11 +5,16 @@ import sg.edu.nus.comp.cs4218.exception.SedException;
 import sg.edu.nus.comp.cs4218.impl.app.args.SedArguments;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.util.List;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,23 +47,19 @@ public class SedApplication implements SedInterface {
         } catch (Exception e) {
             throw new SedException(e.getMessage());//NOPMD
         }
-        StringBuilder output = new StringBuilder();
         try {
             if (sedArgs.getFiles().isEmpty()) {
-                output.append(replaceSubstringInStdin(sedArgs.getRegex(), sedArgs.getReplacement(), sedArgs.getReplacementIndex(), stdin));
+                replaceSubstringInStdin(sedArgs.getRegex(), sedArgs.getReplacement(), sedArgs.getReplacementIndex(), stdin, stdout);
             } else {
                 for (String file : sedArgs.getFiles()) {
-                    output.append(replaceSubstringInFile(sedArgs.getRegex(), sedArgs.getReplacement(), sedArgs.getReplacementIndex(), file));
+                    replaceSubstringInFile(sedArgs.getRegex(), sedArgs.getReplacement(), sedArgs.getReplacementIndex(), file, stdout);
                 }
             }
+        } catch (SedException e) {
+            throw e;
         } catch (Exception e) {
             throw new SedException(e.getMessage());//NOPMD
         }
-        try {
-            stdout.write(output.toString().getBytes());
-        } catch (IOException e) {
-            throw new SedException(ERR_WRITE_STREAM);//NOPMD
-        }
     }
     
     /**
@@ -76,6 +77,26 @@ public class SedApplication implements SedInterface {
     @Override
     public String replaceSubstringInFile(String regexp, String replacement, int replacementIndex,
                                          String fileName) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        replaceSubstringInFile(regexp, replacement, replacementIndex, fileName, output);
+        return output.toString();
+    }
+    
+    /**
+     * Writes the file content with the matched substring on each line replaced to stdout, line by
+     * line.
+     *
+     * @param regexp           String specifying a regular expression in JAVA format
+     * @param replacement      String to replace the matched pattern
+     * @param replacementIndex Integer specifying the index of the matched substring to be replaced
+     *                         (default is 1)
+     * @param fileName         String specifying name of the file
+     * @param stdout           OutputStream the replaced lines are written to
+     * @throws Exception
+     */
+    @Override
+    public void replaceSubstringInFile(String regexp, String replacement, int replacementIndex,
+                                       String fileName, OutputStream stdout) throws Exception {
         if (fileName == null) {
             throw new Exception(ERR_NULL_ARGS);
         }
@@ -90,9 +111,11 @@ public class SedApplication implements SedInterface {
             throw new Exception(ERR_NO_PERM);
         }
         InputStream input = IOUtils.openInputStream(fileName); //NOPMD
-        String result = replaceSubstringInStdin(regexp, replacement, replacementIndex, input);
-        IOUtils.closeInputStream(input);
-        return result;
+        try {
+            replaceSubstringInStdin(regexp, replacement, replacementIndex, input, stdout);
+        } finally {
+            IOUtils.closeInputStream(input);
+        }
     }
     
     /**
@@ -110,33 +133,73 @@ public class SedApplication implements SedInterface {
     @Override
     public String replaceSubstringInStdin(String regexp, String replacement, int replacementIndex,
                                           InputStream stdin) throws Exception {
-        if (stdin == null) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        replaceSubstringInStdin(regexp, replacement, replacementIndex, stdin, output);
+        return output.toString();
+    }
+    
+    /**
+     * Writes the Stdin arg content with the matched substring on each line replaced to stdout,
+     * line by line, as soon as each line has been read.
+     *
+     * @param regexp           String specifying a regular expression in JAVA format
+     * @param replacement      String to replace the matched pattern
+     * @param replacementIndex Integer specifying the index of the matched substring to be replaced
+     *                         (default is 1)
+     * @param stdin            InputStream containing arguments from Stdin
+     * @param stdout           OutputStream the replaced lines are written to
+     * @throws Exception
+     */
+    @Override
+    public void replaceSubstringInStdin(String regexp, String replacement, int replacementIndex,
+                                        InputStream stdin, OutputStream stdout) throws Exception {
+        if (stdin == null || stdout == null) {
             throw new Exception(ERR_NULL_STREAMS);
         }
         SedArguments.validate(regexp, replacement, replacementIndex);
     
-        List<String> input = IOUtils.getLinesFromInputStream(stdin);
         Pattern pattern = Pattern.compile(regexp);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stdin)); //NOPMD
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stdout));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            writeLine(writer, replaceInLine(pattern, replacement, replacementIndex, line));
+        }
+        reader.close();
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new SedException(ERR_WRITE_STREAM);//NOPMD
+        }
+    }
     
-        StringBuilder output = new StringBuilder();
-        for (String line : input) {
-            Matcher matcher = pattern.matcher(line);
-            StringBuilder builder = new StringBuilder();
-            int index = 0;
-            int counterOfMatches = 1;
-            while (matcher.find()) {
-                if (counterOfMatches == replacementIndex) {
-                    builder.append(line, index, matcher.start());
-                    builder.append(replacement);
-                    index = matcher.end();
-                    break;
-                }
-                counterOfMatches++;
+    /**
+     * Replaces the substring at the given index of the substrings matching the pattern in a line.
+     */
+    private String replaceInLine(Pattern pattern, String replacement, int replacementIndex, String line) {
+        Matcher matcher = pattern.matcher(line);
+        StringBuilder builder = new StringBuilder();
+        int index = 0;
+        int counterOfMatches = 1;
+        while (matcher.find()) {
+            if (counterOfMatches == replacementIndex) {
+                builder.append(line, index, matcher.start());
+                builder.append(replacement);
+                index = matcher.end();
+                break;
             }
-            builder.append(line, index, line.length());
-            output.append(builder.toString()).append(STRING_NEWLINE);
+            counterOfMatches++;
         }
+        builder.append(line, index, line.length());
+        return builder.toString();
+    }
     
-        return output.toString();
+    private void writeLine(Writer writer, String line) throws SedException {
+        try {
+            writer.write(line);
+            writer.write(STRING_NEWLINE);
+        } catch (IOException e) {
+            throw new SedException(ERR_WRITE_STREAM);//NOPMD
+        }
     }
 }
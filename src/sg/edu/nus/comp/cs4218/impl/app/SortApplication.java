@@ -3,17 +3,21 @@ package sg.edu.nus.comp.cs4218.impl.app;
 import sg.edu.nus.comp.cs4218.app.SortInterface;
 import sg.edu.nus.comp.cs4218.exception.SortException;
 import sg.edu.nus.comp.cs4218.impl.app.args.SortArguments;
+import sg.edu.nus.comp.cs4218.impl.util.ExternalSorter;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
+import sg.edu.nus.comp.cs4218.impl.util.ShellConfig;
+import sg.edu.nus.comp.cs4218.impl.util.SortKey;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.*;
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
@@ -38,23 +42,27 @@ public class SortApplication implements SortInterface {
         }
         SortArguments sortArgs = new SortArguments();
         sortArgs.parse(args);
-        StringBuilder output = new StringBuilder();
+        ExternalSorter<?> sorter = createSorter(sortArgs.isFirstWordNumber(), sortArgs.isReverseOrder(), sortArgs.isCaseIndependent());
         try {
-            if (sortArgs.getFiles().isEmpty()) {
-                output.append(sortFromStdin(sortArgs.isFirstWordNumber(), sortArgs.isReverseOrder(), sortArgs.isCaseIndependent(), stdin));
-            } else {
-                output.append(sortFromFiles(sortArgs.isFirstWordNumber(), sortArgs.isReverseOrder(), sortArgs.isCaseIndependent(), sortArgs.getFiles().toArray(new String[0])));
+            try {
+                if (sortArgs.getFiles().isEmpty()) {
+                    addLinesFromStdin(sorter, stdin);
+                } else {
+                    addLinesFromFiles(sorter, sortArgs.getFiles().toArray(new String[0]));
+                }
+                sorter.sort();
+            } catch (Exception e) {
+                throw new SortException(e.getMessage());//NOPMD
             }
-        } catch (Exception e) {
-            throw new SortException(e.getMessage());//NOPMD
-        }
-        try {
-            if (!output.toString().isEmpty()) {
-                stdout.write(output.toString().getBytes());
-                stdout.write(STRING_NEWLINE.getBytes());
+            try {
+                if (writeLines(sorter, stdout)) {
+                    stdout.write(STRING_NEWLINE.getBytes());
+                }
+            } catch (IOException e) {
+                throw new SortException(ERR_WRITE_STREAM);//NOPMD
             }
-        } catch (IOException e) {
-            throw new SortException(ERR_WRITE_STREAM);//NOPMD
+        } finally {
+            closeSorter(sorter);
         }
     }
     
@@ -70,27 +78,32 @@ public class SortApplication implements SortInterface {
     @Override
     public String sortFromFiles(Boolean isFirstWordNumber, Boolean isReverseOrder, Boolean isCaseIndependent,
                                 String... fileNames) throws Exception {
-        if (fileNames == null) {
-            throw new Exception(ERR_NULL_ARGS);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        sortFromFiles(isFirstWordNumber, isReverseOrder, isCaseIndependent, output, fileNames);
+        return output.toString();
+    }
+    
+    /**
+     * Writes the ordered lines of the specified files to stdout, separated by newlines
+     *
+     * @param isFirstWordNumber Boolean option to treat the first word of a line as a number
+     * @param isReverseOrder    Boolean option to sort in reverse order
+     * @param isCaseIndependent Boolean option to perform case-independent sorting
+     * @param stdout            OutputStream the ordered lines are written to
+     * @param fileNames         Array of String of file names
+     * @throws Exception
+     */
+    @Override
+    public void sortFromFiles(Boolean isFirstWordNumber, Boolean isReverseOrder, Boolean isCaseIndependent,
+                              OutputStream stdout, String... fileNames) throws Exception {
+        if (stdout == null) {
+            throw new Exception(ERR_NULL_STREAMS);
         }
-        List<String> lines = new ArrayList<>();
-        for (String file : fileNames) {
-            File node = IOUtils.resolveFilePath(file).toFile();
-            if (!node.exists()) {
-                throw new Exception(ERR_FILE_NOT_FOUND);
-            }
-            if (node.isDirectory()) {
-                throw new Exception(ERR_IS_DIR);
-            }
-            if (!node.canRead()) {
-                throw new Exception(ERR_NO_PERM);
-            }
-            InputStream input = IOUtils.openInputStream(file); //NOPMD
-            lines.addAll(IOUtils.getLinesFromInputStream(input));
-            IOUtils.closeInputStream(input);
+        try (ExternalSorter<?> sorter = createSorter(isFirstWordNumber, isReverseOrder, isCaseIndependent)) {
+            addLinesFromFiles(sorter, fileNames);
+            sorter.sort();
+            writeLines(sorter, stdout);
         }
-        sortInputString(isFirstWordNumber, isReverseOrder, isCaseIndependent, lines);
-        return String.join(STRING_NEWLINE, lines);
     }
     
     /**
@@ -105,75 +118,128 @@ public class SortApplication implements SortInterface {
     @Override
     public String sortFromStdin(Boolean isFirstWordNumber, Boolean isReverseOrder, Boolean isCaseIndependent,
                                 InputStream stdin) throws Exception {
-        if (stdin == null) {
-            throw new Exception(ERR_NULL_STREAMS);
-        }
-        List<String> lines = IOUtils.getLinesFromInputStream(stdin);
-        sortInputString(isFirstWordNumber, isReverseOrder, isCaseIndependent, lines);
-        return String.join(STRING_NEWLINE, lines);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        sortFromStdin(isFirstWordNumber, isReverseOrder, isCaseIndependent, stdin, output);
+        return output.toString();
     }
     
     /**
-     * Sorts the input ArrayList based on the given conditions. Invoking this function will mutate the ArrayList.
+     * Writes the ordered lines from the standard input to stdout, separated by newlines
      *
      * @param isFirstWordNumber Boolean option to treat the first word of a line as a number
      * @param isReverseOrder    Boolean option to sort in reverse order
      * @param isCaseIndependent Boolean option to perform case-independent sorting
-     * @param input             ArrayList of Strings of lines
+     * @param stdin             InputStream containing arguments from Stdin
+     * @param stdout            OutputStream the ordered lines are written to
+     * @throws Exception
      */
-    private void sortInputString(Boolean isFirstWordNumber, Boolean isReverseOrder, Boolean isCaseIndependent,
-                                 List<String> input) {
-        Collections.sort(input, new Comparator<String>() {
-            @Override
-            public int compare(String str1, String str2) {
-                String temp1 = isCaseIndependent ? str1.toLowerCase() : str1;//NOPMD
-                String temp2 = isCaseIndependent ? str2.toLowerCase() : str2;//NOPMD
+    @Override
+    public void sortFromStdin(Boolean isFirstWordNumber, Boolean isReverseOrder, Boolean isCaseIndependent,
+                              InputStream stdin, OutputStream stdout) throws Exception {
+        if (stdout == null) {
+            throw new Exception(ERR_NULL_STREAMS);
+        }
+        try (ExternalSorter<?> sorter = createSorter(isFirstWordNumber, isReverseOrder, isCaseIndependent)) {
+            addLinesFromStdin(sorter, stdin);
+            sorter.sort();
+            writeLines(sorter, stdout);
+        }
+    }
     
-                // Extract the first group of numbers if possible.
-                if (isFirstWordNumber && !temp1.isEmpty() && !temp2.isEmpty()) {
-                    String chunk1 = getChunk(temp1);//NOPMD
-                    String chunk2 = getChunk(temp2);//NOPMD
+    /**
+     * Adds all lines of the specified files, in order, to the sorter.
+     *
+     * @param sorter    ExternalSorter the lines are added to
+     * @param fileNames Array of String of file names
+     * @throws Exception
+     */
+    private void addLinesFromFiles(ExternalSorter<?> sorter, String... fileNames) throws Exception {
+        if (fileNames == null) {
+            throw new Exception(ERR_NULL_ARGS);
+        }
+        for (String file : fileNames) {
+            File node = IOUtils.resolveFilePath(file).toFile();
+            if (!node.exists()) {
+                throw new Exception(ERR_FILE_NOT_FOUND);
+            }
+            if (node.isDirectory()) {
+                throw new Exception(ERR_IS_DIR);
+            }
+            if (!node.canRead()) {
+                throw new Exception(ERR_NO_PERM);
+            }
+            addLines(sorter, IOUtils.openInputStream(file));
+        }
+    }
     
-                    // If both chunks can be represented as numbers, sort them numerically.
-                    int result = 0;
-                    if (Character.isDigit(chunk1.charAt(0)) && Character.isDigit(chunk2.charAt(0))) {
-                        result = new BigInteger(chunk1).compareTo(new BigInteger(chunk2));
-                    } else {
-                        result = chunk1.compareTo(chunk2);
-                    }
-                    if (result != 0) {
-                        return result;
-                    }
-                    return temp1.substring(chunk1.length()).compareTo(temp2.substring(chunk2.length()));
-                }
+    private void addLinesFromStdin(ExternalSorter<?> sorter, InputStream stdin) throws Exception {
+        if (stdin == null) {
+            throw new Exception(ERR_NULL_STREAMS);
+        }
+        addLines(sorter, stdin);
+    }
     
-                return temp1.compareTo(temp2);
+    /**
+     * Adds the lines of the input to the sorter as they are read, then closes the input.
+     */
+    private void addLines(ExternalSorter<?> sorter, InputStream input) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sorter.add(line);
             }
-        });
-        if (isReverseOrder) {
-            Collections.reverse(input);
         }
     }
     
     /**
-     * Extracts a chunk of numbers or non-numbers from str starting from index 0.
+     * Writes the sorted lines to stdout separated by newlines, without a trailing newline.
      *
-     * @param str Input string to read from
+     * @param sorter ExternalSorter holding the sorted lines
+     * @param stdout OutputStream to write to
+     * @return true if any characters were written
+     * @throws IOException
      */
-    private String getChunk(String str) {
-        int startIndexLocal = 0;
-        StringBuilder chunk = new StringBuilder();
-        final int strLen = str.length();
-        char chr = str.charAt(startIndexLocal++);
-        chunk.append(chr);
-        final boolean extractDigit = Character.isDigit(chr);
-        while (startIndexLocal < strLen) {
-            chr = str.charAt(startIndexLocal++);
-            if ((extractDigit && !Character.isDigit(chr)) || (!extractDigit && Character.isDigit(chr))) {
-                break;
+    private boolean writeLines(ExternalSorter<?> sorter, OutputStream stdout) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stdout));
+        boolean hasOutput = false;
+        boolean isFirst = true;
+        String line;
+        while ((line = sorter.readLine()) != null) {
+            if (!isFirst) {
+                writer.write(STRING_NEWLINE);
+                hasOutput = true;
             }
-            chunk.append(chr);
+            writer.write(line);
+            hasOutput = hasOutput || !line.isEmpty();
+            isFirst = false;
+        }
+        writer.flush();
+        return hasOutput;
+    }
+    
+    private void closeSorter(ExternalSorter<?> sorter) throws SortException {
+        try {
+            sorter.close();
+        } catch (IOException e) {
+            throw new SortException(e.getMessage());//NOPMD
+        }
+    }
+    
+    /**
+     * Creates a sorter which orders lines based on the given conditions. Inputs larger than the
+     * configured run size are sorted in runs spilled to temporary files. Keys are only created
+     * for the lines if -n or -f needs them; otherwise the lines are compared as they are.
+     *
+     * @param isFirstWordNumber Boolean option to treat the first word of a line as a number
+     * @param isReverseOrder    Boolean option to sort in reverse order
+     * @param isCaseIndependent Boolean option to perform case-independent sorting
+     */
+    private ExternalSorter<?> createSorter(Boolean isFirstWordNumber, Boolean isReverseOrder,
+                                           Boolean isCaseIndependent) {
+        if (!isFirstWordNumber && !isCaseIndependent) {
+            return ExternalSorter.ofLines(isReverseOrder, ShellConfig.getSortRunSize());
         }
-        return chunk.toString();
+        return ExternalSorter.ofKeys(line -> SortKey.of(line, isFirstWordNumber, isCaseIndependent), isReverseOrder,
+          ShellConfig.getSortRunSize());
     }
 }
@@ -6,6 +6,7 @@ import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner;
 import sg.edu.nus.comp.cs4218.impl.util.ArgumentResolver;
 import sg.edu.nus.comp.cs4218.impl.util.IORedirectionHandler;
+import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
 
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -50,13 +51,28 @@ public class CallCommand implements Command {
         InputStream inputStream = redirHandler.getInputStream(); //NOPMD
         OutputStream outputStream = redirHandler.getOutputStream(); //NOPMD
 
-        // Handle quoting + globing + command substitution
-        List<String> parsedArgsList = argumentResolver.parseArguments(noRedirArgsList);
-        if (!parsedArgsList.isEmpty()) {
-            String app = parsedArgsList.remove(0);
-            appRunner.runApp(app, parsedArgsList.toArray(new String[0]), inputStream, outputStream);
+        try {
+            // Handle quoting + globing + command substitution
+            List<String> parsedArgsList = argumentResolver.parseArguments(noRedirArgsList);
+            if (!parsedArgsList.isEmpty()) {
+                String app = parsedArgsList.remove(0);
+                appRunner.runApp(app, parsedArgsList.toArray(new String[0]), inputStream, outputStream);
+            }
+        } catch (Throwable e) { //NOPMD
+            // Close the redirected file without letting a failure to do so hide the first one
+            if (outputStream != stdout) {
+                try {
+                    IOUtils.closeOutputStream(outputStream);
+                } catch (ShellException closeException) {
+                    e.addSuppressed(closeException);
+                }
+            }
+            throw e;
+        }
+        // The command has ended: write out whatever the redirected file still buffers
+        if (outputStream != stdout) {
+            IOUtils.closeOutputStream(outputStream);
         }
-
     }
 
     @Override
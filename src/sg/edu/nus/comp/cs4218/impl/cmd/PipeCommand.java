@@ -1,22 +1,41 @@
 package sg.edu.nus.comp.cs4218.impl.cmd;
 
 import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.ExecutionContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.util.PipeChannel;
+import sg.edu.nus.comp.cs4218.impl.util.ShellConfig;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * A Pipe Command is a sub-command consisting of two Call Commands separated with a pipe,
  * or a Pipe Command and a Call Command separated with a pipe.
  * <p>
  * Command format: <Call> | <Call> or <Pipe> | <Call>
+ * <p>
+ * By default each Call Command runs to completion before the next one starts. When streaming pipes
+ * are enabled in {@link ShellConfig}, every Call Command runs on its own thread instead and the
+ * commands are connected by bounded {@link PipeChannel}s, so a producer blocks while its consumer
+ * catches up.
  */
 public class PipeCommand implements Command {
+    private static final ExecutorService STAGE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "pipe-stage");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final List<CallCommand> callCommands;
 
     public PipeCommand(List<CallCommand> callCommands) {
@@ -26,6 +45,11 @@ public class PipeCommand implements Command {
     @Override
     public void evaluate(InputStream stdin, OutputStream stdout)
       throws AbstractApplicationException, ShellException {
+        if (ShellConfig.isStreamingPipes() && callCommands.size() > 1) {
+            evaluateStreaming(stdin, stdout);
+            return;
+        }
+
         AbstractApplicationException absAppException = null;
         ShellException shellException = null;
         
@@ -64,6 +88,82 @@ public class PipeCommand implements Command {
         }
     }
 
+    /**
+     * Runs all Call Commands concurrently. The last command runs on the calling thread and the
+     * others on the stage executor. Once every command has finished, the exception of the
+     * left-most failed command (if any) is rethrown, as in the sequential mode.
+     */
+    private void evaluateStreaming(InputStream stdin, OutputStream stdout)
+      throws AbstractApplicationException, ShellException {
+        int lastIndex = callCommands.size() - 1;
+        Exception[] failures = new Exception[callCommands.size()];
+        List<Future<?>> stages = new ArrayList<>();
+
+        InputStream nextInputStream = stdin; //NOPMD
+        for (int i = 0; i < lastIndex; i++) {
+            PipeChannel channel = new PipeChannel(); //NOPMD
+            final int index = i;
+            final InputStream stageInput = nextInputStream;
+            stages.add(STAGE_EXECUTOR.submit(ExecutionContext.wrap(() -> {
+                runStage(index, stageInput, channel.getOutputStream(), failures);
+                return null;
+            })));
+            nextInputStream = channel.getInputStream();
+        }
+        runStage(lastIndex, nextInputStream, stdout, failures);
+
+        for (Future<?> stage : stages) {
+            try {
+                stage.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw (ShellException) new ShellException(e.getMessage()).initCause(e);
+            } catch (ExecutionException e) {
+                throw (ShellException) new ShellException(e.getCause().getMessage()).initCause(e.getCause());
+            }
+        }
+
+        for (Exception failure : failures) {
+            if (failure instanceof AbstractApplicationException) {
+                throw (AbstractApplicationException) failure;
+            }
+            if (failure instanceof ShellException) {
+                throw (ShellException) failure;
+            }
+            if (failure != null) {
+                throw (RuntimeException) failure;
+            }
+        }
+    }
+
+    /**
+     * Evaluates one Call Command and records its exception instead of throwing it. Pipe streams
+     * owned by this stage are closed afterwards, which signals end of input to the next stage and
+     * lets the previous stage discard whatever it still writes.
+     */
+    private void runStage(int index, InputStream input, OutputStream output, Exception[] failures) {
+        try {
+            callCommands.get(index).evaluate(input, output);
+        } catch (AbstractApplicationException | ShellException | RuntimeException e) {
+            failures[index] = e;
+        } finally {
+            if (index > 0) {
+                closeQuietly(input);
+            }
+            if (index < callCommands.size() - 1) {
+                closeQuietly(output);
+            }
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable stream) {
+        try {
+            stream.close();
+        } catch (Exception ignored) { //NOPMD
+            // Nothing more can be done for a pipe that is already broken
+        }
+    }
+
     @Override
     public void terminate() {
         // Unused for now
@@ -5,11 +5,9 @@ import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ExitException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.LinkedList;
 import java.util.List;
 
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
@@ -26,43 +24,51 @@ public class SequenceCommand implements Command {
         this.commands = commands;
     }
     
+    /**
+     * Evaluates the commands one after another, writing each command's output straight to stdout as
+     * it is produced. The message of a failed command is written in its place, and the remaining
+     * commands still run. An exit command stops the sequence once earlier output has been flushed.
+     */
     @Override
     public void evaluate(InputStream stdin, OutputStream stdout)
       throws AbstractApplicationException, ShellException {
         ExitException exitException = null;
-        List<String> outputLines = new LinkedList<>();
         
         for (Command command : commands) {
             try {
-                OutputStream outputStream = new ByteArrayOutputStream();
-                command.evaluate(stdin, outputStream);
-                
-                String outputLine = outputStream.toString();
-                if (!outputLine.isEmpty()) {
-                    outputLines.add(outputLine);
-                }
+                command.evaluate(stdin, stdout);
             } catch (ExitException e) {
                 exitException = e;
                 break;
                 
             } catch (AbstractApplicationException | ShellException e) {
-                outputLines.add(e.getMessage() + STRING_NEWLINE);
-            }
-        }
-
-        for (String outputLine : outputLines) {
-            try {
-                stdout.write(outputLine.getBytes());
-            } catch (IOException e) {
-                throw (ShellException) new ShellException(e.getMessage()).initCause(e);
+                writeToStdout(stdout, e.getMessage() + STRING_NEWLINE);
             }
+            flushStdout(stdout);
         }
 
         if (exitException != null) {
+            flushStdout(stdout);
             throw exitException;
         }
     }
     
+    private void writeToStdout(OutputStream stdout, String message) throws ShellException {
+        try {
+            stdout.write(message.getBytes());
+        } catch (IOException e) {
+            throw (ShellException) new ShellException(e.getMessage()).initCause(e);
+        }
+    }
+    
+    private void flushStdout(OutputStream stdout) throws ShellException {
+        try {
+            stdout.flush();
+        } catch (IOException e) {
+            throw (ShellException) new ShellException(e.getMessage()).initCause(e);
+        }
+    }
+    
     @Override
     public void terminate() {
         // Unused for now
@@ -0,0 +1,100 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import sg.edu.nus.comp.cs4218.Application;
+import sg.edu.nus.comp.cs4218.ApplicationProvider;
+import sg.edu.nus.comp.cs4218.impl.app.*;
+
+import java.util.Collections;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.*;
+
+/**
+ * Maps application names to the applications that run them.
+ * <p>
+ * An application keeping no state between runs is registered as a single shared instance, which
+ * every run of that name uses, possibly on several threads at once. Any other application is
+ * registered with a factory creating a new instance for each run. The built-in applications are
+ * all shared.
+ * <p>
+ * The default registry holds the built-in applications and those of every
+ * {@link ApplicationProvider} found on the class path.
+ */
+public class ApplicationRegistry {
+    
+    private static final ApplicationRegistry DEFAULT = createDefault();
+    
+    private final ConcurrentHashMap<String, Supplier<? extends Application>> applications = new ConcurrentHashMap<>();
+    
+    /**
+     * @return the registry used by the shell
+     */
+    public static ApplicationRegistry getDefault() {
+        return DEFAULT;
+    }
+    
+    private static ApplicationRegistry createDefault() {
+        ApplicationRegistry registry = new ApplicationRegistry();
+        
+        // Basic Functionality - BF
+        registry.registerShared(APP_RM, new RmApplication());
+        registry.registerShared(APP_ECHO, new EchoApplication());
+        registry.registerShared(APP_PASTE, new PasteApplication());
+        registry.registerShared(APP_SED, new SedApplication());
+        registry.registerShared(APP_EXIT, new ExitApplication());
+        
+        // Extended Functionality 1 - EF1
+        registry.registerShared(APP_DIFF, new DiffApplication());
+        registry.registerShared(APP_GREP, new GrepApplication());
+        registry.registerShared(APP_WC, new WcApplication());
+        registry.registerShared(APP_CD, new CdApplication());
+        registry.registerShared(APP_CP, new CpApplication());
+        
+        // Extended Functionality 2 - EF2
+        registry.registerShared(APP_CUT, new CutApplication());
+        registry.registerShared(APP_LS, new LsApplication());
+        registry.registerShared(APP_SORT, new SortApplication());
+        registry.registerShared(APP_FIND, new FindApplication());
+        registry.registerShared(APP_MV, new MvApplication());
+        
+        for (ApplicationProvider provider : ServiceLoader.load(ApplicationProvider.class)) {
+            provider.registerApplications(registry);
+        }
+        return registry;
+    }
+    
+    /**
+     * Registers an application safe to run on several threads at once, replacing any application
+     * registered under the same name.
+     */
+    public void registerShared(String name, Application application) {
+        applications.put(name, () -> application);
+    }
+    
+    /**
+     * Registers an application needing a new instance for every run, replacing any application
+     * registered under the same name.
+     */
+    public void registerFactory(String name, Supplier<? extends Application> factory) {
+        applications.put(name, factory);
+    }
+    
+    /**
+     * @param name Name of the application
+     * @return the application to run, or null if there is none with that name
+     */
+    public Application lookup(String name) {
+        Supplier<? extends Application> application = applications.get(name);
+        return application == null ? null : application.get();
+    }
+    
+    /**
+     * @return the names of all registered applications
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(applications.keySet());
+    }
+}
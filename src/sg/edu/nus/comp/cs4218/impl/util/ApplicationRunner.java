@@ -3,7 +3,6 @@ package sg.edu.nus.comp.cs4218.impl.util;
 import sg.edu.nus.comp.cs4218.Application;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
-import sg.edu.nus.comp.cs4218.impl.app.*;
 
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -36,6 +35,7 @@ public class ApplicationRunner {
     
     /**
      * Run the application as specified by the application command keyword and arguments.
+     * Applications are looked up by keyword in the default {@link ApplicationRegistry}.
      *
      * @param app          String containing the keyword that specifies what application to run.
      * @param argsArray    String array containing the arguments to pass to the applications for
@@ -46,66 +46,12 @@ public class ApplicationRunner {
      * @throws ShellException               If an unsupported or invalid application command is
      *                                      detected.
      */
-    public void runApp(String app, String[] argsArray, InputStream inputStream,//NOPMD - Suppressed as function only contains switch case
+    public void runApp(String app, String[] argsArray, InputStream inputStream,
                        OutputStream outputStream)
       throws AbstractApplicationException, ShellException {
-        Application application;
-        
-        switch (app) {
-            
-            // Basic Functionality - BF
-            case APP_RM:
-                application = new RmApplication();
-                break;
-            case APP_ECHO:
-                application = new EchoApplication();
-                break;
-            case APP_PASTE:
-                application = new PasteApplication();
-                break;
-            case APP_SED:
-                application = new SedApplication();
-                break;
-            case APP_EXIT:
-                application = new ExitApplication();
-                break;
-            
-            // Extended Functionality 1 - EF1
-            case APP_DIFF:
-                application = new DiffApplication();
-                break;
-            case APP_GREP:
-                application = new GrepApplication();
-                break;
-            case APP_WC:
-                application = new WcApplication();
-                break;
-            case APP_CD:
-                application = new CdApplication();
-                break;
-            case APP_CP:
-                application = new CpApplication();
-                break;
-            
-            // Extended Functionality 2 - EF2
-            case APP_CUT:
-                application = new CutApplication();
-                break;
-            case APP_LS:
-                application = new LsApplication();
-                break;
-            case APP_SORT:
-                application = new SortApplication();
-                break;
-            case APP_FIND:
-                application = new FindApplication();
-                break;
-            case APP_MV:
-                application = new MvApplication();
-                break;
-            
-            default:
-                throw new ShellException(app + ": " + ERR_INVALID_APP);
+        Application application = ApplicationRegistry.getDefault().lookup(app);
+        if (application == null) {
+            throw new ShellException(app + ": " + ERR_INVALID_APP);
         }
         
         application.run(argsArray, inputStream, outputStream);
@@ -1,18 +1,25 @@
 package sg.edu.nus.comp.cs4218.impl.util;
 
 import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ExecutionContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 
-import java.io.ByteArrayOutputStream;
-import java.io.OutputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_SUBST_TOO_LARGE;
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.*;
 
 @SuppressWarnings("PMD.ExcessiveMethodLength")
@@ -30,6 +37,11 @@ public class ArgumentResolver {
     
     /**
      * Handle quoting + globing + command substitution for a list of arguments.
+     * <p>
+     * When {@link ShellConfig#getSubstitutionThreads()} allows it and the arguments hold more than
+     * one command substitution, all of them are started at once, each in a copy of the current
+     * working directory so that none sees another change it, and their outputs are spliced into
+     * the arguments in order. If several fail, the exception of the first one is thrown.
      *
      * @param argsList The original list of arguments.
      * @return The list of parsed arguments.
@@ -37,8 +49,37 @@ public class ArgumentResolver {
      */
     public List<String> parseArguments(List<String> argsList) throws AbstractApplicationException, ShellException {
         List<String> parsedArgsList = new LinkedList<>();
-        for (String arg : argsList) {
-            parsedArgsList.addAll(resolveOneArgument(arg));
+        List<Callable<SubstitutionOutput>> subCommands = new ArrayList<>();
+        if (ShellConfig.getSubstitutionThreads() > 1) {
+            for (String arg : argsList) {
+                findSubCommands(arg, subCommands);
+            }
+        }
+        if (subCommands.size() < 2) {
+            for (String arg : argsList) {
+                parsedArgsList.addAll(resolveOneArgument(arg, null));
+            }
+            return parsedArgsList;
+        }
+    
+        ExecutorService executor = Executors.newFixedThreadPool(
+          Math.min(ShellConfig.getSubstitutionThreads(), subCommands.size()), runnable -> {
+              Thread thread = new Thread(runnable, "substitution-worker");
+              thread.setDaemon(true);
+              return thread;
+          });
+        try {
+            String directory = Environment.getCurrentDirectory();
+            List<Future<SubstitutionOutput>> outputs = new ArrayList<>(subCommands.size());
+            for (Callable<SubstitutionOutput> subCommand : subCommands) {
+                outputs.add(executor.submit(() -> new ExecutionContext(directory).call(subCommand)));
+            }
+            Iterator<Future<SubstitutionOutput>> outputIterator = outputs.iterator();
+            for (String arg : argsList) {
+                parsedArgsList.addAll(resolveOneArgument(arg, outputIterator));
+            }
+        } finally {
+            executor.shutdownNow();
         }
         return parsedArgsList;
     }
@@ -55,6 +96,15 @@ public class ArgumentResolver {
      * @return A list containing one or more parsed args, depending on the outcome of the parsing.
      */
     public List<String> resolveOneArgument(String arg) throws AbstractApplicationException, ShellException {
+        return resolveOneArgument(arg, null);
+    }
+    
+    /**
+     * @param subCommandOutputs Outputs of the substitutions of the argument, in order, or null to
+     *                          evaluate them here
+     */
+    private List<String> resolveOneArgument(String arg, Iterator<Future<SubstitutionOutput>> subCommandOutputs)
+      throws AbstractApplicationException, ShellException {
         Stack<Character> unmatchedQuotes = new Stack<>();
         LinkedList<RegexArgument> parsedArgsSegment = new LinkedList<>();
         RegexArgument parsedArg = makeRegexArgument();
@@ -77,14 +127,16 @@ public class ArgumentResolver {
                     // end of command substitution
                     unmatchedQuotes.pop();
     
-                    // evaluate subCommand and get the output
-                    String subCommandOutput = evaluateSubCommand(subCommand.toString());
+                    // evaluate subCommand and get the output, tokenized unless back quotes are nested
+                    boolean isTokenized = unmatchedQuotes.isEmpty();
+                    SubstitutionOutput subCommandOutput = subCommandOutputs == null
+                      ? evaluateSubCommand(subCommand.toString(), isTokenized)
+                      : awaitSubCommand(subCommandOutputs.next());
                     subCommand.setLength(0); // Clear the previous subCommand registered
     
                     // check if back quotes are nested
-                    if (unmatchedQuotes.isEmpty()) {
-                        List<RegexArgument> subOutputSegment = Stream
-                          .of(StringUtils.tokenize(subCommandOutput))
+                    if (isTokenized) {
+                        List<RegexArgument> subOutputSegment = subCommandOutput.getTokens().stream()
                           .map(this::makeRegexArgument)
                           .collect(Collectors.toList());
     
@@ -105,10 +157,10 @@ public class ArgumentResolver {
 //                        appendParsedArgIntoSegment(parsedArgsSegment,
 //                                makeRegexArgument(subCommandOutput));
                         if (parsedArgsSegment.isEmpty()) {
-                            parsedArgsSegment.add(new RegexArgument(subCommandOutput));
+                            parsedArgsSegment.add(new RegexArgument(subCommandOutput.getText()));
                         } else {
                             RegexArgument lastParsedArg = parsedArgsSegment.removeLast();
-                            lastParsedArg.merge(subCommandOutput);
+                            lastParsedArg.merge(subCommandOutput.getText());
                             parsedArgsSegment.add(lastParsedArg);
                         }
                     }
@@ -176,22 +228,104 @@ public class ArgumentResolver {
         return new RegexArgument(str);
     }
     
-    private String evaluateSubCommand(String commandString) throws AbstractApplicationException, ShellException {
-        if (StringUtils.isBlank(commandString)) {
-            return "";
+    /**
+     * Finds the command substitutions of one argument in the order {@link #resolveOneArgument(String)}
+     * evaluates them, following the same quoting rules, without evaluating them.
+     *
+     * @param subCommands List to add a task evaluating each substitution to
+     */
+    private void findSubCommands(String arg, List<Callable<SubstitutionOutput>> subCommands) {
+        Stack<Character> unmatchedQuotes = new Stack<>();
+        StringBuilder subCommand = new StringBuilder();
+        for (int i = 0; i < arg.length(); i++) {
+            char chr = arg.charAt(i);
+            boolean isInSubCommand = !unmatchedQuotes.isEmpty() && unmatchedQuotes.peek() == CHAR_BACK_QUOTE;
+            if (chr == CHAR_BACK_QUOTE && (unmatchedQuotes.isEmpty() || unmatchedQuotes.peek() == CHAR_DOUBLE_QUOTE)) {
+                unmatchedQuotes.add(chr);
+            } else if (chr == CHAR_BACK_QUOTE && isInSubCommand) {
+                unmatchedQuotes.pop();
+                String commandString = subCommand.toString();
+                boolean isTokenized = unmatchedQuotes.isEmpty();
+                subCommands.add(() -> evaluateSubCommand(commandString, isTokenized));
+                subCommand.setLength(0);
+            } else if ((chr == CHAR_SINGLE_QUOTE || chr == CHAR_DOUBLE_QUOTE) && unmatchedQuotes.isEmpty()) {
+                unmatchedQuotes.add(chr);
+            } else if (!unmatchedQuotes.isEmpty() && unmatchedQuotes.peek() == chr) {
+                unmatchedQuotes.pop();
+            } else if (isInSubCommand) {
+                subCommand.append(chr);
+            }
         }
-        
-        OutputStream outputStream = new ByteArrayOutputStream();
-        Command command = CommandBuilder.parseCommand(commandString, getAppRunner());
-        command.evaluate(System.in, outputStream);
-        
-        String result = outputStream.toString().replace(STRING_NEWLINE, " ");
-        if (result.endsWith(" ")) {
-            result = result.substring(0, result.length() - 1);
+    }
+    
+    /**
+     * Waits for a substitution started by {@link #parseArguments(List)} and rethrows its exception.
+     */
+    private static SubstitutionOutput awaitSubCommand(Future<SubstitutionOutput> output)
+      throws AbstractApplicationException, ShellException {
+        try {
+            return output.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (ShellException) new ShellException(e.getMessage()).initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AbstractApplicationException) {
+                throw (AbstractApplicationException) cause;
+            }
+            if (cause instanceof ShellException) {
+                throw (ShellException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (ShellException) new ShellException(cause.getMessage()).initCause(cause);
         }
-        
-        // replace newlines with empty string and last space removed
-        return result;
+    }
+    
+    /**
+     * Evaluates a substituted command, collecting its output as it is written, unless the output
+     * is found in the {@link SubstitutionCache}.
+     *
+     * @param isTokenized True to split the output into tokens, false to keep it as one text
+     * @throws ShellException If the command outputs more than the maximum allowed in
+     *                        {@link ShellConfig#getSubstitutionMaxBytes()}
+     */
+    private SubstitutionOutput evaluateSubCommand(String commandString, boolean isTokenized)
+      throws AbstractApplicationException, ShellException {
+        SubstitutionOutput output = new SubstitutionOutput(isTokenized, ShellConfig.getSubstitutionMaxBytes());
+        SubstitutionCache.Snapshot snapshot = null;
+        if (!StringUtils.isBlank(commandString)) {
+            Command command = CommandBuilder.parseCommand(commandString, getAppRunner());
+            snapshot = SubstitutionCache.snapshot(commandString, command, isTokenized, this);
+            if (snapshot != null) {
+                SubstitutionOutput cachedOutput = SubstitutionCache.get(snapshot);
+                if (cachedOutput != null) {
+                    return cachedOutput;
+                }
+            }
+            InputStream stdin = snapshot == null ? System.in : snapshot.watch(System.in);
+            try {
+                command.evaluate(stdin, output);
+            } catch (AbstractApplicationException | ShellException | RuntimeException e) {
+                if (output.isOverflowed()) {
+                    throw (ShellException) new ShellException(ERR_SUBST_TOO_LARGE).initCause(e);
+                }
+                throw e;
+            }
+            // an application may have swallowed the failed write
+            if (output.isOverflowed()) {
+                throw new ShellException(ERR_SUBST_TOO_LARGE);
+            }
+        }
+        output.finish();
+        if (snapshot != null) {
+            SubstitutionCache.put(snapshot, output);
+        }
+        return output;
     }
     
     /**
@@ -0,0 +1,244 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the lines of a file matching a regular expression by searching the raw bytes of the file
+ * for a literal the expression requires, so only lines which may match are ever decoded.
+ * <p>
+ * If the whole expression is a literal, a line containing it is a match without running the
+ * expression at all. Otherwise the literal is the leading run of plain characters of the
+ * expression, and candidate lines are confirmed with the compiled pattern.
+ * <p>
+ * Literals are found with Boyer-Moore-Horspool. Case-insensitive search folds US-ASCII letters
+ * only, which is exactly what {@link Pattern#CASE_INSENSITIVE} does without
+ * {@link Pattern#UNICODE_CASE}. Lines end at '\n' or '\r', as for
+ * {@link java.io.BufferedReader#readLine()}.
+ */
+public final class ByteLineMatcher {
+    private static final String META_CHARS = "\\^$.|?*+()[]{}";
+    private static final String OPTIONAL_QUANTIFIERS = "?*{";
+    private static final int MAP_THRESHOLD = 256 * 1024;
+    private static final int MAX_MAPPING = 1 << 30;
+    private static final byte[] FOLD = new byte[256];
+
+    static {
+        for (int i = 0; i < FOLD.length; i++) {
+            FOLD[i] = (byte) (i >= 'A' && i <= 'Z' ? i + ('a' - 'A') : i);
+        }
+    }
+
+    private final Pattern pattern;
+    private final Charset charset;
+    private final byte[] literal;
+    private final boolean isExact;
+    private final boolean isCaseInsensitive;
+    private final int[] shift = new int[256];
+
+    private ByteLineMatcher(Pattern pattern, Charset charset, byte[] literal, boolean isExact) {
+        this.pattern = pattern;
+        this.charset = charset;
+        this.isExact = isExact;
+        this.isCaseInsensitive = (pattern.flags() & Pattern.CASE_INSENSITIVE) != 0;
+        this.literal = isCaseInsensitive ? fold(literal) : literal;
+
+        int last = this.literal.length - 1;
+        Arrays.fill(shift, this.literal.length);
+        for (int i = 0; i < last; i++) {
+            int value = this.literal[i] & 0xFF;
+            shift[value] = last - i;
+            if (isCaseInsensitive && value >= 'a' && value <= 'z') {
+                shift[value - ('a' - 'A')] = last - i;
+            }
+        }
+    }
+
+    /**
+     * Builds a matcher for the compiled pattern, using the default charset to decode lines as
+     * {@link java.io.FileReader} does.
+     *
+     * @param pattern Pattern lines must contain a match of
+     * @return the matcher, or null if the pattern requires no literal that can be searched as bytes
+     */
+    public static ByteLineMatcher compile(Pattern pattern) {
+        return compile(pattern, Charset.defaultCharset());
+    }
+
+    /**
+     * @param pattern Pattern lines must contain a match of
+     * @param charset Charset lines are encoded in
+     * @return the matcher, or null if the pattern requires no literal that can be searched as bytes
+     */
+    public static ByteLineMatcher compile(Pattern pattern, Charset charset) {
+        if (!isAsciiCompatible(charset) || (pattern.flags() & ~Pattern.CASE_INSENSITIVE) != 0) {
+            return null;
+        }
+        String regex = pattern.pattern();
+        if (regex.indexOf('|') >= 0) {
+            return null;
+        }
+        int end = 0;
+        while (end < regex.length() && META_CHARS.indexOf(regex.charAt(end)) < 0) {
+            end++;
+        }
+        boolean isExact = end == regex.length();
+        if (!isExact && OPTIONAL_QUANTIFIERS.indexOf(regex.charAt(end)) >= 0) {
+            end--; // the character before the quantifier may not appear at all
+        }
+        if (end <= 0) {
+            return null;
+        }
+        String prefix = regex.substring(0, end);
+        if (prefix.indexOf('\n') >= 0 || prefix.indexOf('\r') >= 0 || !charset.newEncoder().canEncode(prefix)) {
+            return null;
+        }
+        return new ByteLineMatcher(pattern, charset, prefix.getBytes(charset), isExact);
+    }
+
+    /**
+     * Scans a file for matching lines. Small files are read into memory, larger ones are mapped.
+     *
+     * @param path    Path of the file to scan
+     * @param handler Receives each matching line in order, or null if only the count is needed
+     * @return number of matching lines
+     * @throws IOException If the file cannot be read or the handler fails
+     */
+    public int scanFile(Path path, LineHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MAP_THRESHOLD) {
+                ByteBuffer data = ByteBuffer.allocate((int) size);
+                while (data.hasRemaining() && channel.read(data) >= 0) {
+                    continue;
+                }
+                data.flip();
+                return scan(data, handler);
+            }
+            int count = 0;
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(size - position, MAX_MAPPING);
+                ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                if (position + length < size) {
+                    // Only scan whole lines, the rest is left for the next mapping
+                    int lineEnd = length;
+                    while (lineEnd > 0 && !isLineBreak(data.get(lineEnd - 1))) {
+                        lineEnd--;
+                    }
+                    data.limit(lineEnd == 0 ? length : lineEnd);
+                }
+                count += scan(data, handler);
+                position += data.limit();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Scans the remaining bytes of the buffer for matching lines.
+     *
+     * @param data    Bytes to scan, from its position to its limit
+     * @param handler Receives each matching line in order, or null if only the count is needed
+     * @return number of matching lines
+     * @throws IOException If the handler fails
+     */
+    public int scan(ByteBuffer data, LineHandler handler) throws IOException {
+        int start = data.position();
+        int end = data.limit();
+        int count = 0;
+        int from = start;
+        int hit;
+        while ((hit = indexOf(data, from, end)) >= 0) {
+            int lineStart = hit;
+            while (lineStart > start && !isLineBreak(data.get(lineStart - 1))) {
+                lineStart--;
+            }
+            int lineEnd = hit + literal.length;
+            while (lineEnd < end && !isLineBreak(data.get(lineEnd))) {
+                lineEnd++;
+            }
+            if (isExact && handler == null) {
+                count++;
+            } else {
+                String line = decode(data, lineStart, lineEnd);
+                if (isExact || pattern.matcher(line).find()) {
+                    count++;
+                    if (handler != null) {
+                        handler.handle(line);
+                    }
+                }
+            }
+            from = lineEnd + 1;
+        }
+        return count;
+    }
+
+    /**
+     * @return index of the first occurrence of the literal in [from, end), or -1 if there is none
+     */
+    private int indexOf(ByteBuffer data, int from, int end) {
+        int last = literal.length - 1;
+        int pos = from;
+        while (pos + last < end) {
+            int index = last;
+            while (byteAt(data, pos + index) == literal[index]) {
+                if (index == 0) {
+                    return pos;
+                }
+                index--;
+            }
+            pos += shift[data.get(pos + last) & 0xFF];
+        }
+        return -1;
+    }
+
+    private byte byteAt(ByteBuffer data, int index) {
+        byte value = data.get(index);
+        return isCaseInsensitive ? FOLD[value & 0xFF] : value;
+    }
+
+    private String decode(ByteBuffer data, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer line = data.duplicate();
+        line.limit(end).position(start);
+        line.get(bytes);
+        return new String(bytes, charset);
+    }
+
+    private static byte[] fold(byte[] bytes) {
+        byte[] folded = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            folded[i] = FOLD[bytes[i] & 0xFF];
+        }
+        return folded;
+    }
+
+    private static boolean isLineBreak(byte value) {
+        return value == '\n' || value == '\r';
+    }
+
+    /**
+     * Line breaks and US-ASCII characters must be encoded as the same single bytes in the charset,
+     * and never appear inside the encoding of other characters.
+     */
+    private static boolean isAsciiCompatible(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+          || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Receives the lines found by a scan.
+     */
+    @FunctionalInterface
+    public interface LineHandler {
+        void handle(String line) throws IOException;
+    }
+}
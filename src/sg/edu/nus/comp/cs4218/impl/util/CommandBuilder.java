@@ -6,36 +6,22 @@ import sg.edu.nus.comp.cs4218.impl.cmd.CallCommand;
 import sg.edu.nus.comp.cs4218.impl.cmd.PipeCommand;
 import sg.edu.nus.comp.cs4218.impl.cmd.SequenceCommand;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_SYNTAX;
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.*;
 
 @SuppressWarnings({"PMD.ExcessiveMethodLength", "PMD.ClassNamingConventions"})
 public final class CommandBuilder { //NOPMD
-    /**
-     * Regular expression for extracting valid arguments from the command string:
-     * (NO_QUOTE | SINGLE_QUOTE | NESTED_BACK_QUOTE | DOUBLE_QUOTE | BACK_QUOTE)+
-     * <p>
-     * The order matters because it affects the matching priority.
-     * <p>
-     * NO_QUOTE: [^'\"`|<>;\\s]+
-     * SINGLE_QUOTE: '[^']*'
-     * NESTED_BACK_QUOTE: \"([^\"`]*`.*?`[^\"`]*)+\"
-     * DOUBLE_QUOTE: \"[^\"]*\"
-     * BACK_QUOTE: `[^`]*`
-     */
-    private static final Pattern ARGUMENT_REGEX = Pattern
-      .compile("([^'\"`|<>;\\s]+|'[^']*'|\"([^\"`]*`.*?`[^\"`]*)+\"|\"[^\"]*\"|`[^`]*`)+");
-    
     /**
      * Parses and tokenizes the provided command string into command(s) and arguments.
      * <p>
      * CallCommand takes in a list of tokens, PipeCommand takes in a list of CallCommands,
-     * and SequenceCommand takes in a list of CallCommands / PipeCommands.
+     * and SequenceCommand takes in a list of CallCommands / PipeCommands. None of these lists can be
+     * modified, so the command returned can be evaluated any number of times, which
+     * {@link CommandCache} relies on.
      *
      * @return Final command to be evaluated.
      * @throws ShellException If the provided command string has an invalid syntax.
@@ -51,26 +37,17 @@ public final class CommandBuilder { //NOPMD
         List<CallCommand> callCmdsForPipe = new LinkedList<>();
         List<String> tokens = new LinkedList<>();
         
-        String commandSubstring = commandString;
-        while (!commandSubstring.isEmpty()) {
-            commandSubstring = commandSubstring.trim();
-            Matcher matcher = ARGUMENT_REGEX.matcher(commandSubstring);
-    
-            // no valid arguments found
-            if (!matcher.find()) {
-                throw new ShellException(ERR_SYNTAX);
-            }
-    
+        CommandLexer lexer = new CommandLexer(commandString);
+        while (lexer.hasNext()) {
             // found a valid argument at the start of the command substring
-            if (matcher.start() == 0) {
-                tokens.add(matcher.group());
-                commandSubstring = commandSubstring.substring(matcher.end());
+            String argument = lexer.nextArgument();
+            if (argument != null) {
+                tokens.add(argument);
                 continue;
             }
     
-            // found a valid argument but not at the start of the command substring
-            char firstChar = commandSubstring.charAt(0);
-            commandSubstring = commandSubstring.substring(1);
+            // no valid argument at the start, but one further on
+            char firstChar = lexer.nextOperator();
     
             switch (firstChar) {
                 case CHAR_REDIR_INPUT:
@@ -88,7 +65,7 @@ public final class CommandBuilder { //NOPMD
                         throw new ShellException(ERR_SYNTAX);
                     } else {
                         // add CallCommand as part of a PipeCommand
-                        callCmdsForPipe.add(new CallCommand(tokens, appRunner, argumentResolver));
+                        callCmdsForPipe.add(newCallCommand(tokens, appRunner, argumentResolver));
                         tokens = new LinkedList<>();
                     }
                     break;
@@ -99,15 +76,15 @@ public final class CommandBuilder { //NOPMD
                         throw new ShellException(ERR_SYNTAX);
                     } else if (callCmdsForPipe.isEmpty()) {
                         // add CallCommand as part of a SequenceCommand
-                        cmdsForSequence.add(new CallCommand(tokens, appRunner, argumentResolver));
+                        cmdsForSequence.add(newCallCommand(tokens, appRunner, argumentResolver));
                         tokens = new LinkedList<>();
                     } else {
                         // add CallCommand as part of ongoing PipeCommand
-                        callCmdsForPipe.add(new CallCommand(tokens, appRunner, argumentResolver));
+                        callCmdsForPipe.add(newCallCommand(tokens, appRunner, argumentResolver));
                         tokens = new LinkedList<>();
     
                         // add PipeCommand as part of a SequenceCommand
-                        cmdsForSequence.add(new PipeCommand(callCmdsForPipe));
+                        cmdsForSequence.add(new PipeCommand(Collections.unmodifiableList(callCmdsForPipe)));
                         callCmdsForPipe = new LinkedList<>();
                     }
             
@@ -119,18 +96,23 @@ public final class CommandBuilder { //NOPMD
             }
         }
         
-        Command finalCommand = new CallCommand(tokens, appRunner, argumentResolver);
+        Command finalCommand = newCallCommand(tokens, appRunner, argumentResolver);
         if (!callCmdsForPipe.isEmpty()) {
             // add CallCommand as part of ongoing PipeCommand
             callCmdsForPipe.add((CallCommand) finalCommand);
-            finalCommand = new PipeCommand(callCmdsForPipe);
+            finalCommand = new PipeCommand(Collections.unmodifiableList(callCmdsForPipe));
         }
         if (!cmdsForSequence.isEmpty()) {
             // add CallCommand / PipeCommand as part of ongoing SequenceCommand
             cmdsForSequence.add(finalCommand);
-            finalCommand = new SequenceCommand(cmdsForSequence);
+            finalCommand = new SequenceCommand(Collections.unmodifiableList(cmdsForSequence));
         }
         
         return finalCommand;
     }
+
+    private static CallCommand newCallCommand(List<String> tokens, ApplicationRunner appRunner,
+                                              ArgumentResolver argumentResolver) throws ShellException {
+        return new CallCommand(Collections.unmodifiableList(tokens), appRunner, argumentResolver);
+    }
 }
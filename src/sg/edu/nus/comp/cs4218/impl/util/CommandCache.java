@@ -0,0 +1,97 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Caches parsed commands by their command string in a least recently used map, so that running
+ * the same command again skips tokenizing it and building its command tree.
+ * <p>
+ * The commands built by {@link CommandBuilder} never change once built and keep no state between
+ * evaluations, so one cached command can be evaluated any number of times, even concurrently.
+ * Commands are keyed by their string alone: a hit returns the command built with the application
+ * runner of the call that missed. Strings that fail to parse are not cached. The number of
+ * commands held is bounded by {@link ShellConfig#getCommandCacheSize()}.
+ */
+@SuppressWarnings("PMD.ClassNamingConventions")
+public final class CommandCache {
+
+    private static final LinkedHashMap<String, Command> COMMANDS = new LinkedHashMap<>(16, 0.75f, true);
+    private static long hits;
+    private static long misses;
+
+    private CommandCache() {
+    }
+
+    /**
+     * @param commandString Command string to parse
+     * @param appRunner     Application runner of the command if it has to be parsed
+     * @return the command, shared with every other caller of the same command string
+     * @throws ShellException If the command string has an invalid syntax
+     */
+    public static Command parseCommand(String commandString, ApplicationRunner appRunner) throws ShellException {
+        if (ShellConfig.getCommandCacheSize() <= 0) {
+            return CommandBuilder.parseCommand(commandString, appRunner);
+        }
+        synchronized (COMMANDS) {
+            Command command = COMMANDS.get(commandString);
+            if (command != null) {
+                hits++;
+                return command;
+            }
+            misses++;
+        }
+        Command command = CommandBuilder.parseCommand(commandString, appRunner);
+        synchronized (COMMANDS) {
+            COMMANDS.put(commandString, command);
+            Iterator<Command> eldest = COMMANDS.values().iterator();
+            while (COMMANDS.size() > ShellConfig.getCommandCacheSize() && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return command;
+    }
+
+    /**
+     * @return number of commands found in the cache since it was last cleared
+     */
+    public static long getHits() {
+        synchronized (COMMANDS) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return number of commands looked up in the cache without being found since it was last
+     * cleared, including those that failed to parse
+     */
+    public static long getMisses() {
+        synchronized (COMMANDS) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return number of commands currently cached
+     */
+    public static int size() {
+        synchronized (COMMANDS) {
+            return COMMANDS.size();
+        }
+    }
+
+    /**
+     * Drops every cached command and resets the hit and miss counts.
+     */
+    public static void clear() {
+        synchronized (COMMANDS) {
+            COMMANDS.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+
+import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_SYNTAX;
+
+/**
+ * Splits a command string into arguments and operators in a single pass.
+ * <p>
+ * An argument is a run of pieces, each of which is the first of these to match:
+ * <ul>
+ * <li>unquoted text: characters other than quotes, <code>| &lt; &gt; ;</code> and whitespace;</li>
+ * <li>single quoted text: <code>'...'</code>;</li>
+ * <li>double quoted text with back quotes inside, which may themselves contain double quotes:
+ * <code>"... `...` ..."</code>;</li>
+ * <li>double quoted text: <code>"..."</code>;</li>
+ * <li>back quoted text: <code>`...`</code>.</li>
+ * </ul>
+ * These are exactly the tokens the regular expression
+ * <code>([^'"`|&lt;&gt;;\s]+|'[^']*'|"([^"`]*`.*?`[^"`]*)+"|"[^"]*"|`[^`]*`)+</code> used to find,
+ * including where its backtracking made the double quotes around back quotes end. Rather than
+ * backtracking, where each such double quoted piece ends is worked out for every back quote at
+ * once, from the end of the command backwards, the first time one is needed.
+ */
+public final class CommandLexer {
+
+    private static final int NONE = -1;
+    // Outcomes of scanning on from a closing back quote, besides the end of a match
+    private static final int CONTINUE = -2;
+    private static final int STOP = -3;
+
+    private final String command;
+    private final int end;
+    private int position;
+
+    private final int lastSingleQuote;
+    private final int lastDoubleQuote;
+    private final int lastBackQuote;
+    // Position of the next argument found after an operator, and where the search started
+    private int matchSearchFrom = Integer.MAX_VALUE;
+    private int matchFound;
+
+    // Positions of all back quotes, and for each the end of a double quoted piece whose first back
+    // quote it is, or NONE; computed on first use
+    private int[] backQuotes;
+    private int[] nestedEnds;
+
+    /**
+     * @param command Command string, whose leading and trailing whitespace is ignored
+     * @throws ShellException If the command is not empty but only holds whitespace
+     */
+    public CommandLexer(String command) throws ShellException {
+        this.command = command;
+        int last = command.length();
+        while (last > 0 && command.charAt(last - 1) <= ' ') {
+            last--;
+        }
+        if (last == 0 && !command.isEmpty()) {
+            throw new ShellException(ERR_SYNTAX);
+        }
+        this.end = last;
+        this.lastSingleQuote = lastIndexOf('\'');
+        this.lastDoubleQuote = lastIndexOf('"');
+        this.lastBackQuote = lastIndexOf('`');
+    }
+
+    private int lastIndexOf(char chr) {
+        int index = command.lastIndexOf(chr, end - 1);
+        return index == -1 ? NONE : index;
+    }
+
+    /**
+     * Skips whitespace.
+     *
+     * @return true if there is anything left to read
+     */
+    public boolean hasNext() {
+        while (position < end && command.charAt(position) <= ' ') {
+            position++;
+        }
+        return position < end;
+    }
+
+    /**
+     * Reads the argument at the current position.
+     *
+     * @return the argument, or null if none starts at the current position
+     */
+    public String nextArgument() {
+        int start = position;
+        int index = position;
+        int pieceEnd;
+        while (index < end && (pieceEnd = pieceEnd(index)) != NONE) {
+            index = pieceEnd;
+        }
+        if (index == start) {
+            return null;
+        }
+        position = index;
+        return command.substring(start, index);
+    }
+
+    /**
+     * Reads the single character at the current position, where no argument starts.
+     *
+     * @return the character read
+     * @throws ShellException If no argument starts anywhere after the character, so the command
+     *                        cannot be valid
+     */
+    public char nextOperator() throws ShellException {
+        if (nextMatchStart(position + 1) == NONE) {
+            throw new ShellException(ERR_SYNTAX);
+        }
+        return command.charAt(position++);
+    }
+
+    /**
+     * @return the end of the piece of an argument starting at the index, or NONE
+     */
+    private int pieceEnd(int index) {
+        char chr = command.charAt(index);
+        switch (chr) {
+            case '\'':
+                return index < lastSingleQuote ? command.indexOf('\'', index + 1) + 1 : NONE;
+            case '"':
+                if (index >= lastDoubleQuote) {
+                    return NONE;
+                }
+                int nestedEnd = nestedQuoteEnd(index);
+                return nestedEnd == NONE ? command.indexOf('"', index + 1) + 1 : nestedEnd;
+            case '`':
+                return index < lastBackQuote ? command.indexOf('`', index + 1) + 1 : NONE;
+            default:
+                if (!isUnquoted(chr)) {
+                    return NONE;
+                }
+                int next = index + 1;
+                while (next < end && isUnquoted(command.charAt(next))) {
+                    next++;
+                }
+                return next;
+        }
+    }
+
+    private static boolean isUnquoted(char chr) {
+        switch (chr) {
+            case '\'':
+            case '"':
+            case '`':
+            case '|':
+            case '<':
+            case '>':
+            case ';':
+            case ' ':
+            case '\t':
+            case '\n':
+            case 0x0B:
+            case '\f':
+            case '\r':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @return the first index from the given one where an argument starts, or NONE
+     */
+    private int nextMatchStart(int from) {
+        if (from >= matchSearchFrom && (matchFound == NONE || from <= matchFound)) {
+            return matchFound;
+        }
+        int found = NONE;
+        for (int index = from; index < end; index++) {
+            char chr = command.charAt(index);
+            if (isUnquoted(chr) || chr == '\'' && index < lastSingleQuote || chr == '"' && index < lastDoubleQuote
+              || chr == '`' && index < lastBackQuote) {
+                found = index;
+                break;
+            }
+        }
+        matchSearchFrom = from;
+        matchFound = found;
+        return found;
+    }
+
+    /**
+     * @param quote Index of a double quote
+     * @return the end of the double quoted piece with back quotes starting there, or NONE
+     */
+    private int nestedQuoteEnd(int quote) {
+        if (quote >= lastBackQuote) {
+            return NONE;
+        }
+        int first = quote + 1;
+        while (first < end && command.charAt(first) != '"' && command.charAt(first) != '`') {
+            first++;
+        }
+        if (first >= end || command.charAt(first) != '`') {
+            return NONE;
+        }
+        if (backQuotes == null) {
+            computeNestedEnds();
+        }
+        return nestedEnds[indexOfBackQuote(first)];
+    }
+
+    private int indexOfBackQuote(int position) {
+        int low = 0;
+        int high = backQuotes.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (backQuotes[middle] < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Works out, for each back quote k, where <code>([^"`]*`.*?`[^"`]*)+"</code> ends when its
+     * first <code>`</code> is back quote k.
+     * <p>
+     * The lazy <code>.*?</code> tries each later back quote j in turn as the closing one, as long
+     * as no line break comes first. After back quote j and any other characters, the next double
+     * quote ends the match; a next back quote is instead first tried as the opening of another
+     * repetition, i.e. with the result for that back quote, and only if that fails as the closing
+     * one of the current repetition, which is the same as trying back quote j + 1.
+     */
+    private void computeNestedEnds() {
+        int count = 0;
+        for (int index = 0; index < end; index++) {
+            if (command.charAt(index) == '`') {
+                count++;
+            }
+        }
+        backQuotes = new int[count];
+        for (int index = 0, k = 0; index < end; index++) {
+            if (command.charAt(index) == '`') {
+                backQuotes[k++] = index;
+            }
+        }
+        nestedEnds = new int[count];
+        // Outcome of trying back quote j as the closing one, and the first j' >= j whose outcome
+        // is not CONTINUE
+        int[] outcomes = new int[count + 1];
+        int[] firstDecided = new int[count + 1];
+        outcomes[count] = STOP;
+        firstDecided[count] = count;
+        // First line break after back quote k, which the lazy .*? cannot cross
+        int lineBreak = end;
+        for (int k = count - 1; k >= 0; k--) {
+            int nextBackQuote = k + 1 == count ? end : backQuotes[k + 1];
+            for (int index = backQuotes[k] + 1; index < nextBackQuote; index++) {
+                if (isLineBreak(command.charAt(index))) {
+                    lineBreak = index;
+                    break;
+                }
+            }
+            int decided = firstDecided[k + 1];
+            boolean isMatch = decided < count && backQuotes[decided] < lineBreak && outcomes[decided] != STOP;
+            nestedEnds[k] = isMatch ? outcomes[decided] : NONE;
+
+            int next = backQuotes[k] + 1;
+            while (next < end && command.charAt(next) != '"' && command.charAt(next) != '`') {
+                next++;
+            }
+            if (next >= end) {
+                outcomes[k] = STOP;
+            } else if (command.charAt(next) == '"') {
+                outcomes[k] = next + 1;
+            } else {
+                outcomes[k] = nestedEnds[k + 1] == NONE ? CONTINUE : nestedEnds[k + 1];
+            }
+            firstDecided[k] = outcomes[k] == CONTINUE ? firstDecided[k + 1] : k;
+        }
+    }
+
+    private static boolean isLineBreak(char chr) {
+        return chr == '\n' || chr == '\r' || chr == '\u0085' || chr == '\u2028' || chr == '\u2029';
+    }
+}
@@ -46,6 +46,9 @@ public class ErrorConstants {
     public static final String ERR_CURR_DIR = "Refusing to remove current directory";
     public static final String ERR_DIR_NOT_EMPTY = "Directory not empty";
     
+    // Command substitution related
+    public static final String ERR_SUBST_TOO_LARGE = "Command substitution output too large";
+    
     // General constants
     public static final String ERR_INVALID_APP = "Invalid app";
     public static final String ERR_SYNTAX = "Invalid syntax";
@@ -0,0 +1,289 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sorts lines using a bounded amount of memory.
+ * <p>
+ * Lines are sorted either by their natural order, held as they are, or by their {@link SortKey},
+ * which each line is turned into as it is added so that the work needed to compare it is done
+ * once per line rather than once per comparison.
+ * <p>
+ * Lines are gathered in memory until their estimated size exceeds the run size. The gathered lines
+ * are then sorted and spilled to a temporary file as a sorted run. Once all lines have been added,
+ * the runs are merged with a heap, at most {@link #MAX_FAN_IN} at a time. If everything fits in a
+ * single run, nothing is written to disk.
+ * <p>
+ * The sort is stable in both directions: lines which compare equal keep their input order, as a
+ * reverse sort inverts the order of the keys rather than reversing the sorted lines. From
+ * {@link ShellConfig#getSortParallelThreshold()} lines, the lines held in memory are sorted on all
+ * processors.
+ * <p>
+ * Usage: {@link #add(String)} every line, call {@link #sort()}, then {@link #readLine()} until it
+ * returns null, and finally {@link #close()} to delete the temporary files.
+ *
+ * @param <T> Type of the keys lines are held as
+ */
+public final class ExternalSorter<T extends Comparable<? super T>> implements Closeable {
+    public static final int MAX_FAN_IN = 64;
+
+    private static final String RUN_PREFIX = "cs4218-sort";
+    private static final String RUN_SUFFIX = ".run";
+    private static final int LINE_OVERHEAD = 56;
+
+    private final Function<String, T> keyFactory;
+    private final Function<T, String> lineOf;
+    private final ToLongFunction<T> sizeOf;
+    private final Comparator<T> order;
+    private final long runSize;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<BufferedReader> openReaders = new ArrayList<>();
+
+    private List<T> keys = new ArrayList<>();
+    private long keysSize;
+    private Iterator<T> memoryKeys;
+    private PriorityQueue<RunCursor<T>> merge;
+
+    private ExternalSorter(Function<String, T> keyFactory, Function<T, String> lineOf, ToLongFunction<T> sizeOf,
+                           boolean isReverse, long runSize) {
+        this.keyFactory = keyFactory;
+        this.lineOf = lineOf;
+        this.sizeOf = sizeOf;
+        this.order = isReverse ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        this.runSize = runSize;
+    }
+
+    /**
+     * @param isReverse True to sort in reverse order
+     * @param runSize   Approximate number of bytes of lines to hold in memory
+     * @return a sorter ordering lines as strings, without creating a key for each
+     */
+    public static ExternalSorter<String> ofLines(boolean isReverse, long runSize) {
+        return new ExternalSorter<>(Function.identity(), Function.identity(),
+          line -> 2L * line.length() + LINE_OVERHEAD, isReverse, runSize);
+    }
+
+    /**
+     * @param keyFactory Creates the key lines are ordered by
+     * @param isReverse  True to sort in reverse order
+     * @param runSize    Approximate number of bytes of lines to hold in memory
+     * @return a sorter ordering lines by their keys
+     */
+    public static ExternalSorter<SortKey> ofKeys(Function<String, SortKey> keyFactory, boolean isReverse,
+                                                 long runSize) {
+        return new ExternalSorter<>(keyFactory, SortKey::getLine, SortKey::estimatedSize, isReverse, runSize);
+    }
+
+    /**
+     * Adds a line to be sorted, spilling the lines held in memory to disk if they are too large.
+     *
+     * @param line Line without its line separator
+     * @throws IOException If a run cannot be written
+     */
+    public void add(String line) throws IOException {
+        T key = keyFactory.apply(line);
+        keys.add(key);
+        keysSize += sizeOf.applyAsLong(key);
+        if (keysSize > runSize) {
+            spill();
+        }
+    }
+
+    /**
+     * Finishes adding lines and prepares them to be read in order.
+     *
+     * @throws IOException If a run cannot be written or read
+     */
+    public void sort() throws IOException {
+        if (runs.isEmpty()) {
+            sortInMemory();
+            memoryKeys = keys.iterator();
+            return;
+        }
+        if (!keys.isEmpty()) {
+            spill();
+        }
+        while (runs.size() > MAX_FAN_IN) {
+            mergeRuns();
+        }
+        merge = openMerge(runs);
+    }
+
+    /**
+     * @return the next line in order, or null once all lines have been read
+     * @throws IOException If a run cannot be read
+     */
+    public String readLine() throws IOException {
+        if (memoryKeys != null) {
+            return memoryKeys.hasNext() ? lineOf.apply(memoryKeys.next()) : null;
+        }
+        return merge == null ? null : nextMerged(merge);
+    }
+
+    /**
+     * @return number of runs spilled to disk so far
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Releases the lines held in memory and deletes the temporary files.
+     */
+    @Override
+    public void close() throws IOException {
+        keys = new ArrayList<>();
+        memoryKeys = null;
+        merge = null;
+        for (BufferedReader reader : openReaders) {
+            reader.close();
+        }
+        openReaders.clear();
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sortInMemory() {
+        // Every element is a T, so the array can be sorted by the order of T
+        Object[] array = keys.toArray();
+        Comparator<Object> arrayOrder = (Comparator<Object>) (Comparator<?>) order;
+        if (array.length >= ShellConfig.getSortParallelThreshold()) {
+            Arrays.parallelSort(array, arrayOrder);
+        } else {
+            Arrays.sort(array, arrayOrder);
+        }
+        keys = (List<T>) (List<?>) Arrays.asList(array);
+    }
+
+    /**
+     * Writes the lines held in memory to a new sorted run.
+     */
+    private void spill() throws IOException {
+        sortInMemory();
+        Path run = Files.createTempFile(RUN_PREFIX, RUN_SUFFIX);
+        runs.add(run);
+        try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+            for (T key : keys) {
+                writer.write(lineOf.apply(key));
+                writer.write('\n');
+            }
+        }
+        keys = new ArrayList<>();
+        keysSize = 0;
+    }
+
+    /**
+     * Merges consecutive groups of runs into single runs. Keeping merged runs in the place of
+     * their inputs preserves the order of lines which compare equal.
+     */
+    private void mergeRuns() throws IOException {
+        List<Path> merged = new ArrayList<>();
+        for (int start = 0; start < runs.size(); start += MAX_FAN_IN) {
+            List<Path> group = runs.subList(start, Math.min(start + MAX_FAN_IN, runs.size()));
+            if (group.size() == 1) {
+                merged.add(group.get(0));
+                continue;
+            }
+            Path run = Files.createTempFile(RUN_PREFIX, RUN_SUFFIX);
+            merged.add(run);
+            try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+                PriorityQueue<RunCursor<T>> queue = openMerge(group);
+                String line;
+                while ((line = nextMerged(queue)) != null) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            } catch (IOException e) {
+                for (Path path : merged) {
+                    if (!runs.contains(path)) {
+                        runs.add(path); // so that it is deleted on close
+                    }
+                }
+                throw e;
+            } finally {
+                for (BufferedReader reader : openReaders) {
+                    reader.close();
+                }
+                openReaders.clear();
+            }
+        }
+        for (Path run : runs) {
+            if (!merged.contains(run)) {
+                Files.delete(run);
+            }
+        }
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    private PriorityQueue<RunCursor<T>> openMerge(List<Path> inputs) throws IOException {
+        PriorityQueue<RunCursor<T>> queue = new PriorityQueue<>(Math.max(1, inputs.size()), (first, second) -> {
+            int result = order.compare(first.key, second.key);
+            if (result != 0) {
+                return result;
+            }
+            // Equal lines come out in input order
+            return first.index - second.index;
+        });
+        for (int i = 0; i < inputs.size(); i++) {
+            BufferedReader reader = Files.newBufferedReader(inputs.get(i), StandardCharsets.UTF_8);
+            openReaders.add(reader);
+            RunCursor<T> cursor = new RunCursor<>(i, reader, keyFactory);
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return queue;
+    }
+
+    private String nextMerged(PriorityQueue<RunCursor<T>> queue) throws IOException {
+        RunCursor<T> cursor = queue.poll();
+        if (cursor == null) {
+            return null;
+        }
+        String line = lineOf.apply(cursor.key);
+        if (cursor.advance()) {
+            queue.add(cursor);
+        }
+        return line;
+    }
+
+    /**
+     * Key of the current line of a run being merged.
+     */
+    private static final class RunCursor<T> {
+        private final int index;
+        private final BufferedReader reader;
+        private final Function<String, T> keyFactory;
+        private T key;
+
+        RunCursor(int index, BufferedReader reader, Function<String, T> keyFactory) {
+            this.index = index;
+            this.reader = reader;
+            this.keyFactory = keyFactory;
+        }
+
+        boolean advance() throws IOException {
+            String line = reader.readLine();
+            key = line == null ? null : keyFactory.apply(line);
+            return line != null;
+        }
+    }
+}
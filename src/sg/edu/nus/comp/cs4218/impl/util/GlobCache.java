@@ -0,0 +1,122 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches what repeated globbing needs: compiled patterns and directory listings, each in a least
+ * recently used map.
+ * <p>
+ * A cached listing is only used while the directory's modification time is unchanged, which
+ * costs one stat instead of reading the whole directory. Listings of directories modified in the
+ * last couple of seconds are not cached, since a file system with coarse timestamps could change
+ * such a directory again without changing its modification time. The total number of names held
+ * is bounded by {@link ShellConfig#getGlobCacheNames()}.
+ */
+@SuppressWarnings("PMD.ClassNamingConventions")
+public final class GlobCache {
+
+    private static final int MAX_PATTERNS = 256;
+    private static final long RACY_MILLIS = 2000;
+
+    private static final Map<String, GlobMatcher> PATTERNS = new LinkedHashMap<String, GlobMatcher>(16, 0.75f, true) {
+        private static final long serialVersionUID = 4218L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, GlobMatcher> eldest) {
+            return size() > MAX_PATTERNS;
+        }
+    };
+    private static final LinkedHashMap<Path, Listing> LISTINGS = new LinkedHashMap<>(16, 0.75f, true);
+    private static long cachedNames;
+
+    private GlobCache() {
+    }
+
+    /**
+     * @param glob Glob pattern
+     * @return the compiled pattern, shared with every other caller of the same pattern
+     */
+    public static GlobMatcher compile(String glob) {
+        synchronized (PATTERNS) {
+            return PATTERNS.computeIfAbsent(glob, GlobMatcher::compile);
+        }
+    }
+
+    /**
+     * @param dir Directory to list
+     * @return the names of the entries of the directory, which must not be modified as they may
+     * be shared with other callers
+     * @throws IOException If the directory cannot be read
+     */
+    public static String[] list(Path dir) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(dir);
+        synchronized (LISTINGS) {
+            Listing listing = LISTINGS.get(dir);
+            if (listing != null && listing.modified.equals(modified)) {
+                return listing.names;
+            }
+        }
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                names.add(entry.getFileName().toString());
+            }
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+        String[] result = names.toArray(new String[0]);
+        if (modified.toMillis() < System.currentTimeMillis() - RACY_MILLIS) {
+            store(dir, new Listing(modified, result));
+        }
+        return result;
+    }
+
+    private static void store(Path dir, Listing listing) {
+        long maxNames = ShellConfig.getGlobCacheNames();
+        if (maxNames <= 0 || listing.names.length > maxNames) {
+            return;
+        }
+        synchronized (LISTINGS) {
+            Listing previous = LISTINGS.put(dir, listing);
+            cachedNames += listing.names.length - (previous == null ? 0 : previous.names.length);
+            Iterator<Listing> eldest = LISTINGS.values().iterator();
+            while (cachedNames > maxNames && eldest.hasNext()) {
+                cachedNames -= eldest.next().names.length;
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops every cached pattern and listing.
+     */
+    public static void clear() {
+        synchronized (PATTERNS) {
+            PATTERNS.clear();
+        }
+        synchronized (LISTINGS) {
+            LISTINGS.clear();
+            cachedNames = 0;
+        }
+    }
+
+    private static final class Listing {
+        private final FileTime modified;
+        private final String[] names;
+
+        Listing(FileTime modified, String... names) {
+            this.modified = modified;
+            this.names = names;
+        }
+    }
+}
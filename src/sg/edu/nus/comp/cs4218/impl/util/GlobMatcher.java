@@ -0,0 +1,278 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches file names against a glob pattern without going through regular expressions.
+ * <p>
+ * Supported syntax: <code>*</code> matches any run of characters, <code>?</code> any single
+ * character, <code>[abc]</code>, <code>[a-z]</code> and <code>[!a-z]</code> (or <code>[^a-z]</code>)
+ * a single character in or out of a set, and a backslash makes the next character literal. An
+ * unclosed <code>[</code> is literal.
+ * <p>
+ * Patterns made only of literal text and stars, the usual case, are matched with plain string
+ * comparisons: equality, a prefix, a suffix, or literal segments searched for in order between
+ * them. Other patterns fall back to a backtracking matcher which only ever backtracks to the last
+ * star, so it never takes more than (pattern length * name length) steps.
+ */
+public final class GlobMatcher {
+
+    private static final String SPECIAL_CHARS = "*?[]\\";
+
+    private enum Kind {
+        EXACT, PREFIX, SUFFIX, SEGMENTS, GENERAL
+    }
+
+    private final String glob;
+    private final Kind kind;
+    // Literal text between stars, for every kind but GENERAL
+    private final String[] segments;
+    // One element per character of the name to match, for GENERAL: null for a star
+    private final CharSet[] elements;
+
+    private GlobMatcher(String glob, Kind kind, String[] segments, CharSet... elements) {
+        this.glob = glob;
+        this.kind = kind;
+        this.segments = segments;
+        this.elements = elements;
+    }
+
+    /**
+     * @param glob Glob pattern
+     * @return a matcher for the pattern
+     */
+    public static GlobMatcher compile(String glob) {
+        List<CharSet> elements = new ArrayList<>();
+        List<String> segments = new ArrayList<>();
+        StringBuilder segment = new StringBuilder();
+        boolean hasSingleChar = false;
+        int index = 0;
+        while (index < glob.length()) {
+            char current = glob.charAt(index);
+            if (current == '*') {
+                if (elements.isEmpty() || elements.get(elements.size() - 1) != null) {
+                    elements.add(null);
+                    segments.add(segment.toString());
+                    segment.setLength(0);
+                }
+                index++;
+            } else if (current == '?') {
+                elements.add(CharSet.ANY);
+                hasSingleChar = true;
+                index++;
+            } else if (current == '[' && classEnd(glob, index) != -1) {
+                int end = classEnd(glob, index);
+                elements.add(CharSet.parse(glob, index + 1, end));
+                hasSingleChar = true;
+                index = end + 1;
+            } else {
+                if (current == '\\' && index + 1 < glob.length()) {
+                    index++;
+                    current = glob.charAt(index);
+                }
+                elements.add(CharSet.literal(current));
+                segment.append(current);
+                index++;
+            }
+        }
+        segments.add(segment.toString());
+
+        if (hasSingleChar) {
+            return new GlobMatcher(glob, Kind.GENERAL, null, elements.toArray(new CharSet[0]));
+        }
+        Kind kind;
+        if (segments.size() == 1) {
+            kind = Kind.EXACT;
+        } else if (segments.size() == 2 && segments.get(1).isEmpty()) {
+            kind = Kind.PREFIX;
+        } else if (segments.size() == 2 && segments.get(0).isEmpty()) {
+            kind = Kind.SUFFIX;
+        } else {
+            kind = Kind.SEGMENTS;
+        }
+        return new GlobMatcher(glob, kind, segments.toArray(new String[0]));
+    }
+
+    /**
+     * @return the index of the ']' closing the class opened at the given index, or -1
+     */
+    private static int classEnd(String glob, int open) {
+        int index = open + 1;
+        if (index < glob.length() && (glob.charAt(index) == '!' || glob.charAt(index) == '^')) {
+            index++;
+        }
+        // A ']' right after the opening bracket is part of the class
+        if (index < glob.length() && glob.charAt(index) == ']') {
+            index++;
+        }
+        while (index < glob.length()) {
+            char current = glob.charAt(index);
+            if (current == ']') {
+                return index;
+            }
+            index += current == '\\' ? 2 : 1;
+        }
+        return -1;
+    }
+
+    /**
+     * @param text Literal text
+     * @return a glob pattern matching exactly the given text
+     */
+    public static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            quoted.append(quote(text.charAt(i)));
+        }
+        return quoted.toString();
+    }
+
+    /**
+     * @param chr Literal character
+     * @return a glob pattern matching exactly the given character
+     */
+    public static String quote(char chr) {
+        return SPECIAL_CHARS.indexOf(chr) == -1 ? String.valueOf(chr) : "\\" + chr;
+    }
+
+    /**
+     * @param name File name to match
+     * @return true if the whole name matches the pattern
+     */
+    public boolean matches(String name) {
+        switch (kind) {
+            case EXACT:
+                return name.equals(segments[0]);
+            case PREFIX:
+                return name.startsWith(segments[0]);
+            case SUFFIX:
+                return name.endsWith(segments[1]);
+            case SEGMENTS:
+                return matchesSegments(name);
+            default:
+                return matchesElements(name);
+        }
+    }
+
+    private boolean matchesSegments(String name) {
+        String first = segments[0];
+        String last = segments[segments.length - 1];
+        if (name.length() < first.length() + last.length() || !name.startsWith(first) || !name.endsWith(last)) {
+            return false;
+        }
+        int from = first.length();
+        int end = name.length() - last.length();
+        for (int i = 1; i < segments.length - 1; i++) {
+            int found = name.indexOf(segments[i], from);
+            if (found == -1 || found + segments[i].length() > end) {
+                return false;
+            }
+            from = found + segments[i].length();
+        }
+        return true;
+    }
+
+    private boolean matchesElements(String name) {
+        int element = 0;
+        int index = 0;
+        int starElement = -1;
+        int starIndex = 0;
+        while (index < name.length()) {
+            if (element < elements.length && elements[element] != null
+              && elements[element].contains(name.charAt(index))) {
+                element++;
+                index++;
+            } else if (element < elements.length && elements[element] == null) {
+                starElement = element++;
+                starIndex = index;
+            } else if (starElement != -1) {
+                // Let the last star take one more character and retry from there
+                element = starElement + 1;
+                index = ++starIndex;
+            } else {
+                return false;
+            }
+        }
+        while (element < elements.length && elements[element] == null) {
+            element++;
+        }
+        return element == elements.length;
+    }
+
+    /**
+     * @return the text matched if the pattern has no wildcards, or null
+     */
+    public String getLiteral() {
+        return kind == Kind.EXACT ? segments[0] : null;
+    }
+
+    @Override
+    public String toString() {
+        return glob;
+    }
+
+    /**
+     * The characters a single position of the name may hold.
+     */
+    private static final class CharSet {
+        static final CharSet ANY = new CharSet(new char[0], true);
+
+        // Pairs of inclusive bounds
+        private final char[] ranges;
+        private final boolean isNegated;
+
+        private CharSet(char[] ranges, boolean isNegated) {
+            this.ranges = ranges;
+            this.isNegated = isNegated;
+        }
+
+        static CharSet literal(char chr) {
+            return new CharSet(new char[]{chr, chr}, false);
+        }
+
+        /**
+         * @param start Index just after the opening bracket
+         * @param end   Index of the closing bracket
+         */
+        static CharSet parse(String glob, int start, int end) {
+            int index = start;
+            boolean isNegated = glob.charAt(index) == '!' || glob.charAt(index) == '^';
+            if (isNegated) {
+                index++;
+            }
+            StringBuilder ranges = new StringBuilder();
+            boolean isFirst = true;
+            while (index < end) {
+                char low = glob.charAt(index);
+                if (low == '\\') {
+                    low = glob.charAt(++index);
+                } else if (low == ']' && !isFirst) {
+                    break;
+                }
+                index++;
+                char high = low;
+                if (index + 1 < end && glob.charAt(index) == '-') {
+                    high = glob.charAt(index + 1);
+                    if (high == '\\' && index + 2 < end) {
+                        high = glob.charAt(index + 2);
+                        index++;
+                    }
+                    index += 2;
+                }
+                ranges.append(low).append(high);
+                isFirst = false;
+            }
+            return new CharSet(ranges.toString().toCharArray(), isNegated);
+        }
+
+        boolean contains(char chr) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (chr >= ranges[i] && chr <= ranges[i + 1]) {
+                    return !isNegated;
+                }
+            }
+            return isNegated;
+        }
+    }
+}
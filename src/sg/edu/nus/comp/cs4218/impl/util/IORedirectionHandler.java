@@ -20,6 +20,9 @@ import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.CHAR_REDIR_OUTPUT;
 /**
  * Utility class responsible for extracting the input and output streams appropriate for IO redirection,
  * and separates arguments (tokens) which are not redirection related
+ * <p>
+ * Redirected files are opened as file streams, so applications can reach their channels through
+ * {@link IOUtils#getFileChannel(InputStream)} and {@link IOUtils#getFileChannel(OutputStream)}.
  */
 @SuppressWarnings("PMD.ExcessiveMethodLength")
 public class IORedirectionHandler {
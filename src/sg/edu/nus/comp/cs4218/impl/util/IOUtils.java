@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -23,6 +24,8 @@ import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_IO_EXCEPTION;
 
 @SuppressWarnings("PMD.PreserveStackTrace")
 public final class IOUtils {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
     private IOUtils() {
     }
     
@@ -47,7 +50,7 @@ public final class IOUtils {
     }
     
     /**
-     * Open an outputStream based on the file name.
+     * Open an outputStream based on the file name, buffered as set in {@link ShellConfig}.
      *
      * @param fileName String containing file name.
      * @return OutputStream of file opened.
@@ -63,7 +66,10 @@ public final class IOUtils {
         try {
             file.getParentFile().mkdirs(); // create all necessary parent directories
             file.createNewFile(); // creates file only if it does not exist
-            fileOutputStream = new FileOutputStream(file);
+            int bufferSize = ShellConfig.getOutputBufferSize();
+            fileOutputStream = bufferSize > 0
+              ? new ShellFileOutputStream(file, bufferSize, ShellConfig.getOutputFlushPolicy())
+              : new FileOutputStream(file);
         } catch (IOException e) {
             throw (ShellException) new ShellException(ERR_IO_EXCEPTION).initCause(e);
         }
@@ -107,8 +113,71 @@ public final class IOUtils {
         }
     }
     
+    /**
+     * Returns the channel of the file an inputStream reads, such as one opened for input
+     * redirection, through which its bytes can be mapped or transferred without copying them
+     * into the heap.
+     *
+     * @param inputStream InputStream which may read a file.
+     * @return FileChannel positioned where the stream reads next, or null if the stream does not
+     * read a file.
+     */
+    public static FileChannel getFileChannel(InputStream inputStream) {
+        return inputStream instanceof FileInputStream ? ((FileInputStream) inputStream).getChannel() : null;
+    }
+    
+    /**
+     * Returns the channel of the file an outputStream writes, such as one opened for output
+     * redirection, after writing out anything the stream buffers.
+     *
+     * @param outputStream OutputStream which may write a file.
+     * @return FileChannel positioned where the stream writes next, or null if the stream does not
+     * write a file.
+     * @throws IOException If the buffered output cannot be written.
+     */
+    public static FileChannel getFileChannel(OutputStream outputStream) throws IOException {
+        if (outputStream instanceof ShellOutputStream) {
+            return ((ShellOutputStream) outputStream).getFileChannel();
+        }
+        return outputStream instanceof FileOutputStream ? ((FileOutputStream) outputStream).getChannel() : null;
+    }
+    
+    /**
+     * Copies the rest of an inputStream to an outputStream. From one file to another the bytes are
+     * moved with {@link FileChannel#transferTo}, which the operating system can do without them
+     * ever entering the JVM; anything left, or any other streams, are copied through a buffer.
+     *
+     * @param input  InputStream to read to its end.
+     * @param output OutputStream to write to, which is not flushed or closed.
+     * @return number of bytes copied.
+     * @throws IOException If either stream fails.
+     */
+    public static long transfer(InputStream input, OutputStream output) throws IOException {
+        long count = 0;
+        FileChannel source = getFileChannel(input);
+        FileChannel target = getFileChannel(output);
+        if (source != null && target != null) {
+            long position = source.position();
+            long size = source.size();
+            long transferred;
+            // a channel which is not a regular file, such as a pipe, may have no size
+            while (position + count < size
+              && (transferred = source.transferTo(position + count, size - position - count, target)) > 0) {
+                count += transferred;
+            }
+            source.position(position + count);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+            count += read;
+        }
+        return count;
+    }
+    
     public static Path resolveFilePath(String fileName) {
-        Path currentDirectory = Paths.get(Environment.currentDirectory);
+        Path currentDirectory = Paths.get(Environment.getCurrentDirectory());
         return currentDirectory.resolve(fileName);
     }
     
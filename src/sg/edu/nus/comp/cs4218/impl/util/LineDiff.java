@@ -0,0 +1,508 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes a shortest edit script between two sequences of lines.
+ * <p>
+ * Lines are first replaced by integer ids, equal lines sharing an id, so the algorithms only ever
+ * compare ints. Two algorithms are available:
+ * <ul>
+ * <li>{@link Algorithm#MYERS}: Myers' O(ND) algorithm in its linear space form, which bisects the
+ * edit graph at the middle snake and recurses on both halves.</li>
+ * <li>{@link Algorithm#PATIENCE}: anchors the diff on lines occurring exactly once in both
+ * sequences, in the longest increasing order, and diffs the gaps between anchors recursively,
+ * falling back to Myers where there are no unique lines. It tends to give more readable hunks
+ * when blocks of code are moved around.</li>
+ * </ul>
+ * Common prefixes and suffixes are stripped before either algorithm runs, and, as GNU diff does,
+ * lines occurring in only one of the sequences are marked changed up front, as no match can
+ * include them, so that two mostly unrelated inputs cost no more than the lines they share.
+ * Like GNU diff, Myers gives up on a minimal script once a middle snake takes more than about
+ * the square root of the input size to find, and splits where its search reached furthest, which
+ * bounds the cost of inputs with very many changes.
+ */
+public final class LineDiff {
+
+    /**
+     * Algorithm used to match the lines of both sequences.
+     */
+    public enum Algorithm {
+        MYERS, PATIENCE
+    }
+
+    private static final int MIN_COST_LIMIT = 256;
+
+    private final int[] linesA;
+    private final int[] linesB;
+    private final boolean[] removed;
+    private final boolean[] added;
+    private final int costLimit;
+    private int[] forward;
+    private int[] backward;
+
+    private LineDiff(int[] linesA, int[] linesB) {
+        this.linesA = linesA;
+        this.linesB = linesB;
+        this.removed = new boolean[linesA.length];
+        this.added = new boolean[linesB.length];
+        int limit = 1;
+        for (long diagonals = (long) linesA.length + linesB.length; diagonals != 0; diagonals >>= 2) {
+            limit <<= 1;
+        }
+        this.costLimit = Math.max(MIN_COST_LIMIT, limit);
+    }
+
+    /**
+     * @param linesA    Lines of the first sequence
+     * @param linesB    Lines of the second sequence
+     * @param algorithm Algorithm used to match lines
+     * @return the hunks of lines which differ, in order
+     */
+    public static List<Hunk> diff(String[] linesA, String[] linesB, Algorithm algorithm) {
+        Map<String, Integer> ids = new HashMap<>();
+        int[] idsA = toIds(linesA, ids);
+        int[] idsB = toIds(linesB, ids);
+        return diff(idsA, idsB, algorithm);
+    }
+
+    /**
+     * @param linesA    Lines of the first input
+     * @param linesB    Lines of the second input
+     * @param algorithm Algorithm used to match lines
+     * @return the hunks of lines which differ, in order
+     */
+    public static List<Hunk> diff(LineTable linesA, LineTable linesB, Algorithm algorithm) {
+        int[][] ids = LineTable.assignIds(linesA, linesB);
+        return diff(ids[0], ids[1], algorithm);
+    }
+
+    /**
+     * @param linesA    Ids of the lines of the first sequence
+     * @param linesB    Ids of the lines of the second sequence
+     * @param algorithm Algorithm used to match lines
+     * @return the hunks of lines which differ, in order
+     */
+    public static List<Hunk> diff(int[] linesA, int[] linesB, Algorithm algorithm) {
+        LineDiff diff = new LineDiff(linesA, linesB);
+        diff.matchShared(algorithm);
+        return diff.collectHunks();
+    }
+
+    /**
+     * Marks the lines occurring in only one sequence as changed, and matches the lines left with
+     * the given algorithm.
+     */
+    private void matchShared(Algorithm algorithm) {
+        boolean[][] isShared = findShared(linesA, linesB);
+        int[] sharedA = indicesOf(isShared[0]);
+        int[] sharedB = indicesOf(isShared[1]);
+        if (sharedA.length == linesA.length && sharedB.length == linesB.length) {
+            match(algorithm);
+            return;
+        }
+        LineDiff shared = new LineDiff(select(linesA, sharedA), select(linesB, sharedB));
+        shared.match(algorithm);
+        Arrays.fill(removed, true);
+        Arrays.fill(added, true);
+        for (int i = 0; i < sharedA.length; i++) {
+            removed[sharedA[i]] = shared.removed[i];
+        }
+        for (int i = 0; i < sharedB.length; i++) {
+            added[sharedB[i]] = shared.added[i];
+        }
+    }
+
+    private void match(Algorithm algorithm) {
+        if (algorithm == Algorithm.PATIENCE) {
+            patience(0, linesA.length, 0, linesB.length);
+        } else {
+            myers(0, linesA.length, 0, linesB.length);
+        }
+    }
+
+    /**
+     * @return for each line of either sequence, whether the other sequence has a line equal to it
+     */
+    private static boolean[][] findShared(int[] linesA, int[] linesB) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int[] lines : new int[][]{linesA, linesB}) {
+            for (int id : lines) {
+                min = Math.min(min, id);
+                max = Math.max(max, id);
+            }
+        }
+        boolean[][] isShared = {new boolean[linesA.length], new boolean[linesB.length]};
+        if ((long) max - min <= 2L * (linesA.length + linesB.length)) {
+            // Ids are dense, as the ids of lines are
+            boolean[] isInA = new boolean[max - min + 1];
+            boolean[] isInB = new boolean[max - min + 1];
+            for (int id : linesA) {
+                isInA[id - min] = true;
+            }
+            for (int id : linesB) {
+                isInB[id - min] = true;
+            }
+            for (int i = 0; i < linesA.length; i++) {
+                isShared[0][i] = isInB[linesA[i] - min];
+            }
+            for (int i = 0; i < linesB.length; i++) {
+                isShared[1][i] = isInA[linesB[i] - min];
+            }
+        } else {
+            Set<Integer> idsA = new HashSet<>();
+            Set<Integer> idsB = new HashSet<>();
+            for (int id : linesA) {
+                idsA.add(id);
+            }
+            for (int id : linesB) {
+                idsB.add(id);
+            }
+            for (int i = 0; i < linesA.length; i++) {
+                isShared[0][i] = idsB.contains(linesA[i]);
+            }
+            for (int i = 0; i < linesB.length; i++) {
+                isShared[1][i] = idsA.contains(linesB[i]);
+            }
+        }
+        return isShared;
+    }
+
+    private static int[] indicesOf(boolean... flags) {
+        int count = 0;
+        for (boolean flag : flags) {
+            count += flag ? 1 : 0;
+        }
+        int[] indices = new int[count];
+        count = 0;
+        for (int i = 0; i < flags.length; i++) {
+            if (flags[i]) {
+                indices[count++] = i;
+            }
+        }
+        return indices;
+    }
+
+    private static int[] select(int[] lines, int... indices) {
+        int[] result = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            result[i] = lines[indices[i]];
+        }
+        return result;
+    }
+
+    private static int[] toIds(String[] lines, Map<String, Integer> ids) {
+        int[] result = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            Integer id = ids.get(lines[i]);
+            if (id == null) {
+                id = ids.size();
+                ids.put(lines[i], id);
+            }
+            result[i] = id;
+        }
+        return result;
+    }
+
+    /**
+     * Groups consecutive removed and added lines into hunks.
+     */
+    private List<Hunk> collectHunks() {
+        List<Hunk> hunks = new ArrayList<>();
+        int indexA = 0;
+        int indexB = 0;
+        while (indexA < removed.length || indexB < added.length) {
+            if (indexA < removed.length && indexB < added.length && !removed[indexA] && !added[indexB]) {
+                indexA++;
+                indexB++;
+                continue;
+            }
+            int startA = indexA;
+            int startB = indexB;
+            while (indexA < removed.length && removed[indexA]) {
+                indexA++;
+            }
+            while (indexB < added.length && added[indexB]) {
+                indexB++;
+            }
+            hunks.add(new Hunk(startA, indexA, startB, indexB));
+        }
+        return hunks;
+    }
+
+    private void myers(int startA, int endA, int startB, int endB) {
+        int lowA = startA;
+        int highA = endA;
+        int lowB = startB;
+        int highB = endB;
+        while (lowA < highA && lowB < highB && linesA[lowA] == linesB[lowB]) {
+            lowA++;
+            lowB++;
+        }
+        while (lowA < highA && lowB < highB && linesA[highA - 1] == linesB[highB - 1]) {
+            highA--;
+            highB--;
+        }
+        if (lowA == highA || lowB == highB) {
+            markChanged(lowA, highA, lowB, highB);
+            return;
+        }
+        long split = bisect(lowA, highA, lowB, highB);
+        int splitA = (int) (split >>> 32);
+        int splitB = (int) split;
+        if (split < 0 || (splitA == lowA && splitB == lowB) || (splitA == highA && splitB == highB)) {
+            markChanged(lowA, highA, lowB, highB);
+            return;
+        }
+        myers(lowA, splitA, lowB, splitB);
+        myers(splitA, highA, splitB, highB);
+    }
+
+    /**
+     * Finds the middle snake of the edit graph of two non-empty ranges, walking forward from the
+     * start and backward from the end until the paths overlap. Past the cost limit, the point
+     * either walk reached furthest is taken instead, which gives a valid but not always minimal
+     * edit script.
+     *
+     * @return the point to split both ranges at, as (indexA &lt;&lt; 32 | indexB), or -1 if the
+     * ranges have nothing in common
+     */
+    private long bisect(int startA, int endA, int startB, int endB) { //NOPMD
+        int lengthA = endA - startA;
+        int lengthB = endB - startB;
+        int maxD = (lengthA + lengthB + 1) / 2;
+        int offset = maxD;
+        int size = 2 * maxD + 2;
+        if (forward == null) {
+            forward = new int[2 * ((linesA.length + linesB.length + 1) / 2) + 2];
+            backward = new int[forward.length];
+        }
+        Arrays.fill(forward, 0, size, -1);
+        Arrays.fill(backward, 0, size, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        int delta = lengthA - lengthB;
+        boolean isFrontOverlap = (delta % 2) != 0;
+        int forwardStart = 0;
+        int forwardEnd = 0;
+        int backwardStart = 0;
+        int backwardEnd = 0;
+        int forwardReach = -1;
+        long forwardSplit = -1;
+        int backwardReach = -1;
+        long backwardSplit = -1;
+        for (int d = 0; d < maxD; d++) {
+            for (int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+                int index = offset + k;
+                int x;
+                if (k == -d || (k != d && forward[index - 1] < forward[index + 1])) {
+                    x = forward[index + 1];
+                } else {
+                    x = forward[index - 1] + 1;
+                }
+                int y = x - k;
+                while (x < lengthA && y < lengthB && linesA[startA + x] == linesB[startB + y]) {
+                    x++;
+                    y++;
+                }
+                forward[index] = x;
+                if (x > lengthA) {
+                    forwardEnd += 2;
+                } else if (y > lengthB) {
+                    forwardStart += 2;
+                } else {
+                    if (x + y > forwardReach && y >= 0) {
+                        forwardReach = x + y;
+                        forwardSplit = ((long) (startA + x) << 32) | (startB + y);
+                    }
+                    int backIndex = offset + delta - k;
+                    if (isFrontOverlap && backIndex >= 0 && backIndex < size && backward[backIndex] != -1
+                      && x >= lengthA - backward[backIndex]) {
+                        return ((long) (startA + x) << 32) | (startB + y);
+                    }
+                }
+            }
+            for (int k = -d + backwardStart; k <= d - backwardEnd; k += 2) {
+                int index = offset + k;
+                int x;
+                if (k == -d || (k != d && backward[index - 1] < backward[index + 1])) {
+                    x = backward[index + 1];
+                } else {
+                    x = backward[index - 1] + 1;
+                }
+                int y = x - k;
+                while (x < lengthA && y < lengthB
+                  && linesA[endA - x - 1] == linesB[endB - y - 1]) {
+                    x++;
+                    y++;
+                }
+                backward[index] = x;
+                if (x > lengthA) {
+                    backwardEnd += 2;
+                } else if (y > lengthB) {
+                    backwardStart += 2;
+                } else {
+                    if (x + y > backwardReach && y >= 0) {
+                        backwardReach = x + y;
+                        backwardSplit = ((long) (endA - x) << 32) | (endB - y);
+                    }
+                    int frontIndex = offset + delta - k;
+                    if (!isFrontOverlap && frontIndex >= 0 && frontIndex < size && forward[frontIndex] != -1) {
+                        int frontX = forward[frontIndex];
+                        int frontY = offset + frontX - frontIndex;
+                        if (frontX >= lengthA - x) {
+                            return ((long) (startA + frontX) << 32) | (startB + frontY);
+                        }
+                    }
+                }
+            }
+            if (d + 1 >= costLimit) {
+                // Too expensive to find the middle snake: split where either walk got furthest
+                return forwardReach >= backwardReach ? forwardSplit : backwardSplit;
+            }
+        }
+        return -1;
+    }
+
+    private void patience(int startA, int endA, int startB, int endB) {
+        int lowA = startA;
+        int highA = endA;
+        int lowB = startB;
+        int highB = endB;
+        while (lowA < highA && lowB < highB && linesA[lowA] == linesB[lowB]) {
+            lowA++;
+            lowB++;
+        }
+        while (lowA < highA && lowB < highB && linesA[highA - 1] == linesB[highB - 1]) {
+            highA--;
+            highB--;
+        }
+        if (lowA == highA || lowB == highB) {
+            markChanged(lowA, highA, lowB, highB);
+            return;
+        }
+        int[][] anchors = findAnchors(lowA, highA, lowB, highB);
+        if (anchors.length == 0) {
+            myers(lowA, highA, lowB, highB);
+            return;
+        }
+        int previousA = lowA;
+        int previousB = lowB;
+        for (int[] anchor : anchors) {
+            patience(previousA, anchor[0], previousB, anchor[1]);
+            previousA = anchor[0] + 1;
+            previousB = anchor[1] + 1;
+        }
+        patience(previousA, highA, previousB, highB);
+    }
+
+    /**
+     * @return pairs of indices of lines unique in both ranges, forming the longest sequence which
+     * is increasing in both
+     */
+    private int[][] findAnchors(int startA, int endA, int startB, int endB) {
+        // For each line id: occurrences in A, index in A, occurrences in B, index in B
+        Map<Integer, int[]> occurrences = new HashMap<>();
+        for (int i = startA; i < endA; i++) {
+            int[] entry = occurrences.computeIfAbsent(linesA[i], id -> new int[4]);
+            entry[0]++;
+            entry[1] = i;
+        }
+        for (int i = startB; i < endB; i++) {
+            int[] entry = occurrences.get(linesB[i]);
+            if (entry != null) {
+                entry[2]++;
+                entry[3] = i;
+            }
+        }
+        List<int[]> unique = new ArrayList<>();
+        for (int i = startB; i < endB; i++) {
+            int[] entry = occurrences.get(linesB[i]);
+            if (entry != null && entry[0] == 1 && entry[2] == 1) {
+                unique.add(new int[]{entry[1], entry[3]});
+            }
+        }
+        return longestIncreasing(unique);
+    }
+
+    /**
+     * Patience sorting of pairs ordered by their B index, keeping the longest subsequence whose A
+     * indices increase.
+     */
+    private static int[][] longestIncreasing(List<int[]> pairs) {
+        int[] tails = new int[pairs.size()];
+        int[] previous = new int[pairs.size()];
+        int length = 0;
+        for (int i = 0; i < pairs.size(); i++) {
+            int indexA = pairs.get(i)[0];
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (pairs.get(tails[middle])[0] < indexA) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        int[][] result = new int[length][];
+        int index = length > 0 ? tails[length - 1] : -1;
+        for (int i = length - 1; i >= 0; i--) {
+            result[i] = pairs.get(index);
+            index = previous[index];
+        }
+        return result;
+    }
+
+    private void markChanged(int startA, int endA, int startB, int endB) {
+        Arrays.fill(removed, startA, endA, true);
+        Arrays.fill(added, startB, endB, true);
+    }
+
+    /**
+     * Lines [startA, endA) of the first sequence replaced by lines [startB, endB) of the second.
+     * Either range may be empty.
+     */
+    public static final class Hunk {
+        private final int startA;
+        private final int endA;
+        private final int startB;
+        private final int endB;
+
+        public Hunk(int startA, int endA, int startB, int endB) {
+            this.startA = startA;
+            this.endA = endA;
+            this.startB = startB;
+            this.endB = endB;
+        }
+
+        public int getStartA() {
+            return startA;
+        }
+
+        public int getEndA() {
+            return endA;
+        }
+
+        public int getStartB() {
+            return startB;
+        }
+
+        public int getEndB() {
+            return endB;
+        }
+    }
+}
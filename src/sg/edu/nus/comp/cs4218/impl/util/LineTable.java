@@ -0,0 +1,296 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The lines of a file or stream, held as the offset, length and hash of each line into the raw
+ * bytes instead of as strings.
+ * <p>
+ * Files of more than a few hundred kilobytes are memory mapped, in windows of at most 1 GiB, and
+ * streams larger than that are first copied to a temporary file which is mapped in turn, so the
+ * heap only holds 16 bytes per line. A stream reading a file, such as a redirected standard
+ * input, is mapped where it is instead of being copied. Lines are decoded with the default charset only when
+ * {@link #getLine(int)} is called, e.g. for the lines which are part of a diff.
+ */
+public final class LineTable implements Closeable {
+
+    private static final int MAP_THRESHOLD = 256 * 1024;
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+    private static final int INITIAL_LINES = 64;
+
+    private final ByteBuffer[] segments;
+    private final Path tempFile;
+    private long[] starts = new long[INITIAL_LINES];
+    private int[] lengths = new int[INITIAL_LINES];
+    private int[] hashes = new int[INITIAL_LINES];
+    private int count;
+
+    private LineTable(ByteBuffer[] segments, Path tempFile) {
+        this.segments = segments;
+        this.tempFile = tempFile;
+    }
+
+    /**
+     * Splits a file at each '\n' the way <code>String.split("\n")</code> does: trailing empty
+     * lines are dropped, but a file without any '\n' is a single line, even if it is empty.
+     *
+     * @param path File to read
+     * @return the lines of the file
+     * @throws IOException If the file cannot be read
+     */
+    public static LineTable ofFile(Path path) throws IOException {
+        LineTable table = new LineTable(readSegments(path), null);
+        table.split(false);
+        return table;
+    }
+
+    /**
+     * Splits a stream at each '\n', '\r' or "\r\n" the way <code>BufferedReader.readLine</code>
+     * does: an empty stream has no lines, and no empty line follows the last line break.
+     *
+     * @param input Stream to read to its end
+     * @return the lines of the stream
+     * @throws IOException If the stream cannot be read
+     */
+    public static LineTable ofStream(InputStream input) throws IOException {
+        FileChannel channel = IOUtils.getFileChannel(input);
+        if (channel != null && channel.size() - channel.position() >= MAP_THRESHOLD) {
+            long size = channel.size();
+            LineTable table = new LineTable(mapSegments(channel, channel.position(), size), null);
+            channel.position(size);
+            table.split(true);
+            return table;
+        }
+        byte[] head = new byte[MAP_THRESHOLD];
+        int size = 0;
+        int read;
+        while (size < head.length && (read = input.read(head, size, head.length - size)) != -1) {
+            size += read;
+        }
+        LineTable table;
+        if (size < head.length) {
+            table = new LineTable(new ByteBuffer[]{ByteBuffer.wrap(head, 0, size).slice()}, null);
+        } else {
+            Path tempFile = Files.createTempFile("cs4218-diff", ".in");
+            try {
+                try (OutputStream output = Files.newOutputStream(tempFile)) {
+                    output.write(head);
+                    IOUtils.transfer(input, output);
+                }
+                table = new LineTable(readSegments(tempFile), tempFile);
+            } catch (IOException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+        }
+        table.split(true);
+        return table;
+    }
+
+    /**
+     * @return a table without any lines
+     */
+    public static LineTable empty() {
+        return new LineTable(new ByteBuffer[]{ByteBuffer.allocate(0)}, null);
+    }
+
+    private static ByteBuffer[] readSegments(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MAP_THRESHOLD) {
+                ByteBuffer data = ByteBuffer.allocate((int) size);
+                while (data.hasRemaining() && channel.read(data) >= 0) {
+                    continue;
+                }
+                data.flip();
+                return new ByteBuffer[]{data};
+            }
+            return mapSegments(channel, 0, size);
+        }
+    }
+
+    /**
+     * Maps the bytes of the channel from the start up to the end, in windows of at most 1 GiB,
+     * which stay valid once the channel is closed.
+     */
+    private static ByteBuffer[] mapSegments(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer[] segments = new ByteBuffer[(int) ((end - start + SEGMENT_MASK) >>> SEGMENT_BITS)];
+        for (int i = 0; i < segments.length; i++) {
+            long position = start + ((long) i << SEGMENT_BITS);
+            long length = Math.min(end - position, 1L << SEGMENT_BITS);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+        return segments;
+    }
+
+    /**
+     * Records the start, length and hash of every line, in a single pass over the bytes.
+     */
+    private void split(boolean isCarriageReturnBreak) {
+        long lineStart = 0;
+        long position = 0;
+        int hash = 0;
+        boolean isAfterCarriageReturn = false;
+        boolean hasLineBreak = false;
+        for (ByteBuffer segment : segments) {
+            int limit = segment.limit();
+            for (int i = 0; i < limit; i++, position++) {
+                byte current = segment.get(i);
+                if (current == '\n') {
+                    if (!isAfterCarriageReturn) {
+                        addLine(lineStart, position, hash);
+                    }
+                    hasLineBreak = true;
+                    isAfterCarriageReturn = false;
+                    lineStart = position + 1;
+                    hash = 0;
+                } else if (current == '\r' && isCarriageReturnBreak) {
+                    addLine(lineStart, position, hash);
+                    isAfterCarriageReturn = true;
+                    lineStart = position + 1;
+                    hash = 0;
+                } else {
+                    isAfterCarriageReturn = false;
+                    hash = 31 * hash + current;
+                }
+            }
+        }
+        if (isCarriageReturnBreak) {
+            if (position > lineStart) {
+                addLine(lineStart, position, hash);
+            }
+        } else if (hasLineBreak) {
+            addLine(lineStart, position, hash);
+            while (count > 0 && lengths[count - 1] == 0) {
+                count--;
+            }
+        } else {
+            addLine(0, position, hash);
+        }
+    }
+
+    private void addLine(long start, long end, int hash) {
+        if (count == starts.length) {
+            int capacity = count * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        starts[count] = start;
+        lengths[count] = (int) (end - start);
+        hashes[count] = hash;
+        count++;
+    }
+
+    /**
+     * @return number of lines
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param index Index of the line
+     * @return true if the line has no characters
+     */
+    public boolean isEmpty(int index) {
+        return lengths[index] == 0;
+    }
+
+    /**
+     * @param index Index of the line
+     * @return the line decoded with the default charset, without its line break
+     */
+    public String getLine(int index) {
+        byte[] bytes = new byte[lengths[index]];
+        long start = starts[index];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = byteAt(start + i);
+        }
+        return new String(bytes, Charset.defaultCharset());
+    }
+
+    private byte byteAt(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+    }
+
+    private boolean isSameLine(int index, LineTable other, int otherIndex) {
+        if (hashes[index] != other.hashes[otherIndex] || lengths[index] != other.lengths[otherIndex]) {
+            return false;
+        }
+        long start = starts[index];
+        long otherStart = other.starts[otherIndex];
+        for (int i = 0; i < lengths[index]; i++) {
+            if (byteAt(start + i) != other.byteAt(otherStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Numbers the distinct lines of both tables, so that two lines get the same id exactly when
+     * their bytes are equal. Lines are found through an open addressing table on their hashes.
+     *
+     * @param first  Lines of the first input
+     * @param second Lines of the second input
+     * @return the ids of the lines of the first table, followed by those of the second
+     */
+    public static int[][] assignIds(LineTable first, LineTable second) {
+        int total = first.count + second.count;
+        int capacity = Integer.highestOneBit(Math.max(total, 1) * 2 - 1) << 1;
+        // Slots hold 1 + the index of the first line with a given content, counting lines of the
+        // second table after all those of the first; the id of a line is its slot's occupant id
+        int[] slots = new int[capacity];
+        int[] occupantIds = new int[capacity];
+        int nextId = 0;
+        int[][] ids = {new int[first.count], new int[second.count]};
+        LineTable[] tables = {first, second};
+        for (int t = 0; t < tables.length; t++) {
+            LineTable table = tables[t];
+            for (int i = 0; i < table.count; i++) {
+                int hash = table.hashes[i];
+                int slot = (hash ^ (hash >>> 16)) & (capacity - 1);
+                while (true) {
+                    int occupant = slots[slot] - 1;
+                    if (occupant < 0) {
+                        slots[slot] = (t == 0 ? i : first.count + i) + 1;
+                        occupantIds[slot] = nextId;
+                        ids[t][i] = nextId++;
+                        break;
+                    }
+                    boolean isSame = occupant < first.count
+                      ? table.isSameLine(i, first, occupant)
+                      : table.isSameLine(i, second, occupant - first.count);
+                    if (isSame) {
+                        ids[t][i] = occupantIds[slot];
+                        break;
+                    }
+                    slot = (slot + 1) & (capacity - 1);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Deletes the temporary copy of a large stream, if one was made.
+     */
+    @Override
+    public void close() throws IOException {
+        if (tempFile != null) {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded byte channel between exactly one producer thread and one consumer thread.
+ * <p>
+ * Bytes are stored in a ring buffer whose read and write positions are only ever advanced by their
+ * owning side, so no locks are taken on the data path. A side that finds the buffer full (or empty)
+ * parks until the other side makes progress, which gives the producer backpressure.
+ * <p>
+ * Closing the output signals end of file to the reader once the buffer has been drained. Closing
+ * the input tells the writer nobody is listening any more: further output is silently discarded,
+ * like a process ignoring SIGPIPE, so a producer never blocks on a consumer that has finished.
+ * <p>
+ * Both faces must not be used from the same thread, as the writer would block forever on a full
+ * buffer.
+ */
+public final class PipeChannel {
+    public static final int DEFAULT_BATCH_SIZE = 8 * 1024;
+
+    private static final int SPINS_BEFORE_PARK = 64;
+    private static final long PARK_NANOS = 1_000_000L;
+
+    private final byte[] buffer;
+    private final int mask;
+    private final AtomicLong readPosition = new AtomicLong();
+    private final AtomicLong writePosition = new AtomicLong();
+    private final ChannelInputStream inputStream;
+    private final ChannelOutputStream outputStream;
+
+    private volatile boolean isWriterClosed;
+    private volatile boolean isReaderClosed;
+    private volatile Thread waitingReader;
+    private volatile Thread waitingWriter;
+
+    public PipeChannel() {
+        this(ShellConfig.getPipeCapacity(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param capacity  Number of bytes the channel can hold, rounded up to a power of two.
+     * @param batchSize Number of bytes the output face gathers before publishing them to the
+     *                  reader. Use 0 to publish every write immediately.
+     */
+    public PipeChannel(int capacity, int batchSize) {
+        if (capacity <= 0 || batchSize < 0) {
+            throw new IllegalArgumentException("Invalid pipe capacity or batch size");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new byte[size];
+        this.mask = size - 1;
+        this.inputStream = new ChannelInputStream();
+        this.outputStream = new ChannelOutputStream(Math.min(batchSize, size));
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Copies bytes into the ring, blocking while it is full. Only called by the producer.
+     */
+    private void publish(byte[] bytes, int off, int len) throws IOException {
+        int offset = off;
+        int remaining = len;
+        long write = writePosition.get();
+        while (remaining > 0) {
+            if (isReaderClosed) {
+                return;
+            }
+            int free = buffer.length - (int) (write - readPosition.get());
+            if (free == 0) {
+                awaitSpace(write);
+                continue;
+            }
+            int count = Math.min(remaining, free);
+            int index = (int) write & mask;
+            int firstPart = Math.min(count, buffer.length - index);
+            System.arraycopy(bytes, offset, buffer, index, firstPart);
+            System.arraycopy(bytes, offset + firstPart, buffer, 0, count - firstPart);
+            write += count;
+            writePosition.set(write);
+            unpark(waitingReader);
+            offset += count;
+            remaining -= count;
+        }
+    }
+
+    /**
+     * Copies up to len bytes out of the ring, blocking while it is empty. Only called by the
+     * consumer.
+     *
+     * @return number of bytes read, or -1 at end of file
+     */
+    private int consume(byte[] bytes, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        long read = readPosition.get();
+        int available = awaitData(read);
+        if (available == 0) {
+            return -1;
+        }
+        int count = Math.min(len, available);
+        int index = (int) read & mask;
+        int firstPart = Math.min(count, buffer.length - index);
+        System.arraycopy(buffer, index, bytes, off, firstPart);
+        System.arraycopy(buffer, 0, bytes, off + firstPart, count - firstPart);
+        readPosition.set(read + count);
+        unpark(waitingWriter);
+        return count;
+    }
+
+    /**
+     * @return number of readable bytes, or 0 if the writer closed the channel and it is drained
+     */
+    private int awaitData(long read) throws IOException {
+        int spins = 0;
+        while (true) {
+            boolean isClosed = isWriterClosed;
+            int available = (int) (writePosition.get() - read);
+            if (available > 0 || isClosed) {
+                return available;
+            }
+            if (spins < SPINS_BEFORE_PARK) {
+                spins++;
+                Thread.yield();
+                continue;
+            }
+            waitingReader = Thread.currentThread();
+            if (writePosition.get() == read && !isWriterClosed) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            waitingReader = null;
+            checkInterrupted();
+        }
+    }
+
+    private void awaitSpace(long write) throws IOException {
+        int spins = 0;
+        while (!isReaderClosed && write - readPosition.get() == buffer.length) {
+            if (spins < SPINS_BEFORE_PARK) {
+                spins++;
+                Thread.yield();
+                continue;
+            }
+            waitingWriter = Thread.currentThread();
+            if (!isReaderClosed && write - readPosition.get() == buffer.length) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            waitingWriter = null;
+            checkInterrupted();
+        }
+    }
+
+    private static void unpark(Thread thread) {
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.interrupted()) {
+            throw new InterruptedIOException("Interrupted while waiting on pipe");
+        }
+    }
+
+    /**
+     * Reading face of the channel.
+     */
+    private final class ChannelInputStream extends InputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return consume(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > bytes.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            return consume(bytes, off, len);
+        }
+
+        @Override
+        public int available() {
+            return (int) (writePosition.get() - readPosition.get());
+        }
+
+        @Override
+        public void close() {
+            isReaderClosed = true;
+            unpark(waitingWriter);
+        }
+    }
+
+    /**
+     * Writing face of the channel. Small writes are gathered into a batch so the reader is woken
+     * up once per batch rather than once per write.
+     */
+    private final class ChannelOutputStream extends OutputStream {
+        private final byte[] batch;
+        private int batchLength;
+
+        ChannelOutputStream(int batchSize) {
+            super();
+            this.batch = new byte[batchSize];
+        }
+
+        @Override
+        public void write(int data) throws IOException {
+            if (isWriterClosed) {
+                throw new IOException(ErrorConstants.ERR_WRITE_STREAM);
+            }
+            if (batch.length == 0) {
+                publish(new byte[]{(byte) data}, 0, 1);
+                return;
+            }
+            if (batchLength == batch.length) {
+                flush();
+            }
+            batch[batchLength++] = (byte) data;
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > bytes.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (isWriterClosed) {
+                throw new IOException(ErrorConstants.ERR_WRITE_STREAM);
+            }
+            if (len >= batch.length - batchLength) {
+                flush();
+                if (len >= batch.length) {
+                    publish(bytes, off, len);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, off, batch, batchLength, len);
+            batchLength += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (batchLength > 0) {
+                int length = batchLength;
+                batchLength = 0;
+                publish(batch, 0, length);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (isWriterClosed) {
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                isWriterClosed = true;
+                unpark(waitingReader);
+            }
+        }
+    }
+}
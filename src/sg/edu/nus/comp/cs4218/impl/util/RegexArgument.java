@@ -2,26 +2,32 @@ package sg.edu.nus.comp.cs4218.impl.util;
 
 import sg.edu.nus.comp.cs4218.Environment;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
-import java.util.regex.Pattern;
 
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.CHAR_ASTERISK;
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.CHAR_FILE_SEP;
 
 @SuppressWarnings("PMD.AvoidStringBufferField")
 public final class RegexArgument {
+    private static final String RECURSIVE_SEGMENT = "**";
+    
     private StringBuilder plaintext;
-    private StringBuilder regex;
+    private StringBuilder glob;
+    // Indices of the path separators of the glob, which split it into one pattern per path segment
+    private List<Integer> globSeparators;
     private boolean isRegex;
     
     public RegexArgument() {
         this.plaintext = new StringBuilder();
-        this.regex = new StringBuilder();
+        this.glob = new StringBuilder();
+        this.globSeparators = new ArrayList<>();
         this.isRegex = false;
     }
     
@@ -36,61 +42,93 @@ public final class RegexArgument {
         this();
         this.plaintext.append(text);
         this.isRegex = isRegex;
-        this.regex.append(".*"); // We want to match filenames
+        this.glob.append(CHAR_ASTERISK); // We want to match filenames
         for (char c : str.toCharArray()) {
             if (c == CHAR_ASTERISK) {
-                this.regex.append("[^" + StringUtils.fileSeparator() + "]*");
+                this.glob.append(CHAR_ASTERISK);
             } else {
-                this.regex.append(Pattern.quote(String.valueOf(c)));
+                appendLiteralToGlob(c);
             }
         }
     }
     
     public void append(char chr) {
         plaintext.append(chr);
-        regex.append(Pattern.quote(String.valueOf(chr)));
+        appendLiteralToGlob(chr);
     }
     
     public void appendAsterisk() {
         plaintext.append(CHAR_ASTERISK);
-        regex.append("[^" + StringUtils.fileSeparator() + "]*");
+        glob.append(CHAR_ASTERISK);
         isRegex = true;
     }
     
     public void merge(RegexArgument other) {
+        int offset = glob.length();
+        for (int i = 0, size = other.globSeparators.size(); i < size; i++) {
+            globSeparators.add(offset + other.globSeparators.get(i));
+        }
         plaintext.append(other.plaintext);
-        regex.append(other.regex);
+        glob.append(other.glob);
         isRegex = isRegex || other.isRegex;
     }
     
     public void merge(String str) {
+        for (char c : str.toCharArray()) {
+            appendLiteralToGlob(c);
+        }
         plaintext.append(str);
-        regex.append(Pattern.quote(str));
     }
     
+    private void appendLiteralToGlob(char chr) {
+        if (chr == CHAR_FILE_SEP || chr == '/' || chr == '\\') {
+            globSeparators.add(glob.length());
+            glob.append(chr);
+        } else {
+            glob.append(GlobMatcher.quote(chr));
+        }
+    }
+    
+    /**
+     * Expands the argument into the paths it matches, in alphabetical order, or into itself if
+     * it has no unquoted asterisk or matches nothing.
+     * <p>
+     * The glob is expanded one path segment at a time, only descending into the directories
+     * which match each segment: literal segments are looked up directly, other segments are
+     * matched against the entries of the directory, whose listing is cached by {@link GlobCache}
+     * as long as the directory is unchanged. With
+     * {@link ShellConfig#isGlobStar()}, a <code>**</code> segment matches any number of nested
+     * directories, including none, without following links; otherwise it is the same as
+     * <code>*</code>.
+     */
     public List<String> globFiles() {
-        List<String> globbedFiles = new LinkedList<>();
+        List<String> globbedFiles = new ArrayList<>();
         
         if (isRegex) {
-            Pattern regexPattern = Pattern.compile(regex.toString());
-            StringBuilder dir = new StringBuilder();
-            String tokens[] = plaintext.toString().replaceAll("\\\\", "/").split("/");
-            for (int i = 0; i < tokens.length - 1; i++) {
-                dir.append(tokens[i]).append(StringUtils.fileSeparator());
+            List<GlobMatcher> segments = new ArrayList<>();
+            int start = 0;
+            for (int separator : globSeparators) {
+                segments.add(GlobCache.compile(glob.substring(start, separator)));
+                start = separator + 1;
             }
+            segments.add(GlobCache.compile(glob.substring(start)));
             
-            File currentDir = Paths.get(Environment.currentDirectory + StringUtils.fileSeparator() + dir.toString()).toFile();
-            
-            if (currentDir == null || currentDir.list() == null) {
-                return Collections.singletonList(plaintext.toString());
-            }
-            for (String candidate : Objects.requireNonNull(currentDir.list())) {
-                if (regexPattern.matcher(dir + candidate).matches()) {
-                    globbedFiles.add(dir + candidate);
-                }
+            if (segments.size() > 1 && "".equals(segments.get(segments.size() - 1).getLiteral())) {
+                // Nothing is matched with a trailing separator, names never end with one
+                segments.clear();
+            } else if (segments.size() > 1 && "".equals(segments.get(0).getLiteral())) {
+                expand(Paths.get(StringUtils.fileSeparator()), StringUtils.fileSeparator(), segments, 1,
+                  globbedFiles);
+            } else {
+                expand(Paths.get(Environment.getCurrentDirectory()), "", segments, 0, globbedFiles);
             }
             
             Collections.sort(globbedFiles);
+            for (int i = globbedFiles.size() - 1; i > 0; i--) {
+                if (globbedFiles.get(i).equals(globbedFiles.get(i - 1))) {
+                    globbedFiles.remove(i);
+                }
+            }
         }
         
         if (globbedFiles.isEmpty()) {
@@ -100,6 +138,87 @@ public final class RegexArgument {
         return globbedFiles;
     }
     
+    /**
+     * Adds the paths below a directory which match the remaining segments.
+     *
+     * @param dir      directory the remaining segments are matched in
+     * @param prefix   path of the directory as displayed, ending with a separator unless empty
+     * @param segments one pattern per path segment
+     * @param index    index of the first remaining segment
+     * @param matches  list the matching paths are added to
+     */
+    private static void expand(Path dir, String prefix, List<GlobMatcher> segments, int index,
+                               List<String> matches) {
+        GlobMatcher segment = segments.get(index);
+        boolean isLast = index == segments.size() - 1;
+        String literal = segment.getLiteral();
+        
+        if (literal != null) {
+            Path child = dir.resolve(literal);
+            if (isLast ? Files.exists(child) : Files.isDirectory(child)) {
+                addOrExpand(child, prefix + literal, segments, index, matches);
+            }
+            return;
+        }
+        
+        if (ShellConfig.isGlobStar() && RECURSIVE_SEGMENT.equals(segment.toString())) {
+            // ** matching no directory at all
+            if (!isLast) {
+                expand(dir, prefix, segments, index + 1, matches);
+            } else if (!prefix.isEmpty()) {
+                matches.add(prefix);
+            }
+            expandRecursively(dir, prefix, segments, index, matches);
+            return;
+        }
+        try {
+            for (String name : GlobCache.list(dir)) {
+                if (segment.matches(name)) {
+                    Path entry = dir.resolve(name);
+                    if (isLast || Files.isDirectory(entry)) {
+                        addOrExpand(entry, prefix + name, segments, index, matches);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // An unreadable directory matches nothing, as it would in the shell
+        }
+    }
+    
+    /**
+     * Matches a ** segment against each directory below the given one in turn.
+     */
+    private static void expandRecursively(Path dir, String prefix, List<GlobMatcher> segments, int index,
+                                          List<String> matches) {
+        boolean isLast = index == segments.size() - 1;
+        try {
+            for (String name : GlobCache.list(dir)) {
+                Path entry = dir.resolve(name);
+                if (isLast) {
+                    matches.add(prefix + name);
+                }
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    String subPrefix = prefix + name + StringUtils.fileSeparator();
+                    if (!isLast) {
+                        expand(entry, subPrefix, segments, index + 1, matches);
+                    }
+                    expandRecursively(entry, subPrefix, segments, index, matches);
+                }
+            }
+        } catch (IOException e) {
+            // An unreadable directory matches nothing, as it would in the shell
+        }
+    }
+    
+    private static void addOrExpand(Path path, String displayPath, List<GlobMatcher> segments, int index,
+                                    List<String> matches) {
+        if (index == segments.size() - 1) {
+            matches.add(displayPath);
+        } else {
+            expand(path, displayPath + StringUtils.fileSeparator(), segments, index + 1, matches);
+        }
+    }
+    
     public boolean isEmpty() {
         return plaintext.length() == 0;
     }
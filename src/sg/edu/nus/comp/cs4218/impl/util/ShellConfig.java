@@ -0,0 +1,289 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.util.Locale;
+
+/**
+ * Process-wide tuning options of the shell.
+ * <p>
+ * Every option has a default that can be overridden on the command line with a system property
+ * (e.g. <code>-Dcs4218.pipe.streaming=true</code>) and changed at runtime through its setter.
+ */
+@SuppressWarnings("PMD.ClassNamingConventions")
+public final class ShellConfig {
+
+    public static final String PROP_STREAMING_PIPES = "cs4218.pipe.streaming";
+    public static final String PROP_PIPE_CAPACITY = "cs4218.pipe.capacity";
+    public static final String PROP_GREP_THREADS = "cs4218.grep.threads";
+    public static final String PROP_SORT_RUN_SIZE = "cs4218.sort.runSize";
+    public static final String PROP_SORT_PARALLEL_THRESHOLD = "cs4218.sort.parallelThreshold";
+    public static final String PROP_DIFF_ALGORITHM = "cs4218.diff.algorithm";
+    public static final String PROP_DIFF_THREADS = "cs4218.diff.threads";
+    public static final String PROP_FIND_THREADS = "cs4218.find.threads";
+    public static final String PROP_FIND_SORTED = "cs4218.find.sorted";
+    public static final String PROP_GLOB_STAR = "cs4218.glob.globstar";
+    public static final String PROP_GLOB_CACHE_NAMES = "cs4218.glob.cacheNames";
+    public static final String PROP_COMMAND_CACHE_SIZE = "cs4218.command.cacheSize";
+    public static final String PROP_SUBSTITUTION_MAX_BYTES = "cs4218.substitution.maxBytes";
+    public static final String PROP_SUBSTITUTION_THREADS = "cs4218.substitution.threads";
+    public static final String PROP_SUBSTITUTION_CACHE_SIZE = "cs4218.substitution.cacheSize";
+    public static final String PROP_OUTPUT_BUFFER_SIZE = "cs4218.output.bufferSize";
+    public static final String PROP_OUTPUT_FLUSH = "cs4218.output.flush";
+    public static final String PROP_OUTPUT_FLUSH_THRESHOLD = "cs4218.output.flushThreshold";
+
+    private static volatile boolean streamingPipes = Boolean.getBoolean(PROP_STREAMING_PIPES);
+    private static volatile int pipeCapacity = Integer.getInteger(PROP_PIPE_CAPACITY, 64 * 1024);
+    private static volatile int grepThreads = Integer.getInteger(PROP_GREP_THREADS,
+      Runtime.getRuntime().availableProcessors());
+    private static volatile long sortRunSize = Long.getLong(PROP_SORT_RUN_SIZE, 64L * 1024 * 1024);
+    private static volatile int sortParallelThreshold = Integer.getInteger(PROP_SORT_PARALLEL_THRESHOLD, 64 * 1024);
+    private static volatile LineDiff.Algorithm diffAlgorithm = getEnum(PROP_DIFF_ALGORITHM,
+      LineDiff.Algorithm.MYERS);
+    private static volatile int diffThreads = Integer.getInteger(PROP_DIFF_THREADS,
+      Runtime.getRuntime().availableProcessors());
+    private static volatile int findThreads = Integer.getInteger(PROP_FIND_THREADS,
+      Runtime.getRuntime().availableProcessors());
+    private static volatile boolean findSorted = Boolean.parseBoolean(System.getProperty(PROP_FIND_SORTED, "true"));
+    private static volatile boolean globStar = Boolean.getBoolean(PROP_GLOB_STAR);
+    private static volatile long globCacheNames = Long.getLong(PROP_GLOB_CACHE_NAMES, 1024 * 1024);
+    private static volatile int commandCacheSize = Integer.getInteger(PROP_COMMAND_CACHE_SIZE, 1024);
+    private static volatile long substitutionMaxBytes = Long.getLong(PROP_SUBSTITUTION_MAX_BYTES, 64L * 1024 * 1024);
+    private static volatile int substitutionThreads = Integer.getInteger(PROP_SUBSTITUTION_THREADS, 1);
+    private static volatile int substitutionCacheSize = Integer.getInteger(PROP_SUBSTITUTION_CACHE_SIZE, 0);
+    private static volatile int outputBufferSize = Integer.getInteger(PROP_OUTPUT_BUFFER_SIZE, 8 * 1024);
+    private static volatile ShellOutputStream.FlushPolicy outputFlushPolicy = getEnum(PROP_OUTPUT_FLUSH,
+      System.console() == null ? ShellOutputStream.FlushPolicy.COMMAND : ShellOutputStream.FlushPolicy.LINE);
+    private static volatile int outputFlushThreshold = Integer.getInteger(PROP_OUTPUT_FLUSH_THRESHOLD, 4 * 1024);
+
+    private ShellConfig() {
+    }
+
+    /**
+     * Like {@link Integer#getInteger(String, Integer)}, falls back to the default if the property
+     * is unset or names no constant, so that a mistyped option cannot stop the shell from starting.
+     *
+     * @param property     Name of the system property
+     * @param defaultValue Constant used unless the property names another, ignoring case
+     */
+    private static <E extends Enum<E>> E getEnum(String property, E defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(defaultValue.getDeclaringClass(), value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return true if every stage of a pipe runs on its own thread, connected to its neighbours by
+     * bounded buffers, instead of each stage running to completion before the next one starts
+     */
+    public static boolean isStreamingPipes() {
+        return streamingPipes;
+    }
+
+    public static void setStreamingPipes(boolean isStreaming) {
+        streamingPipes = isStreaming;
+    }
+
+    /**
+     * @return number of bytes buffered between two stages of a streaming pipe
+     */
+    public static int getPipeCapacity() {
+        return pipeCapacity;
+    }
+
+    public static void setPipeCapacity(int capacity) {
+        pipeCapacity = capacity;
+    }
+
+    /**
+     * @return maximum number of files grep scans concurrently; 1 scans them one after another
+     */
+    public static int getGrepThreads() {
+        return grepThreads;
+    }
+
+    public static void setGrepThreads(int threads) {
+        grepThreads = threads;
+    }
+
+    /**
+     * @return approximate number of bytes of lines sort holds in memory; larger inputs are sorted
+     * in runs of this size which are spilled to temporary files and merged
+     */
+    public static long getSortRunSize() {
+        return sortRunSize;
+    }
+
+    public static void setSortRunSize(long size) {
+        sortRunSize = size;
+    }
+
+    /**
+     * @return number of lines from which sort uses all processors to sort the lines held in memory
+     */
+    public static int getSortParallelThreshold() {
+        return sortParallelThreshold;
+    }
+
+    public static void setSortParallelThreshold(int lines) {
+        sortParallelThreshold = lines;
+    }
+
+    /**
+     * @return algorithm diff uses to match the lines of two files
+     */
+    public static LineDiff.Algorithm getDiffAlgorithm() {
+        return diffAlgorithm;
+    }
+
+    public static void setDiffAlgorithm(LineDiff.Algorithm algorithm) {
+        diffAlgorithm = algorithm;
+    }
+
+    /**
+     * @return maximum number of entries diff compares concurrently when diffing two directories;
+     * 1 compares them one after another
+     */
+    public static int getDiffThreads() {
+        return diffThreads;
+    }
+
+    public static void setDiffThreads(int threads) {
+        diffThreads = threads;
+    }
+
+    /**
+     * @return number of threads find searches folders with
+     */
+    public static int getFindThreads() {
+        return findThreads;
+    }
+
+    public static void setFindThreads(int threads) {
+        findThreads = threads;
+    }
+
+    /**
+     * @return true if find lists the folders of each folder before its files, both in alphabetical
+     * order, instead of writing each match as soon as it is found
+     */
+    public static boolean isFindSorted() {
+        return findSorted;
+    }
+
+    public static void setFindSorted(boolean isSorted) {
+        findSorted = isSorted;
+    }
+
+    /**
+     * @return true if a <code>**</code> path segment of a glob matches any number of nested
+     * directories, like bash with <code>shopt -s globstar</code>, instead of being the same as
+     * <code>*</code>
+     */
+    public static boolean isGlobStar() {
+        return globStar;
+    }
+
+    public static void setGlobStar(boolean isGlobStar) {
+        globStar = isGlobStar;
+    }
+
+    /**
+     * @return maximum number of file names of directory listings cached for globbing; 0 disables
+     * the cache
+     */
+    public static long getGlobCacheNames() {
+        return globCacheNames;
+    }
+
+    public static void setGlobCacheNames(long names) {
+        globCacheNames = names;
+    }
+
+    /**
+     * @return maximum number of parsed commands cached by their command string; 0 disables the
+     * cache
+     */
+    public static int getCommandCacheSize() {
+        return commandCacheSize;
+    }
+
+    public static void setCommandCacheSize(int size) {
+        commandCacheSize = size;
+    }
+
+    /**
+     * @return maximum number of bytes a command substituted into a command line may output
+     */
+    public static long getSubstitutionMaxBytes() {
+        return substitutionMaxBytes;
+    }
+
+    public static void setSubstitutionMaxBytes(long bytes) {
+        substitutionMaxBytes = bytes;
+    }
+
+    /**
+     * @return maximum number of command substitutions of one command evaluated concurrently, each
+     * in its own copy of the working directory; 1 evaluates them one after another
+     */
+    public static int getSubstitutionThreads() {
+        return substitutionThreads;
+    }
+
+    public static void setSubstitutionThreads(int threads) {
+        substitutionThreads = threads;
+    }
+
+    /**
+     * @return maximum number of outputs of substituted commands which only read files cached until
+     * those files change; 0 disables the cache
+     */
+    public static int getSubstitutionCacheSize() {
+        return substitutionCacheSize;
+    }
+
+    public static void setSubstitutionCacheSize(int size) {
+        substitutionCacheSize = size;
+    }
+
+    /**
+     * @return number of bytes of output buffered for a redirected file or the terminal; 0 writes
+     * every write straight through
+     */
+    public static int getOutputBufferSize() {
+        return outputBufferSize;
+    }
+
+    public static void setOutputBufferSize(int size) {
+        outputBufferSize = size;
+    }
+
+    /**
+     * @return when buffered output is written before the buffer is full or the command ends; by
+     * default after every line if the shell runs in a terminal, and never otherwise
+     */
+    public static ShellOutputStream.FlushPolicy getOutputFlushPolicy() {
+        return outputFlushPolicy;
+    }
+
+    public static void setOutputFlushPolicy(ShellOutputStream.FlushPolicy policy) {
+        outputFlushPolicy = policy;
+    }
+
+    /**
+     * @return number of bytes which must be buffered for a flush to write them under the
+     * {@link ShellOutputStream.FlushPolicy#SIZE} policy, at most the buffer size
+     */
+    public static int getOutputFlushThreshold() {
+        return outputFlushThreshold;
+    }
+
+    public static void setOutputFlushThreshold(int threshold) {
+        outputFlushThreshold = threshold;
+    }
+}
@@ -0,0 +1,90 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file output stream buffered like a {@link ShellOutputStream}, for files that output is
+ * redirected to. It is still a {@link FileOutputStream}, whose channel is only handed out once
+ * the buffered output has been written.
+ */
+public class ShellFileOutputStream extends FileOutputStream {
+
+    private final ShellOutputStream buffer;
+
+    /**
+     * @param file       File to write, which is truncated
+     * @param bufferSize Number of bytes buffered
+     * @param policy     When else than on a full buffer and at the end of the command the
+     *                   buffered output is written
+     * @throws FileNotFoundException If the file cannot be opened for writing
+     */
+    public ShellFileOutputStream(File file, int bufferSize, ShellOutputStream.FlushPolicy policy)
+      throws FileNotFoundException {
+        super(file);
+        this.buffer = new ShellOutputStream(new OutputStream() {
+            @Override
+            public void write(int value) throws IOException {
+                ShellFileOutputStream.super.write(value);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                ShellFileOutputStream.super.write(bytes, offset, length);
+            }
+        }, bufferSize, policy);
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        buffer.write(value);
+    }
+
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        buffer.write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        buffer.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flush();
+    }
+
+    /**
+     * Writes the buffered output, whatever the flush policy.
+     *
+     * @throws IOException If the file cannot be written
+     */
+    public void endCommand() throws IOException {
+        buffer.endCommand();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            buffer.endCommand();
+        } finally {
+            super.close();
+        }
+    }
+
+    @Override
+    public FileChannel getChannel() {
+        try {
+            buffer.endCommand();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return super.getChannel();
+    }
+}
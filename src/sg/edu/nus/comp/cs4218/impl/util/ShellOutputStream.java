@@ -0,0 +1,170 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * Buffers what applications write to a redirected file or to the terminal, so that their many
+ * small writes reach the underlying stream in few large ones.
+ * <p>
+ * Buffered bytes are always written once the buffer is full, and when the shell ends the command
+ * with {@link #endCommand()} or closes the stream. The {@link FlushPolicy} decides when else they
+ * are written.
+ */
+public class ShellOutputStream extends FilterOutputStream {
+
+    /**
+     * When buffered output is written besides when the buffer is full and when the command ends.
+     */
+    public enum FlushPolicy {
+        /**
+         * Never: flushes from applications are ignored.
+         */
+        COMMAND,
+        /**
+         * After every write containing a line break, and on every flush, as an interactive
+         * terminal needs.
+         */
+        LINE,
+        /**
+         * On a flush once at least the flush threshold is buffered, so that output reaches the
+         * underlying stream in chunks of about that size however often applications flush.
+         */
+        SIZE
+    }
+
+    private final byte[] buffer;
+    private final FlushPolicy policy;
+    private final int flushThreshold;
+    private int count;
+
+    /**
+     * @param out        Stream to write the buffered output to
+     * @param bufferSize Number of bytes buffered
+     * @param policy     When else the buffered output is written, with the flush threshold of
+     *                   {@link ShellConfig}
+     */
+    public ShellOutputStream(OutputStream out, int bufferSize, FlushPolicy policy) {
+        this(out, bufferSize, policy, ShellConfig.getOutputFlushThreshold());
+    }
+
+    /**
+     * @param out            Stream to write the buffered output to
+     * @param bufferSize     Number of bytes buffered
+     * @param policy         When else the buffered output is written
+     * @param flushThreshold Number of bytes which must be buffered for a flush to write them under
+     *                       the {@link FlushPolicy#SIZE} policy
+     */
+    public ShellOutputStream(OutputStream out, int bufferSize, FlushPolicy policy, int flushThreshold) {
+        super(out);
+        this.buffer = new byte[bufferSize];
+        this.policy = policy;
+        this.flushThreshold = Math.min(flushThreshold, bufferSize);
+    }
+
+    /**
+     * @param out Stream to write the buffered output to
+     * @return the stream wrapped with the buffer size and flush policy of {@link ShellConfig}, or
+     * the stream itself if buffering is disabled
+     */
+    public static OutputStream wrap(OutputStream out) {
+        int bufferSize = ShellConfig.getOutputBufferSize();
+        return bufferSize > 0 ? new ShellOutputStream(out, bufferSize, ShellConfig.getOutputFlushPolicy()) : out;
+    }
+
+    @Override
+    public synchronized void write(int value) throws IOException {
+        if (count == buffer.length) {
+            writeBuffer();
+        }
+        buffer[count++] = (byte) value;
+        if (policy == FlushPolicy.LINE && value == '\n') {
+            writeBuffer();
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length >= buffer.length) {
+            // Too large to be worth copying
+            writeBuffer();
+            out.write(bytes, offset, length);
+        } else {
+            if (length > buffer.length - count) {
+                writeBuffer();
+            }
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+        }
+        if (policy == FlushPolicy.LINE && hasLineBreak(bytes, offset, length)) {
+            writeBuffer();
+            out.flush();
+        }
+    }
+
+    private static boolean hasLineBreak(byte[] bytes, int offset, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            if (bytes[i] == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Writes the buffered output if the policy is {@link FlushPolicy#LINE}, or if it is
+     * {@link FlushPolicy#SIZE} and at least the flush threshold is buffered.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (policy == FlushPolicy.LINE || policy == FlushPolicy.SIZE && count >= flushThreshold) {
+            endCommand();
+        }
+    }
+
+    /**
+     * Writes the buffered output and flushes the underlying stream, whatever the policy.
+     *
+     * @throws IOException If the underlying stream fails
+     */
+    public synchronized void endCommand() throws IOException {
+        writeBuffer();
+        out.flush();
+    }
+
+    /**
+     * Writes the buffered output and closes the underlying stream, unless it is System.out, which
+     * like {@link IOUtils#closeOutputStream(OutputStream)} this leaves open.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            endCommand();
+        } finally {
+            if (out != System.out) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered output, so that the file can be written through its channel next.
+     *
+     * @return the channel of the file the underlying stream writes, or null if it writes none
+     * @throws IOException If the underlying stream fails
+     */
+    public synchronized FileChannel getFileChannel() throws IOException {
+        writeBuffer();
+        return IOUtils.getFileChannel(out);
+    }
+}
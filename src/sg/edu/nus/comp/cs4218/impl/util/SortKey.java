@@ -0,0 +1,140 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.math.BigInteger;
+
+/**
+ * A line to be sorted, together with everything the sort order needs from it, computed once when
+ * the line is read rather than on every comparison.
+ * <p>
+ * Lines are compared by their case-folded form if sorting is case-independent. If the first word
+ * is treated as a number, the leading run of digits or non-digits of a non-empty line is compared
+ * first (numerically if both are digits, as text otherwise) and the remainder of the line after
+ * it.
+ */
+public final class SortKey implements Comparable<SortKey> {
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final int OBJECT_OVERHEAD = 96;
+
+    private final String line;
+    private final String folded;
+    private final boolean hasChunk;
+    private final int chunkEnd;
+    private final boolean isNumber;
+    private final long number;
+    private final BigInteger bigNumber;
+
+    private SortKey(String line, String folded, boolean hasChunk, int chunkEnd, boolean isNumber, long number,
+                    BigInteger bigNumber) {
+        this.line = line;
+        this.folded = folded;
+        this.hasChunk = hasChunk;
+        this.chunkEnd = chunkEnd;
+        this.isNumber = isNumber;
+        this.number = number;
+        this.bigNumber = bigNumber;
+    }
+
+    /**
+     * @param line              Line to be sorted
+     * @param isFirstWordNumber Boolean option to treat the first word of a line as a number
+     * @param isCaseIndependent Boolean option to perform case-independent sorting
+     */
+    public static SortKey of(String line, boolean isFirstWordNumber, boolean isCaseIndependent) {
+        String folded = isCaseIndependent ? line.toLowerCase() : line;//NOPMD
+        if (!isFirstWordNumber || folded.isEmpty()) {
+            return new SortKey(line, folded, false, 0, false, 0, null);
+        }
+        boolean isDigit = Character.isDigit(folded.charAt(0));
+        int end = 1;
+        while (end < folded.length() && Character.isDigit(folded.charAt(end)) == isDigit) {
+            end++;
+        }
+        if (!isDigit) {
+            return new SortKey(line, folded, true, end, false, 0, null);
+        }
+        int start = 0;
+        while (start < end - 1 && Character.digit(folded.charAt(start), 10) == 0) {
+            start++;
+        }
+        if (end - start > MAX_LONG_DIGITS) {
+            return new SortKey(line, folded, true, end, true, 0, new BigInteger(folded.substring(start, end)));
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + Character.digit(folded.charAt(i), 10);
+        }
+        return new SortKey(line, folded, true, end, true, value, null);
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * @return approximate number of bytes of memory held by this key
+     */
+    long estimatedSize() {
+        int chars = folded == line ? line.length() : line.length() + folded.length(); //NOPMD
+        return 2L * chars + OBJECT_OVERHEAD;
+    }
+
+    @Override
+    public int compareTo(SortKey other) {
+        if (!hasChunk || !other.hasChunk) {
+            return folded.compareTo(other.folded);
+        }
+        int result;
+        if (isNumber && other.isNumber) {
+            result = compareNumbers(other);
+        } else {
+            result = compareRegions(folded, 0, chunkEnd, other.folded, 0, other.chunkEnd);
+        }
+        if (result != 0) {
+            return result;
+        }
+        return compareRegions(folded, chunkEnd, folded.length(), other.folded, other.chunkEnd, other.folded.length());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SortKey && line.equals(((SortKey) obj).line);
+    }
+
+    @Override
+    public int hashCode() {
+        return line.hashCode();
+    }
+
+    private int compareNumbers(SortKey other) {
+        if (bigNumber == null && other.bigNumber == null) {
+            return Long.compare(number, other.number);
+        }
+        // A number too long for a long is larger than any number which fits in one
+        if (bigNumber == null) {
+            return -1;
+        }
+        if (other.bigNumber == null) {
+            return 1;
+        }
+        return bigNumber.compareTo(other.bigNumber);
+    }
+
+    /**
+     * Compares two substrings the way {@link String#compareTo(String)} compares whole strings,
+     * without creating the substrings.
+     */
+    private static int compareRegions(String first, int firstStart, int firstEnd, String second, int secondStart,
+                                      int secondEnd) {
+        int firstLength = firstEnd - firstStart;
+        int secondLength = secondEnd - secondStart;
+        int length = Math.min(firstLength, secondLength);
+        for (int i = 0; i < length; i++) {
+            char firstChar = first.charAt(firstStart + i);
+            char secondChar = second.charAt(secondStart + i);
+            if (firstChar != secondChar) {
+                return firstChar - secondChar;
+            }
+        }
+        return firstLength - secondLength;
+    }
+}
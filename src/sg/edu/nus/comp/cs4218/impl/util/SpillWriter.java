@@ -0,0 +1,105 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Holds text written ahead of when it can be passed on, in memory up to a fixed number of
+ * characters and in a temporary file beyond that, so that however much is written only a bounded
+ * amount is held in memory.
+ */
+public class SpillWriter extends Writer {
+
+    private final int maxBufferedChars;
+    private final StringBuilder buffer = new StringBuilder();
+    private Path spillFile;
+    private Writer spill;
+
+    /**
+     * @param maxBufferedChars Number of characters held in memory before spilling to a file
+     */
+    public SpillWriter(int maxBufferedChars) {
+        this.maxBufferedChars = maxBufferedChars;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        if (spill == null && buffer.length() + length > maxBufferedChars) {
+            spillFile = Files.createTempFile("spill", ".txt");
+            spill = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8);
+            spill.append(buffer);
+            buffer.setLength(0);
+        }
+        if (spill == null) {
+            buffer.append(chars, offset, length);
+        } else {
+            spill.write(chars, offset, length);
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        if (spill == null && buffer.length() + length <= maxBufferedChars) {
+            buffer.append(string, offset, offset + length);
+        } else {
+            write(string.toCharArray(), offset, length);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (spill != null) {
+            spill.flush();
+        }
+    }
+
+    /**
+     * @return true if the text no longer fits in memory and is held in a file
+     */
+    public boolean isSpilled() {
+        return spill != null;
+    }
+
+    /**
+     * Writes all the text held to the given writer, then discards it.
+     *
+     * @param writer Writer to pass the text on to
+     * @throws IOException If the text cannot be read back or written
+     */
+    public void writeTo(Writer writer) throws IOException {
+        if (spill == null) {
+            writer.append(buffer);
+        } else {
+            spill.close();
+            try (BufferedReader reader = Files.newBufferedReader(spillFile, StandardCharsets.UTF_8)) {
+                char[] chars = new char[8192];
+                int length;
+                while ((length = reader.read(chars)) != -1) {
+                    writer.write(chars, 0, length);
+                }
+            }
+        }
+        close();
+    }
+
+    /**
+     * Discards the text held, deleting the file it spilled to.
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.setLength(0);
+        if (spill != null) {
+            try {
+                spill.close();
+            } finally {
+                Files.deleteIfExists(spillFile);
+                spill = null;
+                spillFile = null;
+            }
+        }
+    }
+}
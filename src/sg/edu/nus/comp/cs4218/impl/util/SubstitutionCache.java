@@ -0,0 +1,339 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.InvalidArgsException;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.cmd.CallCommand;
+import sg.edu.nus.comp.cs4218.impl.parser.LsArgsParser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.APP_CUT;
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.APP_DIFF;
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.APP_FIND;
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.APP_GREP;
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.APP_LS;
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.APP_PASTE;
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.APP_SED;
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.APP_SORT;
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.APP_WC;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.CHAR_ASTERISK;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.CHAR_BACK_QUOTE;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.CHAR_REDIR_INPUT;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.CHAR_REDIR_OUTPUT;
+
+/**
+ * Caches the output of substituted commands which only read files, in a least recently used map
+ * keyed by the command string, the working directory and whether the output is tokenized.
+ * <p>
+ * Only a single built-in application which writes nothing but its output is cached, with no
+ * redirection, globbing or nested substitution in its arguments; sed is one, having no in-place
+ * mode. Every argument is taken as a path that the command may read: the modification time and
+ * size of each, and of everything below it if it is a directory, are recorded before the command
+ * runs. If no argument names an existing file, the command either reads its standard input or
+ * lists the working directory: everything below the working directory is recorded if the listing
+ * recurses, as with <code>ls -R</code> or <code>find</code>, and otherwise only the working
+ * directory itself, whose time changes as entries are added or removed. A cached output is only used while all of these are
+ * unchanged, which costs a stat per file instead of running the command.
+ * <p>
+ * As in {@link GlobCache}, outputs are not cached if any of these files was modified in the last
+ * couple of seconds, nor if the command read its standard input or more than a fixed number of
+ * files would have to be checked. The number of outputs held is bounded by
+ * {@link ShellConfig#getSubstitutionCacheSize()}, which is 0 unless the cache is enabled.
+ */
+@SuppressWarnings("PMD.ClassNamingConventions")
+public final class SubstitutionCache {
+
+    private static final Set<String> PURE_APPS = new HashSet<>(Arrays.asList(APP_LS, APP_FIND, APP_GREP, APP_WC,
+      APP_CUT, APP_PASTE, APP_SORT, APP_SED, APP_DIFF));
+    private static final int MAX_FILES = 10_000;
+    private static final long RACY_MILLIS = 2000;
+
+    private static final LinkedHashMap<List<Object>, Entry> OUTPUTS = new LinkedHashMap<>(16, 0.75f, true);
+    private static long hits;
+    private static long misses;
+
+    private SubstitutionCache() {
+    }
+
+    /**
+     * Records the state of the files a substituted command may read.
+     *
+     * @param commandString Command string of the substitution
+     * @param command       The parsed command
+     * @param isTokenized   True if the output is split into tokens
+     * @param resolver      Resolver removing the quotes of the command's arguments
+     * @return the snapshot to look the output up with, or null if the output cannot be cached
+     */
+    public static Snapshot snapshot(String commandString, Command command, boolean isTokenized,
+                                    ArgumentResolver resolver) throws AbstractApplicationException, ShellException {
+        if (ShellConfig.getSubstitutionCacheSize() <= 0 || !(command instanceof CallCommand)) {
+            return null;
+        }
+        List<String> argsList = ((CallCommand) command).getArgsList();
+        for (String arg : argsList) {
+            if (arg.indexOf(CHAR_BACK_QUOTE) != -1 || arg.indexOf(CHAR_ASTERISK) != -1
+              || arg.equals(String.valueOf(CHAR_REDIR_INPUT)) || arg.equals(String.valueOf(CHAR_REDIR_OUTPUT))) {
+                return null;
+            }
+        }
+        List<String> parsedArgsList = resolver.parseArguments(argsList);
+        if (parsedArgsList.isEmpty() || !PURE_APPS.contains(parsedArgsList.get(0))) {
+            return null;
+        }
+
+        String directory = Environment.getCurrentDirectory();
+        Map<Path, FileStamp> files = new HashMap<>();
+        try {
+            boolean isAnyFound = false;
+            for (String arg : parsedArgsList.subList(1, parsedArgsList.size())) {
+                isAnyFound |= stamp(IOUtils.resolveFilePath(arg), files);
+            }
+            if (!isAnyFound) {
+                Path cwd = IOUtils.resolveFilePath(directory);
+                if (isRecursive(parsedArgsList)) {
+                    stamp(cwd, files);
+                } else {
+                    // Only the directory itself, whose time changes as entries are added or removed
+                    files.put(cwd, FileStamp.of(cwd));
+                }
+            }
+        } catch (InvalidPathException | IOException | UncheckedIOException e) {
+            return null;
+        }
+        if (files.size() > MAX_FILES) {
+            return null;
+        }
+        return new Snapshot(Arrays.asList(commandString, directory, isTokenized), files);
+    }
+
+    /**
+     * @param parsedArgsList The application and its arguments
+     * @return true if the command lists the whole tree below the working directory when no
+     * argument names a file, as <code>ls -R</code> and <code>find</code> do
+     */
+    private static boolean isRecursive(List<String> parsedArgsList) {
+        String app = parsedArgsList.get(0);
+        if (APP_FIND.equals(app)) {
+            return true;
+        }
+        if (!APP_LS.equals(app)) {
+            return false;
+        }
+        LsArgsParser parser = new LsArgsParser();
+        try {
+            parser.parse(parsedArgsList.subList(1, parsedArgsList.size()).toArray(new String[0]));
+        } catch (InvalidArgsException e) {
+            return false; // ls lists nothing but fails
+        }
+        return parser.isRecursive();
+    }
+
+    /**
+     * Records the given path and everything below it.
+     *
+     * @return true if the path exists
+     */
+    private static boolean stamp(Path path, Map<Path, FileStamp> files) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            files.put(path, FileStamp.ABSENT);
+            return false;
+        }
+        if (!Files.isDirectory(path)) {
+            files.put(path, FileStamp.of(path));
+            return true;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            Iterator<Path> iterator = paths.iterator();
+            while (iterator.hasNext() && files.size() <= MAX_FILES) {
+                Path file = iterator.next();
+                files.put(file, FileStamp.of(file));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the output cached for the command if none of the files it may read changed since,
+     * or null
+     */
+    public static SubstitutionOutput get(Snapshot snapshot) {
+        synchronized (OUTPUTS) {
+            Entry entry = OUTPUTS.get(snapshot.key);
+            if (entry != null && entry.files.equals(snapshot.files)) {
+                hits++;
+                return entry.output;
+            }
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Caches the finished output of a command run after the snapshot was taken, unless it read
+     * its standard input or any of its files was modified too recently.
+     */
+    public static void put(Snapshot snapshot, SubstitutionOutput output) {
+        if (snapshot.isStdinRead) {
+            return;
+        }
+        long racyMillis = System.currentTimeMillis() - RACY_MILLIS;
+        for (FileStamp stamp : snapshot.files.values()) {
+            if (stamp.modified >= racyMillis) {
+                return;
+            }
+        }
+        synchronized (OUTPUTS) {
+            OUTPUTS.put(snapshot.key, new Entry(snapshot.files, output));
+            Iterator<Entry> eldest = OUTPUTS.values().iterator();
+            while (OUTPUTS.size() > ShellConfig.getSubstitutionCacheSize() && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * @return number of outputs found in the cache since it was last cleared
+     */
+    public static long getHits() {
+        synchronized (OUTPUTS) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return number of cacheable outputs looked up in the cache without being found, or found
+     * out of date, since it was last cleared
+     */
+    public static long getMisses() {
+        synchronized (OUTPUTS) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return number of outputs currently cached
+     */
+    public static int size() {
+        synchronized (OUTPUTS) {
+            return OUTPUTS.size();
+        }
+    }
+
+    /**
+     * Drops every cached output and resets the hit and miss counts.
+     */
+    public static void clear() {
+        synchronized (OUTPUTS) {
+            OUTPUTS.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    /**
+     * The state of the files a substituted command may read, taken before it runs.
+     */
+    public static final class Snapshot {
+        private final List<Object> key;
+        private final Map<Path, FileStamp> files;
+        private volatile boolean isStdinRead;
+
+        private Snapshot(List<Object> key, Map<Path, FileStamp> files) {
+            this.key = key;
+            this.files = files;
+        }
+
+        /**
+         * @param stdin Standard input of the command
+         * @return the standard input, noting whether the command reads it
+         */
+        public InputStream watch(InputStream stdin) {
+            return new FilterInputStream(stdin) {
+                @Override
+                public int read() throws IOException {
+                    isStdinRead = true;
+                    return super.read();
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    isStdinRead = true;
+                    return super.read(bytes, offset, length);
+                }
+
+                @Override
+                public long skip(long count) throws IOException {
+                    isStdinRead = true;
+                    return super.skip(count);
+                }
+            };
+        }
+    }
+
+    private static final class FileStamp {
+        private static final FileStamp ABSENT = new FileStamp(-1, -1);
+
+        private final long modified;
+        private final long size;
+
+        private FileStamp(long modified, long size) {
+            this.modified = modified;
+            this.size = size;
+        }
+
+        private static FileStamp of(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileStamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp stamp = (FileStamp) other;
+            return modified == stamp.modified && size == stamp.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(modified, size);
+        }
+    }
+
+    private static final class Entry {
+        private final Map<Path, FileStamp> files;
+        private final SubstitutionOutput output;
+
+        Entry(Map<Path, FileStamp> files, SubstitutionOutput output) {
+            this.files = files;
+            this.output = output;
+        }
+    }
+}
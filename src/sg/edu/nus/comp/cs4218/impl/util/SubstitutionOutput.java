@@ -0,0 +1,189 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_SUBST_TOO_LARGE;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+/**
+ * Collects the output of a substituted command as it is written, decoding it with the default
+ * charset and either splitting it into tokens straight away or keeping it as one text.
+ * <p>
+ * The tokens are those of {@link StringUtils#tokenize(String)} on the whole output, and the text
+ * is the output with newlines turned into spaces and one trailing space removed. Output beyond a
+ * maximum number of bytes is refused with an IOException, and {@link #isOverflowed()} tells the
+ * caller why the command failed.
+ */
+public class SubstitutionOutput extends OutputStream {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final boolean isTokenized;
+    private final long maxBytes;
+    private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+    // Bytes of a character split between two writes, or null
+    private ByteBuffer leftover;
+    private long written;
+    private boolean isOverflowed;
+    private boolean isFinished;
+
+    private final List<String> tokens = new ArrayList<>();
+    private final StringBuilder current = new StringBuilder();
+    private boolean hasStarted;
+    private boolean hasNonWhitespace;
+
+    /**
+     * @param isTokenized True to split the output into tokens, false to keep it as one text
+     * @param maxBytes    Maximum number of bytes accepted
+     */
+    public SubstitutionOutput(boolean isTokenized, long maxBytes) {
+        this.isTokenized = isTokenized;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        write(new byte[]{(byte) value}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (written + length > maxBytes) {
+            isOverflowed = true;
+            throw new IOException(ERR_SUBST_TOO_LARGE);
+        }
+        written += length;
+        ByteBuffer input = ByteBuffer.wrap(bytes, offset, length);
+        if (leftover != null) {
+            ByteBuffer joined = ByteBuffer.allocate(leftover.remaining() + length);
+            joined.put(leftover).put(input).flip();
+            input = joined;
+            leftover = null;
+        }
+        decode(input, false);
+        if (input.hasRemaining()) {
+            leftover = ByteBuffer.allocate(input.remaining());
+            leftover.put(input).flip();
+        }
+    }
+
+    private void decode(ByteBuffer input, boolean isEnd) {
+        while (true) {
+            boolean isOverflow = decoder.decode(input, chars, isEnd).isOverflow();
+            drain();
+            if (!isOverflow) {
+                return;
+            }
+        }
+    }
+
+    private void drain() {
+        chars.flip();
+        while (chars.hasRemaining()) {
+            accept(chars.get());
+        }
+        chars.clear();
+    }
+
+    private void accept(char chr) {
+        if (!Character.isWhitespace(chr)) {
+            hasNonWhitespace = true;
+        }
+        if (!isTokenized) {
+            current.append(chr);
+        } else if (!hasStarted) {
+            // Leading characters trimmed away
+            if (chr > ' ') {
+                hasStarted = true;
+                current.append(chr);
+            }
+        } else if (isSeparator(chr)) {
+            if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        } else {
+            current.append(chr);
+        }
+    }
+
+    /**
+     * @return true for the characters of the regular expression <code>\s</code>
+     */
+    private static boolean isSeparator(char chr) {
+        return chr == ' ' || chr == '\t' || chr == '\n' || chr == 0x0B || chr == '\f' || chr == '\r';
+    }
+
+    /**
+     * Decodes whatever was held back waiting for more bytes, once the command is done. Closing
+     * the stream does not, as commands may close their stdout before a command sequence is done.
+     */
+    public void finish() {
+        if (isFinished) {
+            return;
+        }
+        isFinished = true;
+        decode(leftover == null ? ByteBuffer.allocate(0) : leftover, true);
+        while (decoder.flush(chars).isOverflow()) {
+            drain();
+        }
+        drain();
+        if (isTokenized && current.length() > 0) {
+            tokens.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    /**
+     * @return true if the command wrote more than the maximum number of bytes
+     */
+    public boolean isOverflowed() {
+        return isOverflowed;
+    }
+
+    /**
+     * @return the tokens of the output, once finished
+     */
+    public List<String> getTokens() {
+        if (!hasNonWhitespace) {
+            return Collections.emptyList();
+        }
+        if (!hasStarted) {
+            // Only control characters, which trimming leaves a single empty token of
+            return Collections.singletonList("");
+        }
+        // Trailing characters trimmed away, which may leave tokens made only of them empty
+        List<String> result = new ArrayList<>(tokens);
+        while (true) {
+            String last = result.get(result.size() - 1);
+            int end = last.length();
+            while (end > 0 && last.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (end > 0) {
+                result.set(result.size() - 1, last.substring(0, end));
+                return result;
+            }
+            result.remove(result.size() - 1);
+        }
+    }
+
+    /**
+     * @return the text of the output, once finished
+     */
+    public String getText() {
+        String text = current.toString().replace(STRING_NEWLINE, " ");
+        return text.endsWith(" ") ? text.substring(0, text.length() - 1) : text;
+    }
+}
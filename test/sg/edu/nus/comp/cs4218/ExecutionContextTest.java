@@ -0,0 +1,115 @@
+package sg.edu.nus.comp.cs4218;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+/**
+ * Tests for running shell sessions with their own working directories.
+ */
+class ExecutionContextTest {
+
+    private static final int SESSIONS = 4;
+    private final String originalDir = Environment.getCurrentDirectory();
+    private Path root;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("sessions");
+        for (int i = 0; i < SESSIONS; i++) {
+            Files.createDirectories(root.resolve("dir" + i).resolve("sub"));
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Environment.currentDirectory = originalDir;
+        Files.walk(root).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+
+    @Test
+    void testEnteredContextOverridesEnvironment() {
+        ExecutionContext context = new ExecutionContext(root.toString());
+        ExecutionContext.Scope scope = context.enter();
+        try {
+            assertEquals(root.toString(), Environment.getCurrentDirectory());
+            Environment.setCurrentDirectory("dir0");
+            assertEquals(root.resolve("dir0").toString(), context.getCurrentDirectory());
+        } finally {
+            scope.close();
+        }
+        assertNull(ExecutionContext.current());
+        assertEquals(originalDir, Environment.getCurrentDirectory());
+    }
+
+    @Test
+    void testWrappedTaskRunsInContext() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            new ExecutionContext(root.toString()).call(() -> {
+                Callable<String> task = ExecutionContext.wrap(Environment::getCurrentDirectory);
+                assertEquals(root.toString(), executor.submit(task).get());
+                assertNull(executor.submit(ExecutionContext::current).get());
+                return null;
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sessions change directory, write and list files concurrently without seeing each other's
+     * working directory.
+     */
+    @Test
+    void testConcurrentSessionsKeepOwnDirectory() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(SESSIONS);
+        try {
+            List<Future<String>> outputs = new ArrayList<>();
+            for (int i = 0; i < SESSIONS; i++) {
+                String dir = "dir" + i;
+                outputs.add(executor.submit(() -> {
+                    ShellImpl shell = new ShellImpl(new ExecutionContext(root.toString()));
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    for (int round = 0; round < 20; round++) {
+                        output.reset();
+                        shell.parseAndEvaluate("cd " + dir + "; echo " + dir + " > out.txt; rm -r sub; ls; cd ..",
+                          output);
+                        Files.createDirectories(root.resolve(dir).resolve("sub"));
+                    }
+                    return output.toString();
+                }));
+            }
+            for (int i = 0; i < SESSIONS; i++) {
+                assertEquals("out.txt" + STRING_NEWLINE, outputs.get(i).get());
+                assertEquals("dir" + i, new String(Files.readAllBytes(root.resolve("dir" + i).resolve("out.txt")))
+                  .trim());
+            }
+            assertFalse(Files.exists(root.resolve("out.txt")));
+            assertTrue(Files.isDirectory(root.resolve("dir0")));
+            assertEquals(originalDir, Environment.getCurrentDirectory());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
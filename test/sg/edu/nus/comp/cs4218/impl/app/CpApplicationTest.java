@@ -336,6 +336,27 @@ class CpApplicationTest {
     }
     
     
+    /**
+     * Copy a large file into a longer existent file, which must be truncated
+     */
+    @Test
+    public void testLargeFileToLongerExistentFile() throws IOException, AbstractApplicationException {
+    
+        Path src = IOUtils.resolveFilePath(SRC1);
+        Path dest = IOUtils.resolveFilePath(DEST_FILE);
+        byte[] content = new byte[3 * 1024 * 1024 + 7];
+        Arrays.fill(content, (byte) 'a');
+        Files.write(src, content);
+        Files.write(dest, new byte[content.length + 1024]);
+    
+        String[] args = {src.toString(), dest.toString()};
+        cpApp.run(args, System.in, System.out);
+    
+        assertTrue(hashesMatch(src, dest));
+    
+    }
+    
+    
     /**
      * Copy multiple files into another directory
      */
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.exception.DiffException;
+import sg.edu.nus.comp.cs4218.impl.util.ShellConfig;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.ByteArrayOutputStream;
@@ -18,6 +19,7 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Comparator;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -352,4 +354,48 @@ public class DiffApplicationTest { // NOPMD
             fail("should not fail: " + e.getMessage());
         }
     }
+    
+    /**
+     * Same-sized files with different content must still be diffed line by line, and results
+     * computed on worker threads must come out in the same order as one after another.
+     */
+    @Test
+    public void testDiffDirInParallelSameAsSequential() throws IOException, DiffException {
+        Path dirA = Files.createTempDirectory("diffDirA");
+        Path dirB = Files.createTempDirectory("diffDirB");
+        int threads = ShellConfig.getDiffThreads();
+        try {
+            for (int i = 0; i < 40; i++) {
+                Files.write(dirA.resolve("file" + i), ("line\n" + i + "\nend\n").getBytes());
+                if (i % 3 == 0) {
+                    Files.write(dirB.resolve("file" + i), ("line\n" + (i + 1) % 10 + (i + 1) / 10 + "\nend\n")
+                      .getBytes());
+                } else if (i % 3 == 1) {
+                    Files.write(dirB.resolve("file" + i), ("line\n" + i + "\nend\n").getBytes());
+                }
+            }
+            Files.write(dirB.resolve("extra"), "extra\n".getBytes());
+            Files.createDirectory(dirA.resolve("sub"));
+            Files.createDirectory(dirB.resolve("sub"));
+            Files.write(dirA.resolve("sub").resolve("same"), "same\n".getBytes());
+            Files.write(dirB.resolve("sub").resolve("same"), "same\n".getBytes());
+    
+            ShellConfig.setDiffThreads(1);
+            String sequential = diffApp.diffTwoDir(dirA.toString(), dirB.toString(), true, false, false);
+            ShellConfig.setDiffThreads(4);
+            String parallel = diffApp.diffTwoDir(dirA.toString(), dirB.toString(), true, false, false);
+    
+            assertEquals(sequential, parallel);
+            assertTrue(sequential.contains("< 3" + StringUtils.STRING_NEWLINE + "> 40"));
+            assertTrue(sequential.contains("file1 " + dirB + StringUtils.fileSeparator() + "file1] are identical"));
+            assertTrue(sequential.contains("same] are identical"));
+            assertTrue(sequential.contains("Only in " + dirA + ": file2"));
+            assertTrue(sequential.endsWith("Only in " + dirB + ": extra"));
+        } finally {
+            ShellConfig.setDiffThreads(threads);
+            for (Path dir : new Path[]{dirA, dirB}) {
+                Files.walk(dir).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
 }
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.FindException;
+import sg.edu.nus.comp.cs4218.impl.util.ShellConfig;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.ByteArrayOutputStream;
@@ -17,6 +18,11 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -237,4 +243,44 @@ class FindApplicationTest {
           + "Test-folder-2-2" + StringUtils.CHAR_FILE_SEP + "Test-folder-2-3" + StringUtils.CHAR_FILE_SEP
           + TEXTFILE + StringUtils.STRING_NEWLINE, stdout.toString());
     }
+    
+    /**
+     * Searching folders in parallel and writing matches as found must find the same paths as the
+     * sorted search.
+     */
+    @Test
+    public void testFindUnsortedFindsSameAsSorted() throws Exception {
+        Path root = Files.createTempDirectory(Paths.get(Environment.getCurrentDirectory()), "findTree");
+        String rootName = root.getFileName().toString();
+        boolean isSorted = ShellConfig.isFindSorted();
+        int threads = ShellConfig.getFindThreads();
+        try {
+            for (int i = 0; i < 5; i++) {
+                Path folder = Files.createDirectories(root.resolve("dir" + i).resolve("file" + i));
+                for (int j = 0; j < 5; j++) {
+                    Files.createFile(folder.resolve("file" + j + ".txt"));
+                    Files.createFile(folder.getParent().resolve("other" + j));
+                }
+            }
+            ShellConfig.setFindSorted(true);
+            String sorted = findApplication.findFolderContent("^file.*$", rootName);
+            ShellConfig.setFindSorted(false);
+            ShellConfig.setFindThreads(4);
+            String unsorted = findApplication.findFolderContent("^file.*$", rootName);
+        
+            List<String> sortedLines = Arrays.asList(sorted.split(StringUtils.STRING_NEWLINE));
+            List<String> unsortedLines = new ArrayList<>(Arrays.asList(unsorted.split(StringUtils.STRING_NEWLINE)));
+            assertEquals(30, sortedLines.size());
+            assertEquals(rootName + StringUtils.CHAR_FILE_SEP + "dir0" + StringUtils.CHAR_FILE_SEP + "file0",
+              sortedLines.get(0));
+            Collections.sort(unsortedLines);
+            List<String> expected = new ArrayList<>(sortedLines);
+            Collections.sort(expected);
+            assertEquals(expected, unsortedLines);
+        } finally {
+            ShellConfig.setFindSorted(isSorted);
+            ShellConfig.setFindThreads(threads);
+            Files.walk(root).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
 }
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.GrepException;
+import sg.edu.nus.comp.cs4218.impl.util.ShellConfig;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.ByteArrayInputStream;
@@ -395,4 +396,64 @@ public class GrepApplicationTest {
         grepApplication.run(new String[]{"-i", "-c", "success"}, inputstream, stdout);
         assertEquals("2" + StringUtils.STRING_NEWLINE, stdout.toString());
     }
+    
+    /**
+     * Try grep on many files scanned in parallel, checking results stay in argument order
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGrepParallelKeepsArgumentOrder() throws Exception {
+        String[] files = new String[12];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = "Test-folder-" + (i % 4 + 1) + StringUtils.fileSeparator() + TEXTFILE;
+        }
+        String expectedLines;
+        String expectedCounts;
+        int threads = ShellConfig.getGrepThreads();
+        try {
+            ShellConfig.setGrepThreads(1);
+            expectedLines = grepApplication.grepFromFiles(PATTERN, true, false, files);
+            expectedCounts = grepApplication.grepFromFiles(PATTERN, true, true, files);
+            
+            ShellConfig.setGrepThreads(4);
+            assertEquals(expectedLines, grepApplication.grepFromFiles(PATTERN, true, false, files));
+            assertEquals(expectedCounts, grepApplication.grepFromFiles(PATTERN, true, true, files));
+        } finally {
+            ShellConfig.setGrepThreads(threads);
+        }
+        assertTrue(expectedCounts.startsWith(files[0] + ": "));
+        assertTrue(expectedCounts.contains("Test-folder-4" + StringUtils.fileSeparator() + TEXTFILE + ": " + ERR_FILE_NOT_FOUND));
+    }
+    
+    @Test
+    public void testGrepParallelLargeResultsInOrder() throws Exception {
+        Path folder = Paths.get(Environment.getCurrentDirectory());
+        String[] files = new String[6];
+        int threads = ShellConfig.getGrepThreads();
+        try {
+            for (int i = 0; i < files.length; i++) {
+                StringBuilder content = new StringBuilder();
+                for (int j = 0; j < 20_000; j++) {
+                    content.append(PATTERN).append(' ').append(i).append(' ').append(j).append(StringUtils.STRING_NEWLINE);
+                }
+                files[i] = "largeGrepFile" + i + ".txt";
+                Files.write(folder.resolve(files[i]), content.toString().getBytes());
+            }
+            ShellConfig.setGrepThreads(1);
+            String expected = grepApplication.grepFromFiles(PATTERN, false, false, files);
+            
+            ShellConfig.setGrepThreads(3);
+            assertEquals(expected, grepApplication.grepFromFiles(PATTERN, false, false, files));
+            assertTrue(expected.startsWith(files[0] + ": " + PATTERN + " 0 0" + StringUtils.STRING_NEWLINE));
+            assertTrue(expected.endsWith(files[5] + ": " + PATTERN + " 5 19999" + StringUtils.STRING_NEWLINE));
+        } finally {
+            ShellConfig.setGrepThreads(threads);
+            for (String file : files) {
+                if (file != null) {
+                    Files.deleteIfExists(folder.resolve(file));
+                }
+            }
+        }
+    }
 }
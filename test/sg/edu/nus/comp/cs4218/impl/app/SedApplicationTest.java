@@ -470,5 +470,17 @@ public class SedApplicationTest {
         }
     }
     
-    
+    /**
+     * Test that each line is written to the output stream as it is replaced
+     */
+    @Test
+    public void testStreamingReplaceMatchesStringReplace() throws Exception {
+        String input = "abc abc" + StringUtils.STRING_NEWLINE + "xyz";
+        String expected = sed.replaceSubstringInStdin("abc", "def", 2, new ByteArrayInputStream(input.getBytes()));
+        
+        sed.replaceSubstringInStdin("abc", "def", 2, new ByteArrayInputStream(input.getBytes()), stdout);
+        
+        assertEquals("abc def" + StringUtils.STRING_NEWLINE + "xyz" + StringUtils.STRING_NEWLINE, expected);
+        assertEquals(expected, stdout.toString());
+    }
 }
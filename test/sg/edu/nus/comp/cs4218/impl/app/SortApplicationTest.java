@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.TestUtils;
 import sg.edu.nus.comp.cs4218.exception.SortException;
+import sg.edu.nus.comp.cs4218.impl.util.ShellConfig;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.ByteArrayInputStream;
@@ -490,4 +491,34 @@ public class SortApplicationTest {
             fail("should not fail: " + e.getMessage());
         }
     }
+    
+    @Test
+    public void testStreamingSortMatchesStringSort() throws Exception {
+        String stdInString = "b" + StringUtils.STRING_NEWLINE + "10" + StringUtils.STRING_NEWLINE + "2";
+        String expected = sortApp.sortFromStdin(true, false, false,
+          new ByteArrayInputStream(stdInString.getBytes()));
+        
+        sortApp.sortFromStdin(true, false, false, new ByteArrayInputStream(stdInString.getBytes()), stdout);
+        
+        assertEquals("2" + StringUtils.STRING_NEWLINE + "10" + StringUtils.STRING_NEWLINE + "b", expected);
+        assertEquals(expected, stdout.toString());
+    }
+    
+    @Test
+    public void testSpilledSortMatchesInMemorySort() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            input.append(i % 7 == 0 ? "X" : "x").append(i % 97).append(StringUtils.STRING_NEWLINE);
+        }
+        String expected = sortApp.sortFromStdin(true, true, true, new ByteArrayInputStream(input.toString().getBytes()));
+        
+        long runSize = ShellConfig.getSortRunSize();
+        try {
+            ShellConfig.setSortRunSize(1024);
+            sortApp.sortFromStdin(true, true, true, new ByteArrayInputStream(input.toString().getBytes()), stdout);
+        } finally {
+            ShellConfig.setSortRunSize(runSize);
+        }
+        assertEquals(expected, stdout.toString());
+    }
 }
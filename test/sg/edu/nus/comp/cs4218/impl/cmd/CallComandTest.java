@@ -15,7 +15,12 @@ import sg.edu.nus.comp.cs4218.impl.util.ArgumentResolver;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -135,6 +140,31 @@ public class CallComandTest {
 
     }
 
+    /**
+     * The application's own error is thrown even if the redirected file then cannot be closed
+     */
+    @Test
+    public void testAppErrorNotHiddenByCloseError() throws Exception {
+        Path file = Files.createTempFile("callCommand", ".txt");
+        ApplicationRunner appRunner = mock(ApplicationRunner.class);
+        doAnswer(invocationOnMock -> {
+            FileOutputStream output = invocationOnMock.getArgument(3);
+            output.getChannel().close();
+            output.write("lost".getBytes());
+            throw new ShellException("app failed");
+        }).when(appRunner).runApp(eq(ECHO_CMD), any(String[].class), any(InputStream.class), any(OutputStream.class));
+        try {
+            cmd = new CallCommand(Arrays.asList(ECHO_CMD, ">", file.toString()), appRunner, new ArgumentResolver());
+    
+            ShellException exception = assertThrows(ShellException.class, () -> cmd.evaluate(System.in, stdout));
+    
+            assertEquals("shell: app failed", exception.getMessage());
+            assertEquals(1, exception.getSuppressed().length);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Test
     public void testFailsNullArgs() throws ShellException {
     
@@ -12,19 +12,24 @@ import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.ShellImpl;
 import sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner;
 import sg.edu.nus.comp.cs4218.impl.util.ArgumentResolver;
+import sg.edu.nus.comp.cs4218.impl.util.ShellConfig;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_INVALID_REP_RULE;
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_SYNTAX;
@@ -61,6 +66,7 @@ public class PipeCommandTest {
     @AfterEach
     void tearDown() throws IOException {
         stdout.flush();
+        ShellConfig.setStreamingPipes(false);
     }
 
     /**
@@ -154,4 +160,59 @@ public class PipeCommandTest {
         pipeCommand0.terminate();
     }
 
+    /**
+     * Test to filter out only files which have filtered in their name with streaming pipes
+     */
+    @Test
+    public void testStreamingLsWithGrepUsingPipe() throws Exception {
+        ShellConfig.setStreamingPipes(true);
+        ShellImpl shell = new ShellImpl();
+        shell.parseAndEvaluate("ls | grep filtered | grep txt", stdout);
+
+        assertEquals("filtered.txt" + StringUtils.STRING_NEWLINE, stdout.toString());
+    }
+
+    /**
+     * Asserts that the exception of the left-most failing command is thrown with streaming pipes
+     */
+    @Test
+    public void testStreamingThrowsLeftMostException() throws ShellException {
+        ShellConfig.setStreamingPipes(true);
+        CallCommand invalidSedCmd = new CallCommand(Arrays.asList("sed", "s|he|"), new ApplicationRunner(), new ArgumentResolver());
+        CallCommand invalidCmd = new CallCommand(Arrays.asList("invalid"), new ApplicationRunner(), new ArgumentResolver());
+
+        pipeCommand = new PipeCommand(Arrays.asList(invalidSedCmd, invalidCmd));
+
+        Exception exception = assertThrows(AbstractApplicationException.class, () -> pipeCommand.evaluate(System.in, stdout));
+        TestUtils.assertMsgContains(exception, ERR_INVALID_REP_RULE);
+    }
+
+    /**
+     * Asserts that a producer writing far more than the pipe buffer does not block forever when
+     * its consumer never reads its input
+     */
+    @Test
+    public void testStreamingProducerDoesNotBlockOnIdleConsumer() throws ShellException {
+        ShellConfig.setStreamingPipes(true);
+        CallCommand producer = new CallCommand(Collections.singletonList("producer"), new ApplicationRunner(), new ArgumentResolver()) {
+            @Override
+            public void evaluate(InputStream stdin, OutputStream stdout) throws ShellException {
+                byte[] chunk = new byte[8192];
+                try {
+                    for (int i = 0; i < 1024; i++) {
+                        stdout.write(chunk);
+                    }
+                } catch (IOException e) {
+                    throw new ShellException(e.getMessage());
+                }
+            }
+        };
+        CallCommand echoCmd = new CallCommand(Arrays.asList(ECHO_CMD, "hello"), new ApplicationRunner(), new ArgumentResolver());
+
+        pipeCommand = new PipeCommand(Arrays.asList(producer, echoCmd));
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> pipeCommand.evaluate(System.in, stdout));
+
+        assertEquals("hello" + StringUtils.STRING_NEWLINE, stdout.toString());
+    }
+
 }
@@ -18,11 +18,13 @@ import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -195,4 +197,33 @@ public class SequenceCommandTest {
         List<Command> list0 = sequenceCommand0.getCommands();
         assertNull(list0);
     }
+
+    /**
+     * Output of earlier commands and error messages must already be on stdout, in order, when a
+     * later command starts running
+     */
+    @Test
+    public void testOutputWrittenBeforeNextCommandRuns() throws Exception {
+        CallCommand echoCommand = new CallCommand(new ArrayList<>(Arrays.asList(ECHO_CMD, "first")), new ApplicationRunner(), new ArgumentResolver());
+        CallCommand invalidCommand = new CallCommand(new ArrayList<>(), new ApplicationRunner(), new ArgumentResolver());
+        String expected = "first" + StringUtils.STRING_NEWLINE + "shell: " + ERR_SYNTAX + StringUtils.STRING_NEWLINE;
+        StringBuilder seenByLastCommand = new StringBuilder();
+        Command probeCommand = new Command() {
+            @Override
+            public void evaluate(InputStream stdin, OutputStream stdout) {
+                seenByLastCommand.append(stdout.toString());
+            }
+
+            @Override
+            public void terminate() {
+                // Nothing to terminate
+            }
+        };
+
+        sequenceCommand = new SequenceCommand(new ArrayList<>(Arrays.asList(echoCommand, invalidCommand, probeCommand)));
+        sequenceCommand.evaluate(System.in, stdout);
+
+        assertEquals(expected, seenByLastCommand.toString());
+        assertEquals(expected, stdout.toString());
+    }
 }
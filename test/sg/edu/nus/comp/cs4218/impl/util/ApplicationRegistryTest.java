@@ -0,0 +1,95 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.Application;
+import sg.edu.nus.comp.cs4218.impl.app.CutApplication;
+import sg.edu.nus.comp.cs4218.impl.app.DiffApplication;
+import sg.edu.nus.comp.cs4218.impl.app.EchoApplication;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+/**
+ * Tests for looking up applications by name.
+ */
+class ApplicationRegistryTest {
+
+    @Test
+    void testBuiltInApplicationsShared() {
+        ApplicationRegistry registry = ApplicationRegistry.getDefault();
+
+        assertTrue(registry.getNames().containsAll(Arrays.asList(ApplicationRunner.APP_ECHO,
+          ApplicationRunner.APP_DIFF, ApplicationRunner.APP_CUT, ApplicationRunner.APP_MV)));
+        assertSame(registry.lookup(ApplicationRunner.APP_CUT), registry.lookup(ApplicationRunner.APP_CUT));
+        assertNull(registry.lookup("nosuchapp"));
+    }
+
+    @Test
+    void testFactoryCreatesInstancePerRun() {
+        ApplicationRegistry registry = new ApplicationRegistry();
+        registry.registerFactory("hello", EchoApplication::new);
+
+        assertNotSame(registry.lookup("hello"), registry.lookup("hello"));
+    }
+
+    @Test
+    void testRegisteredApplicationReplacesPrevious() {
+        ApplicationRegistry registry = new ApplicationRegistry();
+        Application first = new EchoApplication();
+        Application second = new EchoApplication();
+        registry.registerShared("say", first);
+        registry.registerShared("say", second);
+
+        assertSame(second, registry.lookup("say"));
+    }
+
+    /**
+     * Each run of a shared application reads its own stdin for a "-" file argument, giving the same
+     * output as a new instance run alone.
+     */
+    @Test
+    void testSharedCutAndDiffReadOwnStdinConcurrently() throws Exception {
+        Path file = Files.createTempFile("registry", ".txt");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Files.write(file, ("line0" + STRING_NEWLINE).getBytes());
+            List<Future<String>> results = new ArrayList<>();
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String name = i % 2 == 0 ? ApplicationRunner.APP_CUT : ApplicationRunner.APP_DIFF;
+                String[] args = i % 2 == 0 ? new String[]{"-c", "1-9", "-"} : new String[]{"-s", file.toString(), "-"};
+                String input = "line" + i % 4;
+                Application shared = ApplicationRegistry.getDefault().lookup(name);
+                results.add(executor.submit(() -> run(shared, args, input)));
+                expected.add(run(i % 2 == 0 ? new CutApplication() : new DiffApplication(), args, input));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(expected.get(i), results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+            Files.delete(file);
+        }
+    }
+
+    private static String run(Application application, String[] args, String input) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        application.run(args, new ByteArrayInputStream(input.getBytes()), output);
+        return output.toString();
+    }
+}
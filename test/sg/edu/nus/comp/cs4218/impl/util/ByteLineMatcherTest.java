@@ -0,0 +1,90 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests for the byte-level line matcher used by grep.
+ */
+class ByteLineMatcherTest {
+
+    private static final String TEXT = "first line\r\nsecond LINE\rthird\nline four\nno match";
+
+    @Test
+    void testLiteralFindsLinesAcrossLineBreakStyles() throws IOException {
+        assertEquals(Arrays.asList("first line", "line four"), scan("line", 0, TEXT));
+    }
+
+    @Test
+    void testCaseInsensitiveLiteralFoldsAsciiLetters() throws IOException {
+        assertEquals(Arrays.asList("first line", "second LINE", "line four"),
+          scan("LiNe", Pattern.CASE_INSENSITIVE, TEXT));
+    }
+
+    @Test
+    void testLiteralPrefixConfirmedWithPattern() throws IOException {
+        assertEquals(Arrays.asList("second LINE"), scan("sec.nd L", 0, TEXT));
+        assertEquals(Arrays.asList("first line", "line four"), scan("lines?", 0, TEXT));
+    }
+
+    @Test
+    void testCountWithoutHandler() throws IOException {
+        ByteLineMatcher matcher = ByteLineMatcher.compile(Pattern.compile("i"), StandardCharsets.UTF_8);
+        assertEquals(3, matcher.scan(ByteBuffer.wrap(TEXT.getBytes(StandardCharsets.UTF_8)), null));
+    }
+
+    @Test
+    void testMultiByteLinesDecoded() throws IOException {
+        assertEquals(Arrays.asList("na\u00efve caf\u00e9"), scan("caf\u00e9", 0, "na\u00efve caf\u00e9\nplain"));
+    }
+
+    @Test
+    void testPatternsWithoutRequiredLiteralNotSupported() {
+        assertNull(ByteLineMatcher.compile(Pattern.compile("a|b"), StandardCharsets.UTF_8));
+        assertNull(ByteLineMatcher.compile(Pattern.compile(".line"), StandardCharsets.UTF_8));
+        assertNull(ByteLineMatcher.compile(Pattern.compile("a*"), StandardCharsets.UTF_8));
+        assertNull(ByteLineMatcher.compile(Pattern.compile("ab", Pattern.MULTILINE), StandardCharsets.UTF_8));
+        assertNull(ByteLineMatcher.compile(Pattern.compile("ab"), StandardCharsets.UTF_16));
+        assertNotNull(ByteLineMatcher.compile(Pattern.compile("ab*"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testScanFileMatchesInMemoryScan() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            content.append("row ").append(i).append(i % 1000 == 0 ? " needle" : "").append('\n');
+        }
+        Path file = Files.createTempFile("bytelinematcher", ".txt");
+        try {
+            Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+            ByteLineMatcher matcher = ByteLineMatcher.compile(Pattern.compile("needle"), StandardCharsets.UTF_8);
+            List<String> lines = new ArrayList<>();
+
+            assertEquals(50, matcher.scanFile(file, lines::add));
+            assertEquals("row 0 needle", lines.get(0));
+            assertEquals("row 49000 needle", lines.get(49));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<String> scan(String regex, int flags, String text) throws IOException {
+        ByteLineMatcher matcher = ByteLineMatcher.compile(Pattern.compile(regex, flags), StandardCharsets.UTF_8);
+        List<String> lines = new ArrayList<>();
+        matcher.scan(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), lines::add);
+        return lines;
+    }
+}
@@ -0,0 +1,102 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.cmd.CallCommand;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+/**
+ * Tests for caching parsed commands.
+ */
+class CommandCacheTest {
+
+    private int cacheSize;
+
+    @BeforeEach
+    void setUp() {
+        cacheSize = ShellConfig.getCommandCacheSize();
+        CommandCache.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ShellConfig.setCommandCacheSize(cacheSize);
+        CommandCache.clear();
+    }
+
+    @Test
+    void testSameCommandStringParsedOnce() throws ShellException {
+        Command first = CommandCache.parseCommand("echo a | grep a; echo b", new ApplicationRunner());
+        Command second = CommandCache.parseCommand("echo a | grep a; echo b", new ApplicationRunner());
+
+        assertSame(first, second);
+        assertEquals(1, CommandCache.getHits());
+        assertEquals(1, CommandCache.getMisses());
+        assertEquals(1, CommandCache.size());
+    }
+
+    @Test
+    void testCachedCommandEvaluatedRepeatedly() throws ShellException, AbstractApplicationException {
+        for (int i = 0; i < 3; i++) {
+            Command command = CommandCache.parseCommand("echo x; echo y | grep y", new ApplicationRunner());
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            command.evaluate(new ByteArrayInputStream(new byte[0]), output);
+            assertEquals("x" + STRING_NEWLINE + "y" + STRING_NEWLINE, output.toString());
+        }
+        assertEquals(2, CommandCache.getHits());
+    }
+
+    @Test
+    void testCachedCommandCannotBeModified() throws ShellException {
+        CallCommand command = (CallCommand) CommandCache.parseCommand("echo a", new ApplicationRunner());
+
+        assertThrows(UnsupportedOperationException.class, () -> command.getArgsList().add("b"));
+    }
+
+    @Test
+    void testInvalidCommandNotCached() {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(ShellException.class, () -> CommandCache.parseCommand("echo a |", new ApplicationRunner()));
+        }
+        assertEquals(0, CommandCache.getHits());
+        assertEquals(2, CommandCache.getMisses());
+        assertEquals(0, CommandCache.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted() throws ShellException {
+        ShellConfig.setCommandCacheSize(2);
+        Command first = CommandCache.parseCommand("echo 1", new ApplicationRunner());
+        CommandCache.parseCommand("echo 2", new ApplicationRunner());
+        CommandCache.parseCommand("echo 1", new ApplicationRunner());
+        CommandCache.parseCommand("echo 3", new ApplicationRunner());
+
+        assertEquals(2, CommandCache.size());
+        assertSame(first, CommandCache.parseCommand("echo 1", new ApplicationRunner()));
+        CommandCache.parseCommand("echo 2", new ApplicationRunner());
+        assertEquals(2, CommandCache.getHits());
+        assertEquals(4, CommandCache.getMisses());
+    }
+
+    @Test
+    void testDisabledCacheParsesEveryTime() throws ShellException {
+        ShellConfig.setCommandCacheSize(0);
+
+        assertNotSame(CommandCache.parseCommand("echo a", new ApplicationRunner()),
+          CommandCache.parseCommand("echo a", new ApplicationRunner()));
+        assertEquals(0, CommandCache.size());
+        assertEquals(0, CommandCache.getHits() + CommandCache.getMisses());
+    }
+}
@@ -0,0 +1,88 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares reading generated command lines of growing length with {@link CommandLexer} with the
+ * regular expression loop the command builder used before, which copied the rest of the command
+ * after every token.
+ * <p>
+ * Not a test: run it with <code>java sg.edu.nus.comp.cs4218.impl.util.CommandLexerBenchmark [MAX_TOKENS]</code>
+ * (default 100,000 tokens).
+ */
+@SuppressWarnings("PMD")
+public final class CommandLexerBenchmark {
+
+    private static final Pattern ARGUMENT_REGEX = Pattern
+      .compile("([^'\"`|<>;\\s]+|'[^']*'|\"([^\"`]*`.*?`[^\"`]*)+\"|\"[^\"]*\"|`[^`]*`)+");
+    private static final String[] PIECES = {"echo", "file.txt", "'single quoted'", "\"double quoted\"",
+      "\"nested `echo \"x\"` y\"", "`date`", "a'b'\"c\"", "|", ";", "<", ">"};
+    private static final int ROUNDS = 5;
+
+    private CommandLexerBenchmark() {
+    }
+
+    public static void main(String[] args) throws ShellException {
+        int maxTokens = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Random random = new Random(4218);
+        System.out.printf("best of %d rounds%n", ROUNDS);
+        for (int tokens = 1_000; tokens <= maxTokens; tokens *= 10) {
+            String command = randomCommand(random, tokens);
+            long regexMillis = Long.MAX_VALUE;
+            long lexerMillis = Long.MAX_VALUE;
+            int count = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                count += regexCount(command);
+                regexMillis = Math.min(regexMillis, System.nanoTime() - start);
+                start = System.nanoTime();
+                count -= lexerCount(command);
+                lexerMillis = Math.min(lexerMillis, System.nanoTime() - start);
+            }
+            if (count != 0) {
+                throw new IllegalStateException("token counts differ");
+            }
+            System.out.printf("%,8d tokens (%,9d chars)   regex %,8.1f ms   lexer %,6.1f ms%n", tokens,
+              command.length(), regexMillis / 1e6, lexerMillis / 1e6);
+        }
+    }
+
+    private static String randomCommand(Random random, int tokens) {
+        StringBuilder command = new StringBuilder("echo");
+        for (int i = 1; i < tokens; i++) {
+            command.append(' ').append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return command.append(" end").toString();
+    }
+
+    private static int regexCount(String command) {
+        int count = 0;
+        String commandSubstring = command;
+        while (!commandSubstring.isEmpty()) {
+            commandSubstring = commandSubstring.trim();
+            Matcher matcher = ARGUMENT_REGEX.matcher(commandSubstring);
+            if (!matcher.find()) {
+                break;
+            }
+            commandSubstring = commandSubstring.substring(matcher.start() == 0 ? matcher.end() : 1);
+            count++;
+        }
+        return count;
+    }
+
+    private static int lexerCount(String command) throws ShellException {
+        int count = 0;
+        CommandLexer lexer = new CommandLexer(command);
+        while (lexer.hasNext()) {
+            if (lexer.nextArgument() == null) {
+                lexer.nextOperator();
+            }
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,104 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the lexer splits commands exactly as the regular expression it replaces did.
+ */
+class CommandLexerTest {
+
+    private static final Pattern ARGUMENT_REGEX = Pattern
+      .compile("([^'\"`|<>;\\s]+|'[^']*'|\"([^\"`]*`.*?`[^\"`]*)+\"|\"[^\"]*\"|`[^`]*`)+");
+    private static final String ERROR = "<error>";
+    private static final String ALPHABET = "ab '\"`|<>;\t\r\u0001";
+
+    @Test
+    void testSimpleCommands() {
+        assertEquals(Arrays.asList("echo", "a", "|", "grep", "'x y'", ";", "cat", "<", "f"),
+          lex("  echo a | grep 'x y';cat<f  "));
+        assertEquals(Arrays.asList("echo", "a\"b c\"`d`"), lex("echo a\"b c\"`d`"));
+    }
+
+    @Test
+    void testUnmatchedQuoteReadAsOperator() {
+        assertEquals(Arrays.asList("echo", "'", "a"), lex("echo 'a"));
+        assertEquals(Arrays.asList("echo", "\"", "a", "b"), lex("echo \"a b"));
+    }
+
+    @Test
+    void testNothingAfterOperatorIsError() {
+        assertEquals(Arrays.asList("echo", "a", ERROR), lex("echo a;"));
+        assertEquals(Arrays.asList("echo", ERROR), lex("echo > '"));
+    }
+
+    @Test
+    void testDoubleQuotesAroundBackQuotesSpanInnerDoubleQuotes() {
+        String command = "\"`a`b`c\"d`e\" f";
+        assertEquals(regexLex(command), lex(command));
+        assertEquals(Arrays.asList("\"`a`b`c\"d`e\"", "f"), lex(command));
+    }
+
+    @Test
+    void testRandomCommandsSameAsRegex() {
+        Random random = new Random(4218);
+        for (int i = 0; i < 100_000; i++) {
+            char[] chars = new char[1 + random.nextInt(16)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            }
+            String command = new String(chars);
+            assertEquals(regexLex(command), lex(command), command);
+        }
+    }
+
+    /**
+     * @return the arguments and operators read, ending with ERROR if the command was rejected
+     */
+    private static List<String> lex(String command) {
+        List<String> tokens = new ArrayList<>();
+        try {
+            CommandLexer lexer = new CommandLexer(command);
+            while (lexer.hasNext()) {
+                String argument = lexer.nextArgument();
+                tokens.add(argument == null ? String.valueOf(lexer.nextOperator()) : argument);
+            }
+        } catch (ShellException e) {
+            tokens.add(ERROR);
+        }
+        return tokens;
+    }
+
+    /**
+     * Reads tokens the way the command builder used to.
+     */
+    private static List<String> regexLex(String command) {
+        List<String> tokens = new ArrayList<>();
+        String commandSubstring = command;
+        while (!commandSubstring.isEmpty()) {
+            commandSubstring = commandSubstring.trim();
+            Matcher matcher = ARGUMENT_REGEX.matcher(commandSubstring);
+            if (!matcher.find()) {
+                tokens.add(ERROR);
+                break;
+            }
+            if (matcher.start() == 0) {
+                tokens.add(matcher.group());
+                commandSubstring = commandSubstring.substring(matcher.end());
+            } else {
+                tokens.add(commandSubstring.substring(0, 1));
+                commandSubstring = commandSubstring.substring(1);
+            }
+        }
+        return tokens;
+    }
+}
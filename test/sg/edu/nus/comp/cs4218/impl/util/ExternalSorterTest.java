@@ -0,0 +1,135 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for sorting lines in runs spilled to disk.
+ */
+class ExternalSorterTest {
+
+    private static final Function<String, SortKey> CASE_INSENSITIVE = line -> SortKey.of(line, false, true);
+
+    @Test
+    void testSmallInputSortedInMemory() throws IOException {
+        List<String> input = randomLines(100);
+        try (ExternalSorter<SortKey> sorter = ExternalSorter.ofKeys(CASE_INSENSITIVE, false, Long.MAX_VALUE)) {
+            List<String> result = sortAll(sorter, input);
+            assertEquals(0, sorter.getRunCount());
+            assertEquals(sortInMemory(input, false), result);
+        }
+    }
+
+    /**
+     * Lines which compare equal but differ must keep their input order, in both directions.
+     */
+    @Test
+    void testSpilledRunsMergedInSameOrderAsInMemorySort() throws IOException {
+        List<String> input = randomLines(5000);
+        for (boolean isReverse : new boolean[]{false, true}) {
+            try (ExternalSorter<SortKey> sorter = ExternalSorter.ofKeys(CASE_INSENSITIVE, isReverse, 4 * 1024)) {
+                List<String> result = sortAll(sorter, input);
+                assertTrue(sorter.getRunCount() > 1);
+                assertEquals(sortInMemory(input, isReverse), result);
+            }
+        }
+    }
+
+    @Test
+    void testMoreRunsThanFanInMergedInPasses() throws IOException {
+        List<String> input = randomLines(3000);
+        for (boolean isReverse : new boolean[]{false, true}) {
+            try (ExternalSorter<SortKey> sorter = ExternalSorter.ofKeys(CASE_INSENSITIVE, isReverse, 256)) {
+                List<String> result = sortAll(sorter, input);
+                assertTrue(sorter.getRunCount() <= ExternalSorter.MAX_FAN_IN);
+                assertEquals(sortInMemory(input, isReverse), result);
+            }
+        }
+    }
+
+    @Test
+    void testLinesSortedWithoutKeys() throws IOException {
+        List<String> input = randomLines(3000);
+        for (boolean isReverse : new boolean[]{false, true}) {
+            for (long runSize : new long[]{Long.MAX_VALUE, 4 * 1024}) {
+                try (ExternalSorter<String> sorter = ExternalSorter.ofLines(isReverse, runSize)) {
+                    List<String> expected = new ArrayList<>(input);
+                    expected.sort(isReverse ? Comparator.reverseOrder() : Comparator.naturalOrder());
+                    assertEquals(expected, sortAll(sorter, input));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testEmptyInput() throws IOException {
+        try (ExternalSorter<SortKey> sorter = ExternalSorter.ofKeys(CASE_INSENSITIVE, false, 1)) {
+            sorter.sort();
+            assertNull(sorter.readLine());
+        }
+    }
+
+    private static List<String> sortAll(ExternalSorter<?> sorter, List<String> input) throws IOException {
+        for (String line : input) {
+            sorter.add(line);
+        }
+        sorter.sort();
+        List<String> result = new ArrayList<>();
+        String line;
+        while ((line = sorter.readLine()) != null) {
+            result.add(line);
+        }
+        return result;
+    }
+
+    private static List<String> sortInMemory(List<String> input, boolean isReverse) {
+        List<String> result = new ArrayList<>(input);
+        Comparator<String> order = Comparator.comparing(String::toLowerCase);
+        Collections.sort(result, isReverse ? order.reversed() : order);
+        return result;
+    }
+
+    /**
+     * @return short lines differing mostly in case, so that many compare equal
+     */
+    private static List<String> randomLines(int count) {
+        Random random = new Random(4218);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = 0; j < 3; j++) {
+                char letter = (char) ('a' + random.nextInt(4));
+                line.append(random.nextBoolean() ? Character.toUpperCase(letter) : letter);
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    @Test
+    void testParallelSortIsStable() throws IOException {
+        List<String> input = randomLines(100_000);
+        int threshold = ShellConfig.getSortParallelThreshold();
+        try {
+            ShellConfig.setSortParallelThreshold(1);
+            for (boolean isReverse : new boolean[]{false, true}) {
+                try (ExternalSorter<SortKey> sorter = ExternalSorter.ofKeys(CASE_INSENSITIVE, isReverse, Long.MAX_VALUE)) {
+                    assertEquals(sortInMemory(input, isReverse), sortAll(sorter, input));
+                }
+            }
+        } finally {
+            ShellConfig.setSortParallelThreshold(threshold);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests for caching directory listings and compiled globs.
+ */
+class GlobCacheTest {
+
+    private static final FileTime AN_HOUR_AGO = FileTime.fromMillis(System.currentTimeMillis() - 3_600_000);
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        GlobCache.clear();
+        dir = Files.createTempDirectory("globCache");
+        Files.createFile(dir.resolve("a"));
+        Files.createFile(dir.resolve("b"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        GlobCache.clear();
+        Files.walk(dir).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+
+    @Test
+    void testUnchangedDirectoryListedOnce() throws IOException {
+        Files.setLastModifiedTime(dir, AN_HOUR_AGO);
+        String[] first = GlobCache.list(dir);
+        assertSame(first, GlobCache.list(dir));
+        assertArrayEquals(new String[]{"a", "b"}, sorted(first));
+    }
+
+    @Test
+    void testModifiedDirectoryListedAgain() throws IOException {
+        Files.setLastModifiedTime(dir, AN_HOUR_AGO);
+        GlobCache.list(dir);
+        Files.createFile(dir.resolve("c"));
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(AN_HOUR_AGO.toMillis() + 1000));
+        assertArrayEquals(new String[]{"a", "b", "c"}, sorted(GlobCache.list(dir)));
+    }
+
+    /**
+     * A directory modified just now may change again within the same timestamp.
+     */
+    @Test
+    void testRecentlyModifiedDirectoryNotCached() throws IOException {
+        assertNotSame(GlobCache.list(dir), GlobCache.list(dir));
+    }
+
+    @Test
+    void testListingsLargerThanLimitNotCached() throws IOException {
+        long names = ShellConfig.getGlobCacheNames();
+        try {
+            ShellConfig.setGlobCacheNames(1);
+            Files.setLastModifiedTime(dir, AN_HOUR_AGO);
+            assertNotSame(GlobCache.list(dir), GlobCache.list(dir));
+        } finally {
+            ShellConfig.setGlobCacheNames(names);
+        }
+    }
+
+    @Test
+    void testCompiledPatternsShared() {
+        assertSame(GlobCache.compile("*.txt"), GlobCache.compile("*.txt"));
+    }
+
+    private static String[] sorted(String... names) {
+        String[] copy = names.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
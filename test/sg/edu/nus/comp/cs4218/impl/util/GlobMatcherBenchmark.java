@@ -0,0 +1,76 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compares matching file names with {@link GlobMatcher} with the regular expressions find built
+ * from its -name glob before, for the common shapes of patterns.
+ * <p>
+ * Not a test: run it with <code>java sg.edu.nus.comp.cs4218.impl.util.GlobMatcherBenchmark [NAMES]</code>
+ * (default 1 million names).
+ */
+@SuppressWarnings("PMD")
+public final class GlobMatcherBenchmark {
+
+    private static final String[] GLOBS = {"build.gradle", "Test*", "*.java", "*Test*.java", "?est[A-Z]*.java"};
+    private static final int ROUNDS = 10;
+
+    private GlobMatcherBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<String> names = randomNames(new Random(4218), count);
+        System.out.printf("%,d names, best of %d rounds%n", count, ROUNDS);
+        for (String glob : GLOBS) {
+            Pattern pattern = Pattern.compile(toRegex(glob));
+            long regexMillis = time(names, name -> pattern.matcher(name).find());
+            long globMillis = time(names, GlobMatcher.compile(glob)::matches);
+            System.out.printf("%-18s regex %,6d ms   glob %,6d ms%n", glob, regexMillis, globMillis);
+        }
+    }
+
+    /**
+     * The conversion find used before, extended to '?' so that every glob above can be compared.
+     */
+    private static String toRegex(String glob) {
+        return "^" + glob.replaceAll("\\.", "\\\\.").replaceAll("\\*", ".*").replaceAll("\\?", ".") + "$";
+    }
+
+    private static long time(List<String> names, Predicate<String> filter) {
+        long best = Long.MAX_VALUE;
+        int matches = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (String name : names) {
+                if (filter.test(name)) {
+                    matches++;
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (matches < 0) {
+            System.out.println(matches);
+        }
+        return best / 1_000_000;
+    }
+
+    private static List<String> randomNames(Random random, int count) {
+        String[] stems = {"Test", "Main", "Shell", "Util", "build", "Readme"};
+        String[] extensions = {".java", ".class", ".txt", ".gradle", ""};
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder(stems[random.nextInt(stems.length)]);
+            for (int j = random.nextInt(3); j > 0; j--) {
+                name.append(stems[random.nextInt(stems.length)]);
+            }
+            names.add(name.append(random.nextInt(100)).append(extensions[random.nextInt(extensions.length)])
+              .toString());
+        }
+        return names;
+    }
+}
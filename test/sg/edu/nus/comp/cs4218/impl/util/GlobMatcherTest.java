@@ -0,0 +1,93 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for matching file names against glob patterns.
+ */
+class GlobMatcherTest {
+
+    @Test
+    void testLiteralAndStarPatterns() {
+        assertTrue(GlobMatcher.compile("a.txt").matches("a.txt"));
+        assertFalse(GlobMatcher.compile("a.txt").matches("abtxt"));
+        assertTrue(GlobMatcher.compile("*.txt").matches(".txt"));
+        assertFalse(GlobMatcher.compile("*.txt").matches("a.txt.bak"));
+        assertTrue(GlobMatcher.compile("file*").matches("file1.txt"));
+        assertTrue(GlobMatcher.compile("a*b*a").matches("aba"));
+        assertFalse(GlobMatcher.compile("ab*ba").matches("aba"));
+        assertTrue(GlobMatcher.compile("*").matches(""));
+        assertTrue(GlobMatcher.compile("").matches(""));
+    }
+
+    @Test
+    void testSingleCharactersAndClasses() {
+        assertTrue(GlobMatcher.compile("file?.txt").matches("file1.txt"));
+        assertFalse(GlobMatcher.compile("file?.txt").matches("file.txt"));
+        assertTrue(GlobMatcher.compile("[abc]*").matches("bcd"));
+        assertTrue(GlobMatcher.compile("[a-c][!0-9]").matches("cx"));
+        assertFalse(GlobMatcher.compile("[a-c][!0-9]").matches("c5"));
+        assertTrue(GlobMatcher.compile("[^a]").matches("b"));
+        assertTrue(GlobMatcher.compile("[]x]").matches("]"));
+        assertTrue(GlobMatcher.compile("[a").matches("[a"));
+    }
+
+    @Test
+    void testQuotedSpecialCharactersAreLiteral() {
+        String name = "a*b?[c]\\d";
+        GlobMatcher matcher = GlobMatcher.compile(GlobMatcher.quote(name));
+        assertTrue(matcher.matches(name));
+        assertFalse(matcher.matches("aXb?[c]\\d"));
+        assertFalse(matcher.matches("a*bXcd"));
+    }
+
+    /**
+     * Every pattern must match the same names as the equivalent regular expression.
+     */
+    @Test
+    void testSameResultsAsRegex() {
+        Random random = new Random(4218);
+        String[] parts = {"a", "b", "ab", "*", "?", "[ab]", "[!a]", "."};
+        for (int round = 0; round < 500; round++) {
+            StringBuilder glob = new StringBuilder();
+            StringBuilder regex = new StringBuilder();
+            for (int i = random.nextInt(6); i >= 0; i--) {
+                String part = parts[random.nextInt(parts.length)];
+                glob.append(part);
+                regex.append(toRegex(part));
+            }
+            GlobMatcher matcher = GlobMatcher.compile(glob.toString());
+            Pattern pattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+            for (int i = 0; i < 50; i++) {
+                StringBuilder name = new StringBuilder();
+                for (int j = random.nextInt(8); j > 0; j--) {
+                    name.append("ab.c".charAt(random.nextInt(4)));
+                }
+                assertEquals(pattern.matcher(name).matches(), matcher.matches(name.toString()),
+                  glob + " vs " + name);
+            }
+        }
+    }
+
+    private static String toRegex(String part) {
+        switch (part) {
+            case "*":
+                return ".*";
+            case "?":
+                return ".";
+            case "[ab]":
+                return "[ab]";
+            case "[!a]":
+                return "[^a]";
+            default:
+                return Pattern.quote(part);
+        }
+    }
+}
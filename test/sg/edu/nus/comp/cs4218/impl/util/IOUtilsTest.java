@@ -5,12 +5,18 @@ import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.TestUtils;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static sg.edu.nus.comp.cs4218.TestUtils.assertMsgContains;
@@ -112,4 +118,42 @@ class IOUtilsTest {
         Exception exception = assertThrows(ShellException.class, () -> IOUtils.closeOutputStream(outputStream));
         assertMsgContains(exception, ERR_CLOSING_STREAMS);
     }
-}
\ No newline at end of file
+
+    /**
+     * Transfers the rest of one file to another through their channels
+     */
+    @Test
+    void testTransferBetweenFiles() throws IOException {
+        Path inFile = Files.createTempFile("infile", "");
+        Path outFile = Files.createTempFile("outfile", "");
+        inFile.toFile().deleteOnExit();
+        outFile.toFile().deleteOnExit();
+        byte[] content = new byte[200_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(inFile, content);
+
+        try (InputStream input = new FileInputStream(inFile.toFile());
+             OutputStream output = new FileOutputStream(outFile.toFile())) {
+            assertEquals(3, input.skip(3));
+            output.write(content, 0, 1);
+            assertEquals(content.length - 3, IOUtils.transfer(input, output));
+            assertEquals(-1, input.read());
+        }
+        byte[] expected = new byte[content.length - 2];
+        expected[0] = content[0];
+        System.arraycopy(content, 3, expected, 1, content.length - 3);
+        assertArrayEquals(expected, Files.readAllBytes(outFile));
+    }
+
+    /**
+     * Copies streams which are not files through a buffer
+     */
+    @Test
+    void testTransferBetweenStreams() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(5, IOUtils.transfer(new ByteArrayInputStream("hello".getBytes()), output));
+        assertEquals("hello", output.toString());
+    }
+}
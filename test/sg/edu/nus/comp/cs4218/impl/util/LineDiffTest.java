@@ -0,0 +1,178 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the line diff engine.
+ */
+class LineDiffTest {
+
+    @Test
+    void testIdenticalSequencesHaveNoHunks() {
+        String[] lines = {"a", "b", "c"};
+        assertTrue(LineDiff.diff(lines, lines.clone(), LineDiff.Algorithm.MYERS).isEmpty());
+        assertTrue(LineDiff.diff(lines, lines.clone(), LineDiff.Algorithm.PATIENCE).isEmpty());
+    }
+
+    /**
+     * Unlike matching each line against any line of the other file, lines only match in order.
+     */
+    @Test
+    void testReorderedLinesAreChanges() {
+        List<LineDiff.Hunk> hunks = LineDiff.diff(new String[]{"a", "b"}, new String[]{"b", "a"},
+          LineDiff.Algorithm.MYERS);
+        assertEquals(1, countChanged(hunks, true));
+        assertEquals(1, countChanged(hunks, false));
+    }
+
+    @Test
+    void testSeparateChangesGiveSeparateHunks() {
+        String[] linesA = {"a", "b", "c", "d", "e"};
+        String[] linesB = {"a", "x", "c", "d", "e", "y"};
+        List<LineDiff.Hunk> hunks = LineDiff.diff(linesA, linesB, LineDiff.Algorithm.MYERS);
+
+        assertEquals(2, hunks.size());
+        assertArrayEquals(new int[]{1, 2, 1, 2}, bounds(hunks.get(0)));
+        assertArrayEquals(new int[]{5, 5, 5, 6}, bounds(hunks.get(1)));
+    }
+
+    /**
+     * Myers must find an edit script as short as the one given by the longest common subsequence,
+     * and both algorithms must produce hunks which turn the first sequence into the second.
+     */
+    @Test
+    void testEditScriptsAreValidAndMyersIsMinimal() {
+        Random random = new Random(4218);
+        for (int round = 0; round < 300; round++) {
+            int[] linesA = randomIds(random, random.nextInt(30));
+            int[] linesB = randomIds(random, random.nextInt(30));
+            for (LineDiff.Algorithm algorithm : LineDiff.Algorithm.values()) {
+                List<LineDiff.Hunk> hunks = LineDiff.diff(linesA, linesB, algorithm);
+                assertArrayEquals(linesB, apply(linesA, linesB, hunks));
+                if (algorithm == LineDiff.Algorithm.MYERS) {
+                    int lcs = longestCommonSubsequence(linesA, linesB);
+                    assertEquals(linesA.length + linesB.length - 2 * lcs,
+                      countChanged(hunks, true) + countChanged(hunks, false));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testLargeInputsWithFewChanges() {
+        int[] linesA = new int[1_000_000];
+        for (int i = 0; i < linesA.length; i++) {
+            linesA[i] = i;
+        }
+        int[] linesB = linesA.clone();
+        for (int i = 1000; i < linesB.length; i += 100_000) {
+            linesB[i] = -i;
+        }
+        for (LineDiff.Algorithm algorithm : LineDiff.Algorithm.values()) {
+            List<LineDiff.Hunk> hunks = assertTimeoutPreemptively(Duration.ofSeconds(20),
+              () -> LineDiff.diff(linesA, linesB, algorithm));
+            assertEquals(10, hunks.size());
+        }
+    }
+
+    /**
+     * Lines found in only one input are changed without being searched for a match.
+     */
+    @Test
+    void testDisjointInputsDiffedQuickly() {
+        int[] linesA = new int[50_000];
+        int[] linesB = new int[50_000];
+        for (int i = 0; i < linesA.length; i++) {
+            linesA[i] = i;
+            linesB[i] = linesA.length + i;
+        }
+        for (LineDiff.Algorithm algorithm : LineDiff.Algorithm.values()) {
+            List<LineDiff.Hunk> hunks = assertTimeoutPreemptively(Duration.ofSeconds(5),
+              () -> LineDiff.diff(linesA, linesB, algorithm));
+            assertEquals(1, hunks.size());
+            assertArrayEquals(new int[]{0, 50_000, 0, 50_000}, bounds(hunks.get(0)));
+        }
+    }
+
+    /**
+     * Past the cost limit the edit script need not be minimal, but must still be valid.
+     */
+    @Test
+    void testManyChangesToSharedLinesBoundedCost() {
+        Random random = new Random(4218);
+        int[] linesA = new int[50_000];
+        int[] linesB = new int[50_000];
+        for (int i = 0; i < linesA.length; i++) {
+            linesA[i] = random.nextInt(1000);
+            linesB[i] = random.nextInt(1000);
+        }
+        for (LineDiff.Algorithm algorithm : LineDiff.Algorithm.values()) {
+            List<LineDiff.Hunk> hunks = assertTimeoutPreemptively(Duration.ofSeconds(10),
+              () -> LineDiff.diff(linesA, linesB, algorithm));
+            assertArrayEquals(linesB, apply(linesA, linesB, hunks));
+        }
+    }
+
+    private static int[] randomIds(Random random, int length) {
+        int[] ids = new int[length];
+        for (int i = 0; i < length; i++) {
+            ids[i] = random.nextInt(5);
+        }
+        return ids;
+    }
+
+    /**
+     * Rebuilds the second sequence from the lines of the first which no hunk removes, and the
+     * lines each hunk adds.
+     */
+    private static int[] apply(int[] linesA, int[] linesB, List<LineDiff.Hunk> hunks) {
+        List<Integer> result = new ArrayList<>();
+        int indexA = 0;
+        for (LineDiff.Hunk hunk : hunks) {
+            while (indexA < hunk.getStartA()) {
+                result.add(linesA[indexA++]);
+            }
+            for (int j = hunk.getStartB(); j < hunk.getEndB(); j++) {
+                result.add(linesB[j]);
+            }
+            indexA = hunk.getEndA();
+        }
+        while (indexA < linesA.length) {
+            result.add(linesA[indexA++]);
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int countChanged(List<LineDiff.Hunk> hunks, boolean isRemoved) {
+        int count = 0;
+        for (LineDiff.Hunk hunk : hunks) {
+            count += isRemoved ? hunk.getEndA() - hunk.getStartA() : hunk.getEndB() - hunk.getStartB();
+        }
+        return count;
+    }
+
+    private static int[] bounds(LineDiff.Hunk hunk) {
+        return new int[]{hunk.getStartA(), hunk.getEndA(), hunk.getStartB(), hunk.getEndB()};
+    }
+
+    private static int longestCommonSubsequence(int[] linesA, int[] linesB) {
+        int[][] lengths = new int[linesA.length + 1][linesB.length + 1];
+        for (int i = 1; i <= linesA.length; i++) {
+            for (int j = 1; j <= linesB.length; j++) {
+                lengths[i][j] = linesA[i - 1] == linesB[j - 1] ? lengths[i - 1][j - 1] + 1
+                  : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+            }
+        }
+        return lengths[linesA.length][linesB.length];
+    }
+}
@@ -0,0 +1,122 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Tests that line tables split input exactly as the strings they replace did.
+ */
+class LineTableTest {
+
+    private static final String[] CONTENTS = {"", "\n", "\n\n", "a", "a\n", "a\n\n", "\na\n\nb", "a\r\nb\rc\n\r",
+      "a\r", "x\n\n\ny\n"};
+
+    @Test
+    void testFileSplitLikeStringSplit() throws IOException {
+        Path file = Files.createTempFile("lineTable", ".txt");
+        try {
+            for (String content : CONTENTS) {
+                Files.write(file, content.getBytes());
+                try (LineTable table = LineTable.ofFile(file)) {
+                    assertEquals(Arrays.asList(content.split("\n")), lines(table), content);
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testStreamSplitLikeReadLine() throws IOException {
+        for (String content : CONTENTS) {
+            List<String> expected = new ArrayList<>();
+            BufferedReader reader = new BufferedReader(new StringReader(content));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                expected.add(line);
+            }
+            try (LineTable table = LineTable.ofStream(new ByteArrayInputStream(content.getBytes()))) {
+                assertEquals(expected, lines(table), content);
+            }
+        }
+    }
+
+    /**
+     * Streams too large to be held on the heap are copied to a file first.
+     */
+    @Test
+    void testLargeStreamSpilledToFile() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        try (LineTable table = LineTable.ofStream(new ByteArrayInputStream(content.toString().getBytes()))) {
+            assertEquals(100_000, table.size());
+            assertEquals("line 0", table.getLine(0));
+            assertEquals("line 99999", table.getLine(99_999));
+        }
+    }
+
+    /**
+     * A stream reading a file is mapped from where it is, and read to its end.
+     */
+    @Test
+    void testLargeFileStreamMapped() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            content.append("line ").append(i).append("\r\n");
+        }
+        Path file = Files.createTempFile("lineTable", ".txt");
+        try {
+            Files.write(file, content.toString().getBytes());
+            try (InputStream input = new FileInputStream(file.toFile())) {
+                assertEquals(8, input.skip(8));
+                try (LineTable table = LineTable.ofStream(input)) {
+                    assertEquals(99_999, table.size());
+                    assertEquals("line 1", table.getLine(0));
+                    assertEquals("line 99999", table.getLine(99_998));
+                }
+                assertEquals(-1, input.read());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testEqualLinesShareIds() throws IOException {
+        try (LineTable first = LineTable.ofStream(new ByteArrayInputStream("a\nb\nAa\na\n".getBytes()));
+             LineTable second = LineTable.ofStream(new ByteArrayInputStream("BB\nb\na\n".getBytes()))) {
+            int[][] ids = LineTable.assignIds(first, second);
+
+            assertEquals(ids[0][0], ids[0][3]);
+            assertEquals(ids[0][0], ids[1][2]);
+            assertEquals(ids[0][1], ids[1][1]);
+            // "Aa" and "BB" have the same hash
+            assertNotEquals(ids[0][2], ids[1][0]);
+            assertEquals(3, Math.max(Arrays.stream(ids[0]).max().getAsInt(), Arrays.stream(ids[1]).max().getAsInt()));
+        }
+    }
+
+    private static List<String> lines(LineTable table) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < table.size(); i++) {
+            lines.add(table.getLine(i));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,81 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.exception.CdException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests evaluating the command substitutions of one command concurrently.
+ */
+class ParallelSubstitutionTest {
+
+    private static final String APP_AWAIT = "awaitothersubstitution";
+
+    private int threads;
+
+    @BeforeEach
+    void setUp() {
+        threads = ShellConfig.getSubstitutionThreads();
+        ShellConfig.setSubstitutionThreads(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ShellConfig.setSubstitutionThreads(threads);
+    }
+
+    @Test
+    void testOutputsSplicedInOrder() throws Exception {
+        List<String> args = Arrays.asList("a`echo 1 2`b", "\"x `echo 3` y\"", "'`echo no`'", "`echo 4`");
+        List<String> parallel = new ArgumentResolver().parseArguments(args);
+        ShellConfig.setSubstitutionThreads(1);
+        List<String> sequential = new ArgumentResolver().parseArguments(args);
+
+        assertEquals(Arrays.asList("a1", "2b", "x 3 y", "`echo no`", "4"), parallel);
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void testSubstitutionsRunConcurrently() throws Exception {
+        // Each run waits for the other, which only returns if both run at once
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ApplicationRegistry.getDefault().registerShared(APP_AWAIT, (args, stdin, stdout) -> {
+            try {
+                barrier.await(10, TimeUnit.SECONDS);
+                stdout.write(args[0].getBytes());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        List<String> parsed = new ArgumentResolver()
+          .parseArguments(Arrays.asList("`" + APP_AWAIT + " first`", "`" + APP_AWAIT + " second`"));
+
+        assertEquals(Arrays.asList("first", "second"), parsed);
+    }
+
+    @Test
+    void testWorkingDirectoryNotChangedBySubstitutions() throws Exception {
+        String directory = Environment.getCurrentDirectory();
+
+        new ArgumentResolver().parseArguments(Arrays.asList("`cd src`", "`cd test`"));
+
+        assertEquals(directory, Environment.getCurrentDirectory());
+    }
+
+    @Test
+    void testFirstFailureThrown() {
+        assertThrows(CdException.class, () -> new ArgumentResolver()
+          .parseArguments(Arrays.asList("`echo a`", "`cd nosuchfolder`", "`echo b`", "`nosuchapp`")));
+    }
+}
@@ -0,0 +1,115 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Tests for the single-producer/single-consumer pipe between the stages of a streaming pipe.
+ */
+class PipeChannelTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Pushes more data than the channel can hold through a small channel and checks that it
+     * arrives unchanged and in order, including across the wrap-around of the ring.
+     */
+    @Test
+    void testTransferAcrossThreadsPreservesBytes() {
+        byte[] data = new byte[1 << 20];
+        new Random(4218).nextBytes(data);
+        PipeChannel channel = new PipeChannel(1000, 100);
+
+        byte[] received = assertTimeoutPreemptively(TIMEOUT, () -> {
+            Thread producer = new Thread(() -> {
+                try (OutputStream output = channel.getOutputStream()) {
+                    for (int offset = 0; offset < data.length; offset += 777) {
+                        output.write(data, offset, Math.min(777, data.length - offset));
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            producer.start();
+            byte[] result = readAll(channel.getInputStream());
+            producer.join();
+            return result;
+        });
+
+        assertArrayEquals(data, received);
+    }
+
+    @Test
+    void testCapacityRoundedUpToPowerOfTwo() {
+        assertEquals(1024, new PipeChannel(1000, 0).getCapacity());
+        assertEquals(64, new PipeChannel(64, 0).getCapacity());
+    }
+
+    @Test
+    void testReadReturnsEndOfFileAfterWriterCloses() throws IOException {
+        PipeChannel channel = new PipeChannel(16, 0);
+        channel.getOutputStream().write('a');
+        channel.getOutputStream().close();
+
+        assertEquals('a', channel.getInputStream().read());
+        assertEquals(-1, channel.getInputStream().read());
+    }
+
+    @Test
+    void testBatchedWritesPublishedOnFlush() throws IOException {
+        PipeChannel channel = new PipeChannel(64, 8);
+        channel.getOutputStream().write(new byte[]{1, 2, 3});
+        assertEquals(0, channel.getInputStream().available());
+
+        channel.getOutputStream().flush();
+        assertEquals(3, channel.getInputStream().available());
+    }
+
+    /**
+     * A writer must not block once the reader has gone away, even if the channel is full.
+     */
+    @Test
+    void testWritesDiscardedAfterReaderCloses() {
+        PipeChannel channel = new PipeChannel(16, 0);
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            channel.getOutputStream().write(new byte[16]);
+            channel.getInputStream().close();
+            channel.getOutputStream().write(new byte[1024]);
+            channel.getOutputStream().close();
+        });
+    }
+
+    @Test
+    void testWriteAfterCloseThrowsException() throws IOException {
+        PipeChannel channel = new PipeChannel(16, 0);
+        channel.getOutputStream().close();
+
+        assertThrows(IOException.class, () -> channel.getOutputStream().write('a'));
+    }
+
+    @Test
+    void testInvalidCapacityThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new PipeChannel(0, 0));
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] chunk = new byte[333];
+        int count;
+        while ((count = input.read(chunk)) != -1) {
+            result.write(chunk, 0, count);
+        }
+        return result.toByteArray();
+    }
+}
@@ -0,0 +1,107 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.Environment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for expanding globs spanning several path segments.
+ */
+class RegexArgumentGlobTest {
+
+    private static final String SEP = StringUtils.fileSeparator();
+    private static final String ORIGINAL_DIR = Environment.getCurrentDirectory();
+    private static Path root;
+    private static boolean isGlobStar;
+
+    @BeforeAll
+    static void setUpAll() throws IOException {
+        root = Files.createTempDirectory("globTree");
+        for (String file : new String[]{"src/a/impl/X.java", "src/b/impl/Y.java", "src/b/impl/Y.txt", "src/b/Z.java",
+          "logs/x.log", "logs/deep/er/y.log", "z.log"}) {
+            Path path = root.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.createFile(path);
+        }
+        Environment.setCurrentDirectory(root.toString());
+        isGlobStar = ShellConfig.isGlobStar();
+        ShellConfig.setGlobStar(true);
+    }
+
+    @AfterAll
+    static void tearDownAll() throws IOException {
+        Environment.setCurrentDirectory(ORIGINAL_DIR);
+        ShellConfig.setGlobStar(isGlobStar);
+        Files.walk(root).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+
+    @Test
+    void testWildcardInMiddleSegment() {
+        assertEquals(Arrays.asList("src" + SEP + "a" + SEP + "impl" + SEP + "X.java",
+          "src" + SEP + "b" + SEP + "impl" + SEP + "Y.java"), glob("src/*/impl/*.java"));
+    }
+
+    @Test
+    void testRecursiveSegmentMatchesAnyDepth() {
+        assertEquals(Arrays.asList("logs" + SEP + "deep" + SEP + "er" + SEP + "y.log", "logs" + SEP + "x.log",
+          "z.log"), glob("**/*.log"));
+        assertEquals(Arrays.asList("src" + SEP + "a" + SEP + "impl" + SEP + "X.java",
+          "src" + SEP + "b" + SEP + "Z.java", "src" + SEP + "b" + SEP + "impl" + SEP + "Y.java"),
+          glob("src/**/*.java"));
+    }
+
+    @Test
+    void testRecursiveSegmentLastListsEverythingBelow() {
+        assertEquals(Arrays.asList("logs" + SEP, "logs" + SEP + "deep", "logs" + SEP + "deep" + SEP + "er",
+          "logs" + SEP + "deep" + SEP + "er" + SEP + "y.log", "logs" + SEP + "x.log"), glob("logs/**"));
+    }
+
+    @Test
+    void testRecursiveSegmentIsSingleSegmentWithoutGlobStar() {
+        ShellConfig.setGlobStar(false);
+        try {
+            assertEquals(Collections.singletonList("z.log"), glob("**.log"));
+            assertEquals(Collections.singletonList("logs" + SEP + "x.log"), glob("**/*.log"));
+        } finally {
+            ShellConfig.setGlobStar(true);
+        }
+    }
+
+    @Test
+    void testAbsoluteGlob() {
+        assertEquals(Collections.singletonList(root + SEP + "z.log"), glob(root + "/*.log"));
+    }
+
+    @Test
+    void testNoMatchKeepsArgument() {
+        assertEquals(Collections.singletonList("missing/*/x"), glob("missing/*/x"));
+        assertEquals(Collections.singletonList("src/*/none*"), glob("src/*/none*"));
+    }
+
+    /**
+     * @return the expansion of the argument, with each '*' unquoted
+     */
+    private static List<String> glob(String argument) {
+        RegexArgument regexArgument = new RegexArgument();
+        for (char chr : argument.toCharArray()) {
+            if (chr == '*') {
+                regexArgument.appendAsterisk();
+            } else {
+                regexArgument.append(chr);
+            }
+        }
+        return regexArgument.globFiles();
+    }
+}
@@ -0,0 +1,123 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+/**
+ * Tests for buffering output according to each flush policy.
+ */
+class ShellOutputStreamTest {
+
+    @Test
+    void testCommandPolicyWritesOnceCommandEnds() throws IOException {
+        CountingOutputStream target = new CountingOutputStream();
+        ShellOutputStream output = new ShellOutputStream(target, 1024, ShellOutputStream.FlushPolicy.COMMAND);
+        for (int i = 0; i < 100; i++) {
+            output.write(("line " + i + "\n").getBytes());
+            output.flush();
+        }
+        assertEquals(0, target.size());
+
+        output.endCommand();
+        assertEquals(1, target.writes);
+        assertEquals("line 0\nline 1\n", target.toString().substring(0, 14));
+    }
+
+    @Test
+    void testFullBufferWritten() throws IOException {
+        CountingOutputStream target = new CountingOutputStream();
+        ShellOutputStream output = new ShellOutputStream(target, 4, ShellOutputStream.FlushPolicy.COMMAND);
+        output.write("abc".getBytes());
+        output.write("de".getBytes());
+        assertEquals("abc", target.toString());
+
+        output.write("0123456789".getBytes());
+        assertEquals("abcde0123456789", target.toString());
+        assertEquals(3, target.writes);
+    }
+
+    @Test
+    void testLinePolicyWritesEachLine() throws IOException {
+        CountingOutputStream target = new CountingOutputStream();
+        ShellOutputStream output = new ShellOutputStream(target, 1024, ShellOutputStream.FlushPolicy.LINE);
+        output.write("ab".getBytes());
+        assertEquals("", target.toString());
+
+        output.write("c\nd".getBytes());
+        assertEquals("abc\nd", target.toString());
+        output.write('e');
+        output.write('\n');
+        assertEquals("abc\nde\n", target.toString());
+    }
+
+    @Test
+    void testSizePolicyWritesOnFlushPastThreshold() throws IOException {
+        CountingOutputStream target = new CountingOutputStream();
+        ShellOutputStream output = new ShellOutputStream(target, 1024, ShellOutputStream.FlushPolicy.SIZE, 6);
+        output.write("a\nb\n".getBytes());
+        output.flush();
+        assertEquals("", target.toString());
+
+        output.write("c\nd\n".getBytes());
+        assertEquals("", target.toString());
+        output.flush();
+        assertEquals("a\nb\nc\nd\n", target.toString());
+        assertEquals(1, target.writes);
+    }
+
+    @Test
+    void testChannelOfRedirectedFileAfterBufferedOutput() throws Exception {
+        Path file = Files.createTempFile("shellOutput", ".txt");
+        try {
+            try (OutputStream output = IOUtils.openOutputStream(file.toString())) {
+                output.write("ab".getBytes());
+                assertNotNull(IOUtils.getFileChannel(output));
+                assertEquals(2, IOUtils.getFileChannel(output).position());
+            }
+            assertEquals("ab", new String(Files.readAllBytes(file)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testRedirectedOutputWrittenWhenCommandEnds() throws Exception {
+        ShellOutputStream.FlushPolicy policy = ShellConfig.getOutputFlushPolicy();
+        ShellConfig.setOutputFlushPolicy(ShellOutputStream.FlushPolicy.COMMAND);
+        Path file = Files.createTempFile("shellOutput", ".txt");
+        try {
+            new ShellImpl().parseAndEvaluate("echo hello > " + file, new ByteArrayOutputStream());
+
+            assertEquals("hello" + STRING_NEWLINE, new String(Files.readAllBytes(file)));
+        } finally {
+            ShellConfig.setOutputFlushPolicy(policy);
+            Files.delete(file);
+        }
+    }
+
+    private static final class CountingOutputStream extends ByteArrayOutputStream {
+        private int writes;
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            writes++;
+            super.write(bytes, offset, length);
+        }
+
+        @Override
+        public synchronized void write(int value) {
+            writes++;
+            super.write(value);
+        }
+    }
+}
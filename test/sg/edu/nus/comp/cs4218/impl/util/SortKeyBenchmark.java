@@ -0,0 +1,53 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares sorting lines by precomputed {@link SortKey}s with comparing the lines themselves, for
+ * every combination of the -n and -f flags.
+ * <p>
+ * Not a test: run it with <code>java sg.edu.nus.comp.cs4218.impl.util.SortKeyBenchmark [LINES]</code>
+ * (default 10 million lines) and a heap large enough for the input, e.g. <code>-Xmx8g</code>.
+ */
+@SuppressWarnings("PMD")
+public final class SortKeyBenchmark {
+
+    private SortKeyBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        List<String> lines = SortKeyTest.randomLines(new Random(4218), count);
+        System.out.printf("%,d lines%n", count);
+        for (boolean isFirstWordNumber : new boolean[]{false, true}) {
+            for (boolean isCaseIndependent : new boolean[]{false, true}) {
+                String flags = (isFirstWordNumber ? "n" : "") + (isCaseIndependent ? "f" : "");
+                long lineMillis = timeLineSort(lines, isFirstWordNumber, isCaseIndependent);
+                long keyMillis = timeKeySort(lines, isFirstWordNumber, isCaseIndependent);
+                System.out.printf("-%-3s compare lines %,7d ms   precomputed keys %,7d ms%n", flags, lineMillis,
+                  keyMillis);
+            }
+        }
+    }
+
+    private static long timeLineSort(List<String> lines, boolean isFirstWordNumber, boolean isCaseIndependent) {
+        List<String> copy = new ArrayList<>(lines);
+        long start = System.nanoTime();
+        Collections.sort(copy, (first, second) ->
+          SortKeyTest.compareLines(first, second, isFirstWordNumber, isCaseIndependent));
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long timeKeySort(List<String> lines, boolean isFirstWordNumber, boolean isCaseIndependent) {
+        long start = System.nanoTime();
+        List<SortKey> keys = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            keys.add(SortKey.of(line, isFirstWordNumber, isCaseIndependent));
+        }
+        Collections.sort(keys);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
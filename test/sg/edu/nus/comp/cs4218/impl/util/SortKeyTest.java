@@ -0,0 +1,101 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that comparing precomputed sort keys orders lines exactly as comparing the lines did.
+ */
+class SortKeyTest {
+
+    @Test
+    void testSameOrderAsLineComparatorForAllFlags() {
+        List<String> lines = randomLines(new Random(4218), 400);
+        for (boolean isFirstWordNumber : new boolean[]{false, true}) {
+            for (boolean isCaseIndependent : new boolean[]{false, true}) {
+                for (String first : lines) {
+                    SortKey firstKey = SortKey.of(first, isFirstWordNumber, isCaseIndependent);
+                    for (int i = 0; i < 50; i++) {
+                        String second = lines.get((first.hashCode() + i * 31 & 0xFFFF) % lines.size());
+                        SortKey secondKey = SortKey.of(second, isFirstWordNumber, isCaseIndependent);
+                        assertEquals(Integer.signum(compareLines(first, second, isFirstWordNumber, isCaseIndependent)),
+                          Integer.signum(firstKey.compareTo(secondKey)), first + " vs " + second);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testNumbersLongerThanLongComparedNumerically() {
+        SortKey small = SortKey.of("999999999999999999 a", true, false);
+        SortKey large = SortKey.of("0001000000000000000000 a", true, false);
+        SortKey larger = SortKey.of("1000000000000000001 a", true, false);
+
+        assertTrue(small.compareTo(large) < 0);
+        assertTrue(large.compareTo(larger) < 0);
+        assertTrue(larger.compareTo(small) > 0);
+    }
+
+    /**
+     * The comparison sort used before keys were precomputed, as the reference for the order.
+     */
+    static int compareLines(String str1, String str2, boolean isFirstWordNumber, boolean isCaseIndependent) {
+        String temp1 = isCaseIndependent ? str1.toLowerCase() : str1;
+        String temp2 = isCaseIndependent ? str2.toLowerCase() : str2;
+        if (isFirstWordNumber && !temp1.isEmpty() && !temp2.isEmpty()) {
+            String chunk1 = getChunk(temp1);
+            String chunk2 = getChunk(temp2);
+            int result;
+            if (Character.isDigit(chunk1.charAt(0)) && Character.isDigit(chunk2.charAt(0))) {
+                result = new BigInteger(chunk1).compareTo(new BigInteger(chunk2));
+            } else {
+                result = chunk1.compareTo(chunk2);
+            }
+            if (result != 0) {
+                return result;
+            }
+            return temp1.substring(chunk1.length()).compareTo(temp2.substring(chunk2.length()));
+        }
+        return temp1.compareTo(temp2);
+    }
+
+    private static String getChunk(String str) {
+        StringBuilder chunk = new StringBuilder();
+        char chr = str.charAt(0);
+        chunk.append(chr);
+        boolean extractDigit = Character.isDigit(chr);
+        for (int i = 1; i < str.length(); i++) {
+            chr = str.charAt(i);
+            if (extractDigit != Character.isDigit(chr)) {
+                break;
+            }
+            chunk.append(chr);
+        }
+        return chunk.toString();
+    }
+
+    /**
+     * @return lines mixing numbers with leading zeros, letters of both cases and empty lines
+     */
+    static List<String> randomLines(Random random, int count) {
+        String alphabet = "0123456789aAbB -";
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = random.nextInt(12);
+            StringBuilder line = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+}
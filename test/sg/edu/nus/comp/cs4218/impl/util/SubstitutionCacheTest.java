@@ -0,0 +1,183 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.Environment;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+/**
+ * Tests for caching the output of substituted commands until the files they read change.
+ */
+class SubstitutionCacheTest {
+
+    private static final FileTime AN_HOUR_AGO = FileTime.fromMillis(System.currentTimeMillis() - 3_600_000);
+
+    private int cacheSize;
+    private Path dir;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cacheSize = ShellConfig.getSubstitutionCacheSize();
+        ShellConfig.setSubstitutionCacheSize(16);
+        SubstitutionCache.clear();
+        dir = Files.createTempDirectory("substitutionCache");
+        file = dir.resolve("a.txt");
+        Files.write(file, ("x" + STRING_NEWLINE + "y" + STRING_NEWLINE).getBytes());
+        Files.setLastModifiedTime(file, AN_HOUR_AGO);
+        Files.setLastModifiedTime(dir, AN_HOUR_AGO);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        ShellConfig.setSubstitutionCacheSize(cacheSize);
+        SubstitutionCache.clear();
+        Files.walk(dir).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+
+    @Test
+    void testUnchangedFileServedFromCache() throws Exception {
+        List<String> first = resolve("`wc -l " + file + "`");
+        List<String> second = resolve("`wc -l " + file + "`");
+
+        assertEquals(first, second);
+        assertEquals("2", first.get(0));
+        assertEquals(1, SubstitutionCache.getHits());
+        assertEquals(1, SubstitutionCache.size());
+    }
+
+    @Test
+    void testModifiedFileEvaluatedAgain() throws Exception {
+        resolve("`wc -l " + file + "`");
+        Files.write(file, ("x" + STRING_NEWLINE).getBytes());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(AN_HOUR_AGO.toMillis() + 1000));
+
+        assertEquals("1", resolve("`wc -l " + file + "`").get(0));
+        assertEquals(0, SubstitutionCache.getHits());
+    }
+
+    @Test
+    void testFileAddedToDirectoryFound() throws Exception {
+        assertFalse(resolve("`ls " + dir + "`").contains("b.txt"));
+        Files.createFile(dir.resolve("b.txt"));
+        Files.setLastModifiedTime(dir.resolve("b.txt"), AN_HOUR_AGO);
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(AN_HOUR_AGO.toMillis() + 1000));
+
+        assertTrue(resolve("`ls " + dir + "`").contains("b.txt"));
+    }
+
+    @Test
+    void testWorkingDirectoryListedAgainOnceChanged() throws Exception {
+        String directory = Environment.getCurrentDirectory();
+        Environment.setCurrentDirectory(dir.toString());
+        try {
+            assertEquals(resolve("`ls`"), resolve("`ls`"));
+            assertEquals(1, SubstitutionCache.getHits());
+
+            Files.createFile(dir.resolve("b.txt"));
+            Files.setLastModifiedTime(dir.resolve("b.txt"), AN_HOUR_AGO);
+            Files.setLastModifiedTime(dir, FileTime.fromMillis(AN_HOUR_AGO.toMillis() + 1000));
+            assertTrue(resolve("`ls`").contains("b.txt"));
+            assertEquals(1, SubstitutionCache.getHits());
+        } finally {
+            Environment.setCurrentDirectory(directory);
+        }
+    }
+
+    /**
+     * Adding a file to a subdirectory leaves the time of the working directory unchanged.
+     */
+    @Test
+    void testRecursiveListingOfWorkingDirectorySeesSubdirectoryChange() throws Exception {
+        Path sub = Files.createDirectory(dir.resolve("sub"));
+        Files.setLastModifiedTime(sub, AN_HOUR_AGO);
+        Files.setLastModifiedTime(dir, AN_HOUR_AGO);
+        String directory = Environment.getCurrentDirectory();
+        Environment.setCurrentDirectory(dir.toString());
+        try {
+            assertFalse(resolve("`ls -R`").contains("b.txt"));
+
+            Files.createFile(sub.resolve("b.txt"));
+            Files.setLastModifiedTime(sub.resolve("b.txt"), AN_HOUR_AGO);
+            Files.setLastModifiedTime(sub, FileTime.fromMillis(AN_HOUR_AGO.toMillis() + 1000));
+            assertTrue(resolve("`ls -R`").contains("b.txt"));
+            assertEquals(0, SubstitutionCache.getHits());
+        } finally {
+            Environment.setCurrentDirectory(directory);
+        }
+    }
+
+    @Test
+    void testSedServedFromCache() throws Exception {
+        List<String> first = resolve("`sed s/x/z/ " + file + "`");
+
+        assertEquals(first, resolve("`sed s/x/z/ " + file + "`"));
+        assertEquals("z", first.get(0));
+        assertEquals(1, SubstitutionCache.getHits());
+    }
+
+    /**
+     * A file modified just now may change again within the same timestamp.
+     */
+    @Test
+    void testRecentlyModifiedFileNotCached() throws Exception {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        resolve("`wc -l " + file + "`");
+
+        assertEquals(0, SubstitutionCache.size());
+    }
+
+    @Test
+    void testApplicationNotInWhitelistNotCached() throws Exception {
+        resolve("`echo " + file + "`");
+        resolve("`wc -l " + file + " | sort`");
+
+        assertEquals(0, SubstitutionCache.size());
+    }
+
+    @Test
+    void testCommandReadingStdinNotCached() throws Exception {
+        // In a directory which is otherwise cacheable
+        InputStream stdin = System.in;
+        String directory = Environment.getCurrentDirectory();
+        System.setIn(new ByteArrayInputStream(("a b" + STRING_NEWLINE).getBytes()));
+        Environment.setCurrentDirectory(dir.toString());
+        try {
+            assertTrue(resolve("`wc -w`").contains("2"));
+        } finally {
+            System.setIn(stdin);
+            Environment.setCurrentDirectory(directory);
+        }
+
+        assertEquals(0, SubstitutionCache.size());
+    }
+
+    @Test
+    void testDisabledCacheNotUsed() throws Exception {
+        ShellConfig.setSubstitutionCacheSize(0);
+        resolve("`wc -l " + file + "`");
+        resolve("`wc -l " + file + "`");
+
+        assertEquals(0, SubstitutionCache.getHits());
+        assertEquals(0, SubstitutionCache.size());
+    }
+
+    private static List<String> resolve(String arg) throws Exception {
+        return new ArgumentResolver().resolveOneArgument(arg);
+    }
+}
@@ -0,0 +1,88 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_SUBST_TOO_LARGE;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+/**
+ * Tests that substituted output is tokenized as it is written exactly as the whole output string
+ * was before.
+ */
+class SubstitutionOutputTest {
+
+    // Includes control characters, which are trimmed but do not separate tokens, and multi-byte ones
+    private static final String ALPHABET = "ab \t\n\r\u0001\u000B\u3000\u00e9";
+
+    @Test
+    void testTokensAndText() throws IOException {
+        String output = "  one two" + STRING_NEWLINE + "three  " + STRING_NEWLINE;
+
+        assertEquals(Arrays.asList("one", "two", "three"), collect(output, true, 1).getTokens());
+        assertEquals("  one two three  ", collect(output, false, 1).getText());
+        assertEquals(Collections.emptyList(), collect("", true, 1).getTokens());
+    }
+
+    @Test
+    void testRandomOutputSameAsWholeString() throws IOException {
+        Random random = new Random(4218);
+        for (int i = 0; i < 20_000; i++) {
+            char[] chars = new char[random.nextInt(12)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            }
+            // As written by an application, in the default charset
+            String output = new String(new String(chars).getBytes());
+            int chunk = 1 + random.nextInt(4);
+            String text = output.replace(STRING_NEWLINE, " ");
+            String expectedText = text.endsWith(" ") ? text.substring(0, text.length() - 1) : text;
+
+            assertEquals(Arrays.asList(StringUtils.tokenize(text)), collect(output, true, chunk).getTokens(), output);
+            assertEquals(expectedText, collect(output, false, chunk).getText(), output);
+        }
+    }
+
+    @Test
+    void testOutputBeyondMaximumRefused() throws IOException {
+        SubstitutionOutput output = new SubstitutionOutput(true, 4);
+        output.write("abcd".getBytes());
+
+        assertThrows(IOException.class, () -> output.write('e'));
+        assertTrue(output.isOverflowed());
+    }
+
+    @Test
+    void testSubstitutionBeyondMaximumIsShellError() {
+        long maxBytes = ShellConfig.getSubstitutionMaxBytes();
+        ShellConfig.setSubstitutionMaxBytes(8);
+        try {
+            ShellException exception = assertThrows(ShellException.class,
+              () -> new ArgumentResolver().resolveOneArgument("`echo 0123456789`"));
+            assertTrue(exception.getMessage().contains(ERR_SUBST_TOO_LARGE));
+        } finally {
+            ShellConfig.setSubstitutionMaxBytes(maxBytes);
+        }
+    }
+
+    /**
+     * Writes the output in chunks of the given number of bytes, splitting multi-byte characters.
+     */
+    private static SubstitutionOutput collect(String output, boolean isTokenized, int chunk) throws IOException {
+        SubstitutionOutput result = new SubstitutionOutput(isTokenized, Long.MAX_VALUE);
+        byte[] bytes = output.getBytes();
+        for (int i = 0; i < bytes.length; i += chunk) {
+            result.write(bytes, i, Math.min(chunk, bytes.length - i));
+        }
+        result.finish();
+        return result;
+    }
+}